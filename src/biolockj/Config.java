@@ -20,6 +20,7 @@ import biolockj.exception.ConfigPathException;
 import biolockj.module.BioModule;
 import biolockj.util.BioLockJUtil;
 import biolockj.util.RuntimeParamUtil;
+import biolockj.util.SeqUtil;
 import biolockj.util.TaxaUtil;
 
 /**
@@ -40,16 +41,17 @@ public class Config
 	 */
 	public static boolean getBoolean( final BioModule module, final String property ) throws ConfigFormatException
 	{
-		if( getString( module, property ) != null && getString( module, property ).equalsIgnoreCase( Constants.TRUE ) )
+		final String val = getString( module, property );
+		if( val != null && val.equalsIgnoreCase( Constants.TRUE ) )
 		{
 			return true;
 		}
-		else if( getString( module, property ) == null )
+		else if( val == null )
 		{
 			setConfigProperty( property, Constants.FALSE );
 			Log.debug( Config.class, property + " is undefined, so return: " + Constants.FALSE );
 		}
-		else if( !getString( module, property ).equalsIgnoreCase( Constants.FALSE ) )
+		else if( !val.equalsIgnoreCase( Constants.FALSE ) )
 		{
 			throw new ConfigFormatException( property, "Boolean properties must be set to either " + Constants.TRUE
 					+ " or " + Constants.FALSE + ".  Update this property in your Config file to a valid option." );
@@ -108,11 +110,12 @@ public class Config
 	 */
 	public static Double getDoubleVal( final BioModule module, final String property ) throws ConfigFormatException
 	{
-		if( getString( module, property ) != null )
+		final String prop = getString( module, property );
+		if( prop != null )
 		{
 			try
 			{
-				final Double val = Double.parseDouble( getString( module, property ) );
+				final Double val = Double.parseDouble( prop );
 				return val;
 			}
 			catch( final Exception ex )
@@ -541,7 +544,10 @@ public class Config
 	public static Map<String, String> getUsedProps()
 	{
 		getString( null, Constants.PIPELINE_DEFAULT_PROPS );
-		return new HashMap<>( usedProps );
+		synchronized( usedProps )
+		{
+			return new HashMap<>( usedProps );
+		}
 	}
 
 	/**
@@ -829,12 +835,13 @@ public class Config
 	 */
 	public static String requireString( final BioModule module, final String property ) throws ConfigNotFoundException
 	{
-		if( getString( module, property ) == null )
+		final String val = getString( module, property );
+		if( val == null )
 		{
 			throw new ConfigNotFoundException( property );
 		}
 
-		return getString( module, property ).trim();
+		return val.trim();
 	}
 
 	/**
@@ -872,6 +879,7 @@ public class Config
 		{
 			Log.info( Config.class, "Set Config property [" + name + "] = " + val );
 			usedProps.put( name, val );
+			SeqUtil.clearSampleIdCache();
 		}
 	}
 
@@ -894,6 +902,7 @@ public class Config
 		{
 			Log.info( Config.class, "Set Config property [" + name + "] = " + val );
 			usedProps.put( name, val );
+			SeqUtil.clearSampleIdCache();
 		}
 	}
 
@@ -982,11 +991,12 @@ public class Config
 	 */
 	private static Integer getIntegerProp( final BioModule module, final String property ) throws ConfigFormatException
 	{
-		if( getString( module, property ) != null )
+		final String prop = getString( module, property );
+		if( prop != null )
 		{
 			try
 			{
-				final Integer val = Integer.parseInt( getString( module, property ) );
+				final Integer val = Integer.parseInt( prop );
 				return val;
 			}
 			catch( final Exception ex )
@@ -1067,5 +1077,5 @@ public class Config
 	private static File pipelineDir = null;
 	private static Properties props = null;
 	private static Properties unmodifiedInputProps = new Properties();
-	private static final Map<String, String> usedProps = new HashMap<>();
+	private static final Map<String, String> usedProps = Collections.synchronizedMap( new HashMap<>() );
 }
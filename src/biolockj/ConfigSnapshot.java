@@ -0,0 +1,227 @@
+/**
+ * @UNCC Fodor Lab
+ * @author Michael Sioda
+ * @email msioda@uncc.edu
+ * @date Mar 24, 2019
+ * @disclaimer This code is free software; you can redistribute it and/or modify it under the terms of the GNU General
+ * Public License as published by the Free Software Foundation; either version 2 of the License, or (at your option) any
+ * later version, provided that any use properly credits the author. This program is distributed in the hope that it
+ * will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU General Public License for more details at http://www.gnu.org *
+ */
+package biolockj;
+
+import java.util.*;
+import biolockj.exception.ConfigFormatException;
+import biolockj.exception.ConfigNotFoundException;
+import biolockj.module.BioModule;
+
+/**
+ * Immutable, typed snapshot of the {@link biolockj.Config} properties a {@link biolockj.module.BioModule} reads for
+ * every read, line, or OTU it processes.<br>
+ * Each property is resolved by the matching {@link biolockj.Config} getter when it is added to the
+ * {@link ConfigSnapshot.Builder}, so module-specific overrides, format validation, and used property tracking all
+ * happen once, when the snapshot is built. Reading the snapshot never touches the shared Config state, so one snapshot
+ * can be shared by all threads of a module.<br>
+ * Build the snapshot when the module starts to run (not in checkDependencies), so it includes the internal properties
+ * set by the modules that ran before it.
+ */
+public final class ConfigSnapshot
+{
+	private ConfigSnapshot( final Map<String, Object> values )
+	{
+		this.values = Collections.unmodifiableMap( new HashMap<>( values ) );
+	}
+
+	/**
+	 * Get a boolean property added with {@link Builder#addBoolean(String)}.
+	 *
+	 * @param property Property name
+	 * @return boolean value
+	 * @throws IllegalArgumentException if the property was not added as a boolean
+	 */
+	public boolean getBoolean( final String property )
+	{
+		return getValue( property, Boolean.class );
+	}
+
+	/**
+	 * Get a numeric property added with {@link Builder#addRequiredPositiveDouble(String)}.
+	 *
+	 * @param property Property name
+	 * @return Double value
+	 * @throws IllegalArgumentException if the property was not added as a double
+	 */
+	public Double getDouble( final String property )
+	{
+		return getValue( property, Double.class );
+	}
+
+	/**
+	 * Get an integer property added with {@link Builder#addNonNegativeInteger(String)},
+	 * {@link Builder#addPositiveInteger(String)}, or {@link Builder#addRequiredPositiveInteger(String)}.
+	 *
+	 * @param property Property name
+	 * @return Integer value or null if undefined
+	 * @throws IllegalArgumentException if the property was not added as an integer
+	 */
+	public Integer getInteger( final String property )
+	{
+		return getValue( property, Integer.class );
+	}
+
+	/**
+	 * Get a String property added with {@link Builder#addString(String)} or {@link Builder#addRequiredString(String)}.
+	 *
+	 * @param property Property name
+	 * @return String value or null if undefined
+	 * @throws IllegalArgumentException if the property was not added as a String
+	 */
+	public String getString( final String property )
+	{
+		return getValue( property, String.class );
+	}
+
+	private <T> T getValue( final String property, final Class<T> type )
+	{
+		if( !values.containsKey( property ) )
+		{
+			throw new IllegalArgumentException( "Property [ " + property + " ] was not added to this ConfigSnapshot" );
+		}
+
+		final Object val = values.get( property );
+		if( val != null && !type.isInstance( val ) )
+		{
+			throw new IllegalArgumentException( "Property [ " + property + " ] was added to this ConfigSnapshot as "
+					+ val.getClass().getSimpleName() + ", not " + type.getSimpleName() );
+		}
+
+		return type.cast( val );
+	}
+
+	/**
+	 * Resolves properties with the {@link biolockj.Config} getters to build a {@link ConfigSnapshot}. The builder
+	 * itself is not thread-safe and should be used by the thread that starts the module.
+	 */
+	public static final class Builder
+	{
+		/**
+		 * Resolve properties for the given module.
+		 *
+		 * @param module BioModule to check for module-specific form of each property, or null for global properties
+		 */
+		public Builder( final BioModule module )
+		{
+			this.module = module;
+		}
+
+		/**
+		 * Add a boolean property resolved by {@link biolockj.Config#getBoolean(BioModule, String)}.
+		 *
+		 * @param property Property name
+		 * @return this Builder
+		 * @throws ConfigFormatException if property value is not null but also not Y or N.
+		 */
+		public Builder addBoolean( final String property ) throws ConfigFormatException
+		{
+			values.put( property, Config.getBoolean( module, property ) );
+			return this;
+		}
+
+		/**
+		 * Add an integer property resolved by {@link biolockj.Config#getNonNegativeInteger(BioModule, String)}.
+		 *
+		 * @param property Property name
+		 * @return this Builder
+		 * @throws ConfigFormatException if defined but is not a non-negative integer value
+		 */
+		public Builder addNonNegativeInteger( final String property ) throws ConfigFormatException
+		{
+			values.put( property, Config.getNonNegativeInteger( module, property ) );
+			return this;
+		}
+
+		/**
+		 * Add an integer property resolved by {@link biolockj.Config#getPositiveInteger(BioModule, String)}.
+		 *
+		 * @param property Property name
+		 * @return this Builder
+		 * @throws ConfigFormatException if property is defined, but not set with a positive integer
+		 */
+		public Builder addPositiveInteger( final String property ) throws ConfigFormatException
+		{
+			values.put( property, Config.getPositiveInteger( module, property ) );
+			return this;
+		}
+
+		/**
+		 * Add a numeric property resolved by {@link biolockj.Config#requirePositiveDouble(BioModule, String)}.
+		 *
+		 * @param property Property name
+		 * @return this Builder
+		 * @throws ConfigNotFoundException if property is undefined
+		 * @throws ConfigFormatException if property is defined, but not set to a positive numeric value
+		 */
+		public Builder addRequiredPositiveDouble( final String property )
+				throws ConfigNotFoundException, ConfigFormatException
+		{
+			values.put( property, Config.requirePositiveDouble( module, property ) );
+			return this;
+		}
+
+		/**
+		 * Add an integer property resolved by {@link biolockj.Config#requirePositiveInteger(BioModule, String)}.
+		 *
+		 * @param property Property name
+		 * @return this Builder
+		 * @throws ConfigNotFoundException if property is undefined
+		 * @throws ConfigFormatException if property is defined, but not set to a positive integer value
+		 */
+		public Builder addRequiredPositiveInteger( final String property )
+				throws ConfigNotFoundException, ConfigFormatException
+		{
+			values.put( property, Config.requirePositiveInteger( module, property ) );
+			return this;
+		}
+
+		/**
+		 * Add a String property resolved by {@link biolockj.Config#requireString(BioModule, String)}.
+		 *
+		 * @param property Property name
+		 * @return this Builder
+		 * @throws ConfigNotFoundException if property is undefined
+		 */
+		public Builder addRequiredString( final String property ) throws ConfigNotFoundException
+		{
+			values.put( property, Config.requireString( module, property ) );
+			return this;
+		}
+
+		/**
+		 * Add a String property resolved by {@link biolockj.Config#getString(BioModule, String)}.
+		 *
+		 * @param property Property name
+		 * @return this Builder
+		 */
+		public Builder addString( final String property )
+		{
+			values.put( property, Config.getString( module, property ) );
+			return this;
+		}
+
+		/**
+		 * Build the immutable snapshot of the properties added so far.
+		 *
+		 * @return ConfigSnapshot
+		 */
+		public ConfigSnapshot build()
+		{
+			return new ConfigSnapshot( values );
+		}
+
+		private final BioModule module;
+		private final Map<String, Object> values = new HashMap<>();
+	}
+
+	private final Map<String, Object> values;
+}
@@ -433,6 +433,13 @@ public class Constants
 	 */
 	public static final String PIPELINE_ENV_LOCAL = "local";
 
+	/**
+	 * {@link biolockj.Config} Integer property: {@value #PIPELINE_MAX_CONCURRENT_MODULES}<br>
+	 * Maximum number of modules to run at the same time. If undefined or 1, modules run one at a time in the order
+	 * listed in the {@link biolockj.Config} file.
+	 */
+	public static final String PIPELINE_MAX_CONCURRENT_MODULES = "pipeline.maxConcurrentModules";
+
 	/**
 	 * {@link biolockj.Config} property to assign a name to a pipeline: {@value #PIPELINE_NAME} TODO: needs to be
 	 * implemented.
@@ -518,6 +525,14 @@ public class Constants
 	 */
 	public static final String RDP_THRESHOLD_SCORE = "rdp.minThresholdScore";
 
+	/**
+	 * {@link biolockj.Config} Boolean property: {@value #REPORT_BINARY_COUNTS}<br>
+	 * If set to {@value #TRUE}, Java report modules save a binary count file ({@link biolockj.util.CountMatrixFile})
+	 * next to their OTU count files and taxonomy tables, which the next Java report module reads instead of the TSV
+	 * files.
+	 */
+	public static final String REPORT_BINARY_COUNTS = "report.binaryCounts";
+
 	/**
 	 * {@link biolockj.Config} String property: {@value #REPORT_LOG_BASE}<br>
 	 * Required to be set to "e" or "10" to build log normalized reports.
@@ -555,6 +570,14 @@ public class Constants
 	 */
 	public static final String REPORT_SCARCE_CUTOFF = "report.scarceCountCutoff";
 
+	/**
+	 * {@link biolockj.Config} Boolean property: {@value #REPORT_SPILL_OTU_COUNTS}<br>
+	 * If set to {@value #TRUE}, Java report modules that load the OTU counts of every sample keep them in a spill file
+	 * in the module temp directory ({@link biolockj.util.SpilledOtuCounts}) instead of the heap, for cohorts too large
+	 * to fit in memory.
+	 */
+	public static final String REPORT_SPILL_OTU_COUNTS = "report.spillOtuCounts";
+
 	/**
 	 * {@link biolockj.Config} List property: {@value #REPORT_TAXONOMY_LEVELS}<br>
 	 * This property drives a lot of BioLockJ functionality and determines which taxonomy-levels are reported. Note,
@@ -15,6 +15,7 @@ import java.io.BufferedReader;
 import java.io.InputStreamReader;
 import java.util.StringTokenizer;
 import biolockj.module.ScriptModule;
+import biolockj.util.LocalWorkerPool;
 
 /**
  * {@link biolockj.module.ScriptModule}s that generate scripts will submit a main script to the OS for execution as a
@@ -76,7 +77,9 @@ public class Job
 	 * This method is called by script generating {@link biolockj.module.ScriptModule}s to update the script
 	 * file-permissions to ensure they are executable by the program. Once file permissions are set, the main script
 	 * (passed in the args param) is executed. Calls {@link #setFilePermissions(String, String)} and
-	 * {@link #submit(ScriptModule)}
+	 * {@link #submit(ScriptModule)}<br>
+	 * If {@link biolockj.util.LocalWorkerPool#isEnabled(ScriptModule)}, the worker scripts are started in the
+	 * {@link biolockj.util.LocalWorkerPool} instead of running the main script.
 	 *
 	 * @param module ScriptModule that is submitting its main script as a Job
 	 * 
@@ -86,7 +89,14 @@ public class Job
 	{
 		setFilePermissions( module.getScriptDir().getAbsolutePath(),
 				Config.requireString( module, ScriptModule.SCRIPT_PERMISSIONS ) );
-		new Job().runJob( module.getJobParams(), module.getClass().getSimpleName() );
+		if( LocalWorkerPool.isEnabled( module ) )
+		{
+			LocalWorkerPool.submit( module );
+		}
+		else
+		{
+			new Job().runJob( module.getJobParams(), module.getClass().getSimpleName() );
+		}
 	}
 
 	/**
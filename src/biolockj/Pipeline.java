@@ -12,8 +12,8 @@
 package biolockj;
 
 import java.io.File;
-import java.util.Collection;
-import java.util.List;
+import java.util.*;
+import java.util.concurrent.*;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.filefilter.IOFileFilter;
 import org.apache.commons.io.filefilter.WildcardFileFilter;
@@ -21,6 +21,7 @@ import biolockj.module.BioModule;
 import biolockj.module.JavaModule;
 import biolockj.module.ScriptModule;
 import biolockj.module.report.Email;
+import biolockj.module.report.JsonReport;
 import biolockj.module.report.r.R_Module;
 import biolockj.util.*;
 
@@ -28,6 +29,8 @@ import biolockj.util.*;
  * This class initializes and executes each {@link biolockj.module.BioModule} configured for execution.<br>
  * {@link biolockj.module.BioModule}s that generate scripts are monitored until all scripts are complete, before moving
  * on to the next module.<br>
+ * If {@link biolockj.Config}.{@value biolockj.Constants#PIPELINE_MAX_CONCURRENT_MODULES} &gt; 1, report modules that
+ * only read the output of earlier modules may run at the same time, see {@link #executeModules()}.
  */
 public class Pipeline
 {
@@ -42,14 +45,19 @@ public class Pipeline
 	 */
 	public static void executeModule( final BioModule module ) throws Exception
 	{
-		ModuleUtil.markStarted( module );
-		refreshOutputMetadata( ModuleUtil.getPreviousModule( module ) );
-		refreshRCacheIfNeeded( module );
-		module.executeTask();
-
 		final boolean isJava = module instanceof JavaModule;
 		final boolean isScript = module instanceof ScriptModule;
-		final boolean runScripts = isScript && ( (ScriptModule) module ).getMainScript() != null;
+		final boolean runScripts;
+
+		// Steps that read or update shared metadata & Config run one module at a time
+		synchronized( moduleLock )
+		{
+			ModuleUtil.markStarted( module );
+			refreshOutputMetadata( ModuleUtil.getPreviousModule( module ) );
+			refreshRCacheIfNeeded( module );
+			module.executeTask();
+			runScripts = isScript && ( (ScriptModule) module ).getMainScript() != null;
+		}
 
 		if( runScripts )
 		{
@@ -61,15 +69,19 @@ public class Pipeline
 			pollAndSpin( (ScriptModule) module );
 		}
 
-		refreshOutputMetadata( module );
-		module.cleanUp();
-
-		if( !isJava || !runScripts )
+		synchronized( moduleLock )
 		{
-			SummaryUtil.reportSuccess( module );
-		}
+			refreshOutputMetadata( module );
+			module.cleanUp();
+			MetaUtil.writeUpdates();
 
-		ModuleUtil.markComplete( module );
+			if( !isJava || !runScripts )
+			{
+				SummaryUtil.reportSuccess( module );
+			}
+
+			ModuleUtil.markComplete( module );
+		}
 	}
 
 	/**
@@ -120,6 +132,7 @@ public class Pipeline
 		module.runModule();
 		refreshOutputMetadata( module ); // keep in case cleanup does something with metadata
 		module.cleanUp();
+		MetaUtil.writeUpdates();
 	}
 
 	/**
@@ -218,6 +231,9 @@ public class Pipeline
 	 * modules have an empty file {@value Constants#BLJ_STARTED} in the module directory.<br>
 	 * Complete modules have an empty file {@value Constants#BLJ_COMPLETE} in the module directory.<br>
 	 * {@link biolockj.module.BioModule}s are run in the order listed in the {@link biolockj.Config} file.<br>
+	 * If {@link biolockj.Config}.{@value biolockj.Constants#PIPELINE_MAX_CONCURRENT_MODULES} &gt; 1, modules are
+	 * instead run as soon as the modules they depend on are complete (see {@link #getModuleDependencies(List)}), with
+	 * up to this many modules running at a time.<br>
 	 * <p>
 	 * Execution steps:
 	 * <ol>
@@ -231,6 +247,13 @@ public class Pipeline
 	 */
 	protected static void executeModules() throws Exception
 	{
+		final Integer maxModules = Config.getPositiveInteger( null, Constants.PIPELINE_MAX_CONCURRENT_MODULES );
+		if( maxModules != null && maxModules > 1 )
+		{
+			executeModulesConcurrently( maxModules );
+			return;
+		}
+
 		for( final BioModule module: Pipeline.getModules() )
 		{
 			if( !ModuleUtil.isComplete( module ) )
@@ -269,6 +292,79 @@ public class Pipeline
 		return null;
 	}
 
+	/**
+	 * Build the module dependency graph used to run modules concurrently. Only report modules that read the output of
+	 * earlier modules without changing shared pipeline state (R modules and {@link biolockj.module.report.JsonReport})
+	 * can run concurrently. Such a module depends on:
+	 * <ol>
+	 * <li>The last previous module that cannot run concurrently
+	 * <li>The nearest previous module of each class in {@link biolockj.module.BioModule#getPreRequisiteModules()}
+	 * <li>For Java modules, the nearest previous module that passes
+	 * {@link biolockj.module.BioModule#isValidInputModule(BioModule)}
+	 * <li>For R modules, the first R module, which builds the R cache
+	 * </ol>
+	 * Every other module depends on all previous modules, so it runs just as it would in the serial pipeline.
+	 *
+	 * @param modules Ordered pipeline modules
+	 * @return Map with key=module, value=set of modules it depends on
+	 * @throws Exception if errors occur
+	 */
+	protected static Map<BioModule, Set<BioModule>> getModuleDependencies( final List<BioModule> modules )
+			throws Exception
+	{
+		final Map<BioModule, Set<BioModule>> graph = new HashMap<>();
+		final List<BioModule> prevModules = new ArrayList<>();
+		BioModule lastSerialModule = null;
+		for( final BioModule module: modules )
+		{
+			final Set<BioModule> deps = new HashSet<>();
+			if( !canRunConcurrently( module ) )
+			{
+				deps.addAll( prevModules );
+				lastSerialModule = module;
+			}
+			else
+			{
+				if( lastSerialModule != null )
+				{
+					deps.add( lastSerialModule );
+				}
+
+				for( final String preReq: module.getPreRequisiteModules() )
+				{
+					final BioModule preReqModule = findPreviousModule( prevModules, preReq );
+					if( preReqModule != null )
+					{
+						deps.add( preReqModule );
+					}
+				}
+
+				for( int i = prevModules.size() - 1; i >= 0; i-- )
+				{
+					final BioModule prevModule = prevModules.get( i );
+					if( module instanceof JavaModule && module.isValidInputModule( prevModule ) )
+					{
+						deps.add( prevModule );
+						break;
+					}
+				}
+
+				for( final BioModule prevModule: prevModules )
+				{
+					if( module instanceof R_Module && ModuleUtil.isFirstRModule( prevModule ) )
+					{
+						deps.add( prevModule );
+					}
+				}
+			}
+
+			graph.put( module, deps );
+			prevModules.add( module );
+		}
+
+		return graph;
+	}
+
 	/**
 	 * Initialization occurs by calling {@link biolockj.module.BioModule} methods on configured modules<br>
 	 * <ol>
@@ -316,7 +412,8 @@ public class Pipeline
 	 * begins.<br>
 	 * If successful, an empty file with {@value Constants#SCRIPT_SUCCESS} appended to the script name is created.<br>
 	 * Upon failure, an empty file with {@value Constants#SCRIPT_FAILURES} appended to the script name is created.<br>
-	 * Script status is polled each minute, determining status by counting indicator files.<br>
+	 * Script status is polled each time an indicator file changes (and at least every {@value #POLL_TIME} seconds),
+	 * determining status by counting indicator files.<br>
 	 * {@link biolockj.Log} outputs the # of started, failed, and successful scripts (if any change).<br>
 	 * {@link biolockj.Log} repeats the previous message every 10 minutes if no status change is detected.<br>
 	 *
@@ -363,14 +460,13 @@ public class Pipeline
 				+ "; Failed=" + numFailed + "; Running=" + ( numStarted - numSuccess - numFailed ) + "; Queued="
 				+ ( numScripts - numStarted );
 
-		if( !statusMsg.equals( logMsg ) )
-		{
-			statusMsg = logMsg;
-			pollCount = 0;
-			Log.info( Pipeline.class, logMsg );
-		}
-		else if( ++pollCount % 10 == 0 )
+		final String key = mainScript.getAbsolutePath();
+		final Long statusMsgTime = statusMsgTimes.get( key );
+		if( !logMsg.equals( statusMsgs.get( key ) ) || statusMsgTime == null
+				|| System.currentTimeMillis() - statusMsgTime >= STATUS_REPEAT_MILLIS )
 		{
+			statusMsgs.put( key, logMsg );
+			statusMsgTimes.put( key, System.currentTimeMillis() );
 			Log.info( Pipeline.class, logMsg );
 		}
 
@@ -421,6 +517,107 @@ public class Pipeline
 		}
 	}
 
+	private static boolean canRunConcurrently( final BioModule module )
+	{
+		return module instanceof R_Module || module instanceof JsonReport;
+	}
+
+	/**
+	 * Run incomplete modules in a pool of maxModules threads, starting each module once all of the modules it depends
+	 * on are complete. If a module fails, no more modules are started and the first failure is thrown once the running
+	 * modules finish.
+	 */
+	private static void executeModulesConcurrently( final int maxModules ) throws Exception
+	{
+		final Map<BioModule, Set<BioModule>> graph = getModuleDependencies( getModules() );
+		final List<BioModule> pending = new ArrayList<>();
+		for( final BioModule module: getModules() )
+		{
+			if( !ModuleUtil.isComplete( module ) )
+			{
+				pending.add( module );
+			}
+			else
+			{
+				Log.debug( Pipeline.class,
+						"Skipping succssfully completed BioLockJ Module: " + module.getClass().getName() );
+			}
+		}
+
+		Log.info( Pipeline.class, "Run up to " + maxModules + " modules at a time" );
+		final ExecutorService pool = Executors.newFixedThreadPool( maxModules );
+		final CompletionService<BioModule> completed = new ExecutorCompletionService<>( pool );
+		final Map<BioModule, Exception> failures = new ConcurrentHashMap<>();
+		Exception failure = null;
+		int numRunning = 0;
+		try
+		{
+			while( true )
+			{
+				final Iterator<BioModule> it = pending.iterator();
+				while( failure == null && numRunning < maxModules && it.hasNext() )
+				{
+					final BioModule module = it.next();
+					if( isReady( module, graph ) )
+					{
+						it.remove();
+						numRunning++;
+						completed.submit( () -> {
+							try
+							{
+								executeModule( module );
+							}
+							catch( final Exception ex )
+							{
+								failures.put( module, ex );
+							}
+							return module;
+						} );
+					}
+				}
+
+				if( numRunning == 0 )
+				{
+					break;
+				}
+
+				final BioModule module = completed.take().get();
+				numRunning--;
+				if( failure == null && failures.containsKey( module ) )
+				{
+					failure = failures.get( module );
+					Log.error( Pipeline.class, module.getClass().getName() + " failed --> Wait for running modules" );
+				}
+			}
+		}
+		finally
+		{
+			pool.shutdown();
+		}
+
+		if( failure != null )
+		{
+			throw failure;
+		}
+
+		if( !pending.isEmpty() )
+		{
+			throw new Exception( "Unable to run modules with incomplete dependencies: " + pending );
+		}
+	}
+
+	private static BioModule findPreviousModule( final List<BioModule> prevModules, final String className )
+	{
+		for( int i = prevModules.size() - 1; i >= 0; i-- )
+		{
+			if( prevModules.get( i ).getClass().getName().equals( className ) )
+			{
+				return prevModules.get( i );
+			}
+		}
+		return null;
+	}
+
 	private static void info( final String msg ) throws Exception
 	{
 		if( !RuntimeParamUtil.isDirectMode() )
@@ -429,10 +626,23 @@ public class Pipeline
 		}
 	}
 
+	private static boolean isReady( final BioModule module, final Map<BioModule, Set<BioModule>> graph )
+	{
+		for( final BioModule dep: graph.get( module ) )
+		{
+			if( !ModuleUtil.isComplete( dep ) )
+			{
+				return false;
+			}
+		}
+		return true;
+	}
+
 	private static void logScriptTimeOutMsg( final ScriptModule module ) throws Exception
 	{
 		final String prompt = "------> ";
-		Log.info( Pipeline.class, prompt + "Java program wakes every 60 seconds to check execution progress" );
+		Log.info( Pipeline.class, prompt + "Java program checks execution progress when indicator files change, "
+				+ "and at least every " + POLL_TIME + " seconds" );
 		Log.info( Pipeline.class, prompt + "Status determined by existance of indicator files in "
 				+ module.getScriptDir().getAbsolutePath() );
 		Log.info( Pipeline.class, prompt + "Indicator files end with: \"_" + Constants.SCRIPT_STARTED + "\", \"_"
@@ -457,7 +667,10 @@ public class Pipeline
 	}
 
 	/**
-	 * This method calls poll to check status of scripts and then sleeps for {@value #POLL_TIME} seconds.
+	 * This method calls poll to check status of scripts and then waits for a change in the script directory, detected
+	 * by a {@link biolockj.util.DirectoryWatcher}. File systems such as NFS may not report changes, so the wait is
+	 * limited by a timer that starts at {@value #MIN_POLL_MILLIS} milliseconds and doubles each time no change is
+	 * detected, up to {@value #POLL_TIME} seconds.
 	 *
 	 * @param module ScriptModule
 	 * @throws Exception if errors occur
@@ -465,27 +678,36 @@ public class Pipeline
 	private static void pollAndSpin( final ScriptModule module ) throws Exception
 	{
 		logScriptTimeOutMsg( module );
-		int numMinutes = 0;
-		boolean finished = false;
-		while( !finished )
+		final long startTime = System.currentTimeMillis();
+		long waitMillis = MIN_POLL_MILLIS;
+		final DirectoryWatcher watcher = new DirectoryWatcher( module.getScriptDir() );
+		try
 		{
-			finished = poll( module );
-			if( !finished )
+			while( !poll( module ) )
 			{
-				if( module.getTimeout() != null && module.getTimeout() > 0 && numMinutes++ >= module.getTimeout() )
+				final long numMinutes = ( System.currentTimeMillis() - startTime ) / 60000;
+				if( module.getTimeout() != null && module.getTimeout() > 0 && numMinutes >= module.getTimeout() )
 				{
 					throw new Exception(
 							module.getMainScript().getAbsolutePath() + " timed out after " + numMinutes + " minutes." );
 				}
 
-				Thread.sleep( POLL_TIME * 1000 );
+				waitMillis = watcher.await( waitMillis ) ? MIN_POLL_MILLIS
+						: Math.min( waitMillis * 2, POLL_TIME * 1000L );
 			}
 		}
+		finally
+		{
+			watcher.close();
+		}
 	}
 
 	private static List<BioModule> bioModules = null;
 	private static Exception pipelineException = null;
+	private static final long MIN_POLL_MILLIS = 500L;
 	private static final int POLL_TIME = 60;
-	private static int pollCount = 0;
-	private static String statusMsg = "";
+	private static final long STATUS_REPEAT_MILLIS = 10 * 60 * 1000L;
+	private static final Object moduleLock = new Object();
+	private static final Map<String, String> statusMsgs = new ConcurrentHashMap<>();
+	private static final Map<String, Long> statusMsgTimes = new ConcurrentHashMap<>();
 }
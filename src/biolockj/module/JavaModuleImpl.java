@@ -16,6 +16,7 @@ import java.io.FileWriter;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.*;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.filefilter.HiddenFileFilter;
 import biolockj.*;
@@ -202,6 +203,82 @@ public abstract class JavaModuleImpl extends ScriptModuleImpl implements JavaMod
 		}
 	}
 
+	/**
+	 * Run the task on each file using a pool of {@link biolockj.Config}.{@value #SCRIPT_NUM_THREADS} threads (capped
+	 * at the number of files). Results are returned in the same order as the input files so modules can merge them on
+	 * the calling thread. If any task fails, the remaining tasks are cancelled and the 1st failure is thrown.
+	 *
+	 * @param files Input files
+	 * @param task Task to run on each file
+	 * @param <T> Per-file result type
+	 * @return List of per-file results
+	 * @throws Exception if any task fails
+	 */
+	protected <T> List<T> processFiles( final Collection<File> files, final FileTask<T> task ) throws Exception
+	{
+		final List<T> results = new ArrayList<>();
+		final int numThreads = Math.min( Config.requirePositiveInteger( this, SCRIPT_NUM_THREADS ), files.size() );
+		if( numThreads < 2 )
+		{
+			for( final File file: files )
+			{
+				results.add( task.process( file ) );
+			}
+			return results;
+		}
+
+		Log.info( getClass(), "Process " + files.size() + " files with " + numThreads + " threads" );
+		final ExecutorService pool = Executors.newFixedThreadPool( numThreads );
+		try
+		{
+			final List<Future<T>> futures = new ArrayList<>();
+			for( final File file: files )
+			{
+				futures.add( pool.submit( () -> task.process( file ) ) );
+			}
+
+			for( final Future<T> future: futures )
+			{
+				try
+				{
+					results.add( future.get() );
+				}
+				catch( final ExecutionException ex )
+				{
+					if( ex.getCause() instanceof Exception )
+					{
+						throw (Exception) ex.getCause();
+					}
+					throw ex;
+				}
+			}
+		}
+		finally
+		{
+			pool.shutdownNow();
+		}
+
+		return results;
+	}
+
+	/**
+	 * Task run by {@link JavaModuleImpl#processFiles(Collection, FileTask)} for a single file. Tasks run concurrently,
+	 * so any module state they update must be thread-safe.
+	 *
+	 * @param <T> Per-file result type
+	 */
+	protected interface FileTask<T>
+	{
+		/**
+		 * Process one file.
+		 *
+		 * @param file Input file
+		 * @return Per-file result
+		 * @throws Exception if errors occur
+		 */
+		public T process( File file ) throws Exception;
+	}
+
 	/**
 	 * Docker environment variable holding the Docker program switches: {@value #BLJ_OPTIONS}
 	 */
@@ -107,6 +107,14 @@ public interface ScriptModule extends BioModule
 	 */
 	public static final String SCRIPT_DEFAULT_HEADER = "script.defaultHeader";
 
+	/**
+	 * {@link biolockj.Config} Integer property: {@value #SCRIPT_LOCAL_CORES}<br>
+	 * Number of cores available to run worker scripts when not on a cluster or in Docker. If defined, worker scripts
+	 * run in parallel, each reserving {@value #SCRIPT_NUM_THREADS} cores. If undefined, the MAIN script runs the worker
+	 * scripts one at a time.
+	 */
+	public static final String SCRIPT_LOCAL_CORES = "script.localCores";
+
 	/**
 	 * {@link biolockj.Config} Integer property: {@value #SCRIPT_NUM_THREADS}<br>
 	 * Used to reserve cluster resources and passed to any external application call that accepts a numThreads
@@ -32,6 +32,7 @@ import biolockj.util.*;
  * The output multiplexed file will have barcodes removed from the sequences since they no longer serve any purpose.<br>
  * Sequences with no matching barcode, or without a matching paired header (if paired), are output to a "NO_MATCH" file
  * in the module temp directory.<br>
+ * Each multiplexed file is read once, and each read is written directly to the output file of its sample.<br>
  * Paired reads are accepted in 2 multiplexed formats:
  * <ol>
  * <li>Forward and reverse reads can be partitioned into 2 separate files identified by identified by: input.suffixFw
@@ -177,10 +178,10 @@ public class Demultiplexer extends JavaModuleImpl implements JavaModule, SeqModu
 	/**
 	 * Module execution summary:<br>
 	 * <ol>
-	 * <li>Execute {@link #breakUpFiles()} to split the multiplex file into smaller size for processing
-	 * <li>Execute {@link #getValidHeaders()} to obtain list of valid headers matched to sample ID with the metadata
-	 * file and also verifies matching forward and reverse read headers if demuliplexing paired reads.
-	 * <li>Execute {@link #demultiplex(Map)} to demultiplex the data into a separate file (or pair of files) for each
+	 * <li>If barcodes are used but {@link biolockj.Config}.{@value biolockj.util.DemuxUtil#DEMUX_STRATEGY} or
+	 * {@link biolockj.Config}.{@value biolockj.util.DemuxUtil#BARCODE_USE_REV_COMP} is undefined, execute
+	 * {@link #detectBarcodes()} to set them based on the barcodes found in the first multiplexed file
+	 * <li>Execute {@link #demultiplex()} to demultiplex the data into a separate file (or pair of files) for each
 	 * sample
 	 * </ol>
 	 * <p>
@@ -191,341 +192,91 @@ public class Demultiplexer extends JavaModuleImpl implements JavaModule, SeqModu
 	@Override
 	public void runModule() throws Exception
 	{
-		breakUpFiles();
-		demultiplex( getValidHeaders() );
-	}
-
-	/**
-	 * Some multiplexed files can be very large. This method breaks each input file into smaller files, each
-	 * {@value #NUM_LINES_TEMP_FILE} lines in size to avoid memory issues while processing.
-	 *
-	 * @throws Exception if unexpected errors occur at runtime
-	 */
-	protected void breakUpFiles() throws Exception
-	{
-		final boolean useBarcodes = DemuxUtil.hasValidBarcodes();
-		File testFile = null;
-		for( final File file: getInputFiles() )
+		useBarcodes = DemuxUtil.hasValidBarcodes();
+		if( useBarcodes && ( !strategyConfigSet() || !useRevCompConfigSet() ) )
 		{
-			Log.info( getClass(),
-					"Break multiplexed file [ " + file.getAbsolutePath() + " ] into files with a max #lines = [ "
-							+ NUM_LINES_TEMP_FILE + " ] to avoid memory issues while processing." );
-			Log.info( getClass(), "Found #lines/read = " + SeqUtil.getNumLinesPerRead() );
-			long numReads = 0L;
-			long headerFwBarcodes = 0L;
-			long headerRvBarcodes = 0L;
-			long seqFwBarcodes = 0L;
-			long seqRvBarcodes = 0L;
-			final BufferedReader reader = BioLockJUtil.getFileReader( file );
-			try
-			{
-				final List<String> seqLines = new ArrayList<>();
-				final List<String> read = new ArrayList<>();
-				int i = 0;
-				for( String line = reader.readLine(); line != null; line = reader.readLine() )
-				{
-					read.add( line );
-
-					if( useBarcodes )
-					{
-						if( testFile == null && read.size() == 1 )
-						{
-							numReads++;
-							final int testBarcodes = hasBarcode( line );
-							if( testBarcodes == 1 )
-							{
-								headerFwBarcodes++;
-							}
-							else if( testBarcodes == 2 )
-							{
-								headerRvBarcodes++;
-							}
-						}
-
-						if( testFile == null && read.size() == 2 )
-						{
-							final int testBarcodes = hasBarcode( line );
-							if( testBarcodes == 1 )
-							{
-								seqFwBarcodes++;
-							}
-							else if( testBarcodes == 2 )
-							{
-								seqRvBarcodes++;
-							}
-						}
-					}
-
-					if( read.size() == SeqUtil.getNumLinesPerRead() )
-					{
-						seqLines.addAll( read );
-						read.clear();
-					}
-
-					if( seqLines.size() >= NUM_LINES_TEMP_FILE )
-					{
-						writeSample( seqLines, getSplitFileName( file.getName(), i++ ) );
-						seqLines.clear();
-					}
-				}
-
-				if( !seqLines.isEmpty() )
-				{
-					writeSample( seqLines, getSplitFileName( file.getName(), i++ ) );
-				}
-			}
-			finally
-			{
-				if( reader != null )
-				{
-					reader.close();
-				}
-			}
-
-			Log.info( getClass(), "Done splitting file: " + file.getAbsolutePath() );
-
-			if( testFile == null && numReads > 0 )
-			{
-				testFile = file;
-				buildSummaryAndSetConfig( testFile, numReads, headerFwBarcodes, seqFwBarcodes, headerRvBarcodes,
-						seqRvBarcodes );
-			}
+			detectBarcodes();
 		}
-
-		Log.info( getClass(), "Number of temp files created: " + getSplitDir().listFiles().length );
+		demultiplex();
 	}
 
 	/**
-	 * Demultiplex the file into separate small temp files, with {@value #NUM_LINES_TEMP_FILE} lines each for
-	 * processing. If paired reads, generate separate forward and reverse files for each sample output file named by
-	 * sample ID.
+	 * Demultiplex the input files in a single pass. Each read is written as soon as it is read to an open writer for
+	 * its sample output file, named by sample ID, or to the "NO_MATCH" file if no sample ID is found. At most
+	 * {@value #MAX_OPEN_WRITERS} writers are kept open. The least recently used writer is closed to open another, and
+	 * is reopened in append mode if more reads are found for its file.<br>
+	 * Paired reads are matched by sequence header with a hash lookup, so only reads whose mate has not been read yet
+	 * are held in memory. Forward and reverse read files are read in step, so if both list reads in the same order
+	 * very few reads are held at any time.
 	 *
-	 * @param validHeaders Set of valid headers
-	 * @throws Exception if error occurs reading the multiplexed file
+	 * @throws Exception if error occurs reading the multiplexed files
 	 */
-	protected void demultiplex( final Map<String, Set<String>> validHeaders ) throws Exception
+	protected void demultiplex() throws Exception
 	{
-		printCounts( validHeaders );
-		// int count = 0;
-		// int loopCount = 0;
-		boolean doPrint = true;
-
-		for( final File file: getSplitDir().listFiles() )
-		{
-			Log.info( getClass(), "Demultiplexing file " + file.getAbsolutePath() );
-			final List<String> seqLines = new ArrayList<>();
-			final Map<String, List<String>> output = new HashMap<>();
-			final BufferedReader reader = BioLockJUtil.getFileReader( file );
-			try
-			{
-				for( String line = reader.readLine(); line != null; line = reader.readLine() )
-				{
-					seqLines.add( line );
-					if( seqLines.size() == SeqUtil.getNumLinesPerRead() )
-					{
-						final String header = SeqUtil.getHeader( seqLines.get( 0 ) );
-						final String sampleId = getSampleId( header, validHeaders );
-
-						String otu = null;
-
-						if( sampleId == null )
-						{
-							otu = getNoMatchFileName( file.getName(), seqLines.get( 0 ) );
-						}
-						else
-						{
-							otu = getOutputFileName( sampleId, file.getName(), seqLines.get( 0 ) );
-							incrementCounts( file.getName(), seqLines.get( 0 ) );
-
-							if( doPrint )
-							{
-								doPrint = false;
-								Log.info( getClass(), "EXAMPLE Demultiplexed Sample ID: " + sampleId );
-								Log.info( getClass(), "EXAMPLE Demultiplexed sequence file: " + otu );
-							}
-						}
-
-						if( !output.keySet().contains( otu ) )
-						{
-							output.put( otu, new ArrayList<>() );
-						}
-
-						output.get( otu ).addAll( seqLines );
-						seqLines.clear();
-					}
-				}
-
-				for( final String outName: output.keySet() )
-				{
-					Log.debug( getClass(), outName + " adding # lines = " + output.get( outName ).size() );
-					writeSample( output.get( outName ), outName );
-				}
-			}
-			finally
-			{
-				if( reader != null )
-				{
-					reader.close();
-				}
-			}
-		}
-	}
-
-	/**
-	 * Get valid forward read headers that belong to reads with a valid barcode or sample identifier.
-	 *
-	 * @return Map sampleID to list of valid headers
-	 * @throws Exception if error occur
-	 */
-	protected Map<String, Set<String>> getValidFwHeaders() throws Exception
-	{
-		final Map<String, Set<String>> validHeaders = new HashMap<>();
-		final boolean isPaird = Config.getBoolean( this, Constants.INTERNAL_PAIRED_READS );
-		final boolean isCombined = isPaird && getInputFiles().size() == 1;
-
-		Log.info( getClass(), "Get FW Headers from temp files "
-				+ ( isCombined ? "created from multiplexed file with both forward and reverse reads": "" ) );
-
-		// check forward reads only
-		for( final File file: getSplitDir().listFiles() )
+		final boolean isPaired = Config.getBoolean( this, Constants.INTERNAL_PAIRED_READS );
+		sampleIdFinder = DemuxUtil.getSampleIdFinder();
+		try
 		{
-			// skip files ending with _R2 suffix since contain only reverse reads
-			if( !isCombined && !SeqUtil.isForwardRead( file.getName() ) )
+			if( isPaired && getInputFiles().size() > 1 )
 			{
-				continue;
-			}
-
-			Log.info( getClass(), "Processing split file for FW headers: " + file.getAbsolutePath() );
-
-			final List<String> seqLines = new ArrayList<>();
-			final BufferedReader reader = BioLockJUtil.getFileReader( file );
-			try
-			{
-				for( String line = reader.readLine(); line != null; line = reader.readLine() )
+				final Map<File, File> pairedReads = new TreeMap<>( SeqUtil.getPairedReads( getInputFiles() ) );
+				for( final File fwRead: pairedReads.keySet() )
 				{
-					seqLines.add( line );
-					if( seqLines.size() == SeqUtil.getNumLinesPerRead() )
-					{
-						// if not combined must be a file of only forward reads due to continue above
-						if( !isCombined || seqLines.get( 0 ).contains( SeqUtil.ILLUMINA_FW_READ_IND ) )
-						{
-							numTotalFwReads++;
-							final String sampleId = DemuxUtil.getSampleId( seqLines );
-							if( sampleId != null )
-							{
-								if( validHeaders.get( sampleId ) == null )
-								{
-									validHeaders.put( sampleId, new HashSet<>() );
-								}
-								final String header = SeqUtil.getHeader( seqLines.get( 0 ) );
-								validHeaders.get( sampleId ).add( header );
-							}
-						}
-
-						seqLines.clear();
-					}
+					demuxPairedFiles( fwRead, pairedReads.get( fwRead ) );
 				}
 			}
-			finally
+			else
 			{
-				if( reader != null )
+				for( final File file: getInputFiles() )
 				{
-					reader.close();
+					demuxFile( file, isPaired );
 				}
 			}
 
+			writeUnmatchedReads();
 		}
-
-		String msg = " # valid reads = ";
-		if( Config.requireBoolean( this, Constants.INTERNAL_PAIRED_READS ) )
+		finally
 		{
-			msg = " # valid fw read headers = ";
+			closeWriters();
 		}
 
-		for( final String sampleId: validHeaders.keySet() )
-		{
-			Log.debug( getClass(), sampleId + msg + validHeaders.get( sampleId ).size() );
-		}
-
-		return validHeaders;
+		Log.info( getClass(), "Total fw reads = " + numTotalFwReads );
+		Log.info( getClass(), "Total rv reads = " + numTotalRvReads );
+		Log.info( getClass(), "Number valid reads = " + ( numValidFwReads + numValidRvReads ) );
 	}
 
 	/**
-	 * This method obtains all valid headers for the forward reads, and returns only headers that also have a matching
-	 * reverse read
+	 * Count the reads in the first multiplexed file with a barcode (or reverse compliment barcode) in the header or
+	 * sequence, to set {@link biolockj.Config}.{@value biolockj.util.DemuxUtil#DEMUX_STRATEGY} and
+	 * {@link biolockj.Config}.{@value biolockj.util.DemuxUtil#BARCODE_USE_REV_COMP} if undefined. This file is read
+	 * before demultiplexing only because these properties determine how sample IDs are found.
 	 *
-	 * @return Map of valid headers for each sample ID
-	 * @throws Exception if unable to obtain headers
+	 * @throws Exception if unexpected errors occur at runtime
 	 */
-	protected Map<String, Set<String>> getValidHeaders() throws Exception
+	protected void detectBarcodes() throws Exception
 	{
-		final Map<String, Set<String>> validFwHeaders = getValidFwHeaders();
-		if( !Config.getBoolean( this, Constants.INTERNAL_PAIRED_READS ) )
-		{
-			Log.info( getClass(), "Demultiplexing unpaired reads...# " + validFwHeaders.size() );
-			return validFwHeaders;
-		}
-
-		final Map<String, Set<String>> validHeaders = new HashMap<>();
-		final boolean isCombined = getInputFiles().size() == 1;
-
-		// check reverse reads only
-		for( final File file: getSplitDir().listFiles() )
+		for( final File file: getInputFiles() )
 		{
-			// skip files ending with _R1 suffix since contain only forward reads
-			if( !isCombined && SeqUtil.isForwardRead( file.getName() ) )
-			{
-				continue;
-			}
-
-			Log.info( getClass(), "Processing split file for RV headers: " + file.getAbsolutePath() );
-
-			final List<String> seqLines = new ArrayList<>();
-			final BufferedReader reader = BioLockJUtil.getFileReader( file );
+			Log.info( getClass(), "Count barcodes in multiplexed file: " + file.getAbsolutePath() );
+			final long[] counts = new long[ NUM_BARCODE_COUNTS ];
+			final SeqRecordReader reader = new SeqRecordReader( file );
 			try
 			{
-				for( String line = reader.readLine(); line != null; line = reader.readLine() )
+				while( reader.next() )
 				{
-					seqLines.add( line );
-					if( seqLines.size() == SeqUtil.getNumLinesPerRead() )
-					{
-						// if not combined must be a file of only reverse reads due to continue above
-						if( !isForwardRead( file.getName(), seqLines.get( 0 ) ) )
-						{
-							final String header = SeqUtil.getHeader( seqLines.get( 0 ) );
-							numTotalRvReads++;
-
-							for( final String sampleId: validFwHeaders.keySet() )
-							{
-								if( validFwHeaders.get( sampleId ).contains( header ) )
-								{
-									if( validHeaders.get( sampleId ) == null )
-									{
-										validHeaders.put( sampleId, new HashSet<>() );
-									}
-
-									validHeaders.get( sampleId ).add( header );
-									break;
-								}
-							}
-						}
-
-						seqLines.clear();
-					}
+					countBarcodes( reader, counts );
 				}
 			}
 			finally
 			{
 				reader.close();
 			}
-		}
 
-		for( final String sampleId: validHeaders.keySet() )
-		{
-			Log.info( getClass(), sampleId + " # valid headers = " + validHeaders.get( sampleId ).size() );
+			if( checkBarcodeCounts( file, counts ) )
+			{
+				return;
+			}
 		}
-
-		return validHeaders;
 	}
 
 	/**
@@ -661,142 +412,288 @@ public class Demultiplexer extends JavaModuleImpl implements JavaModule, SeqModu
 		}
 	}
 
-	private Double getBarcodeCutoff() throws Exception
+	private boolean checkBarcodeCounts( final File file, final long[] counts ) throws Exception
 	{
-		final Double val = Config.getPositiveDoubleVal( this, DemuxUtil.BARCODE_CUTOFF );
-		if( val != null && val > 1 )
+		if( counts == null || counts[ NUM_READS ] == 0 )
 		{
-			throw new ConfigFormatException( DemuxUtil.BARCODE_CUTOFF, "Must be between 0.0 - 1.0" );
+			return false;
 		}
-		return val;
+
+		barcodesCounted = true;
+		buildSummaryAndSetConfig( file, counts[ NUM_READS ], counts[ HEADER_FW_BARCODES ], counts[ SEQ_FW_BARCODES ],
+				counts[ HEADER_RV_BARCODES ], counts[ SEQ_RV_BARCODES ] );
+		return true;
 	}
 
-	private String getFileSuffix( final String name, final String header ) throws Exception
+	private void closeWriters() throws Exception
 	{
-		String suffix = "";
-		if( Config.getBoolean( this, Constants.INTERNAL_PAIRED_READS ) )
+		for( final SeqRecordWriter writer: openWriters.values() )
 		{
-			suffix = isForwardRead( name, header ) ? Config.requireString( this, Constants.INPUT_FORWARD_READ_SUFFIX )
-					: Config.requireString( this, Constants.INPUT_REVERSE_READ_SUFFIX );
+			writer.close();
 		}
-
-		return suffix + "." + ( SeqUtil.isFastA() ? Constants.FASTA: Constants.FASTQ );
+		openWriters.clear();
+		fwFiles.clear();
+		rvFiles.clear();
 	}
 
-	private String getNoMatchFileName( final String fileName, final String header ) throws Exception
+	private byte[][] copyRead( final SeqRecordReader reader )
 	{
-		return getTempDir().getAbsolutePath() + File.separator + "NO_MATCH" + getFileSuffix( fileName, header );
-
+		final byte[][] read = new byte[ reader.getLinesPerRead() ][];
+		for( int i = 0; i < read.length; i++ )
+		{
+			final SeqRecordReader.Slice line = reader.getLine( i );
+			read[ i ] = Arrays.copyOfRange( line.getBuffer(), line.getOffset(), line.getOffset() + line.length() );
+		}
+		return read;
 	}
 
-	private String getOutputFileName( final String sampleId, final String fileName, final String header )
-			throws Exception
+	private void countBarcodes( final SeqRecordReader reader, final long[] counts ) throws Exception
 	{
-		return getOutputDir().getAbsolutePath() + File.separator + sampleId + getFileSuffix( fileName, header );
-	}
+		counts[ NUM_READS ]++;
+		int testBarcodes = hasBarcode( reader.getHeader() );
+		if( testBarcodes == 1 )
+		{
+			counts[ HEADER_FW_BARCODES ]++;
+		}
+		else if( testBarcodes == 2 )
+		{
+			counts[ HEADER_RV_BARCODES ]++;
+		}
 
-	private String getSampleId( final String header, final Map<String, Set<String>> validHeaders ) throws Exception
-	{
-		for( final String sampleId: validHeaders.keySet() )
+		testBarcodes = hasBarcode( reader.getSeq() );
+		if( testBarcodes == 1 )
 		{
-			if( validHeaders.get( sampleId ).contains( header ) )
-			{
-				return sampleId;
-			}
+			counts[ SEQ_FW_BARCODES ]++;
+		}
+		else if( testBarcodes == 2 )
+		{
+			counts[ SEQ_RV_BARCODES ]++;
 		}
-		return null;
 	}
 
-	private File getSplitDir() throws Exception
+	private void demuxFile( final File file, final boolean isPaired ) throws Exception
 	{
-		return ModuleUtil.requireSubDir( this, getTempDir().getName() + File.separator + "split" );
-	}
+		Log.info( getClass(), "Demultiplexing file " + file.getAbsolutePath() );
+		final long[] counts = newBarcodeCounts();
+		final SeqRecordReader reader = new SeqRecordReader( file );
+		try
+		{
+			while( reader.next() )
+			{
+				if( counts != null )
+				{
+					countBarcodes( reader, counts );
+				}
 
-	private String getSplitFileName( final String fileName, final int i ) throws Exception
-	{
-		String suffix = "";
-		if( getInputFiles().size() > 1 )
+				if( isPaired )
+				{
+					demuxPairedRead( reader, isForwardRead( file, reader.getHeader().toString() ) );
+				}
+				else
+				{
+					numTotalFwReads++;
+					final String sampleId = getSampleId( reader );
+					if( sampleId != null )
+					{
+						numValidFwReads++;
+					}
+					getWriter( sampleId, true ).writeRecord( reader );
+				}
+			}
+		}
+		finally
 		{
-			suffix = SeqUtil.getReadDirectionSuffix( fileName );
+			reader.close();
 		}
 
-		suffix += "." + ( SeqUtil.isFastA() ? Constants.FASTA: Constants.FASTQ );
-
-		return getSplitDir().getAbsolutePath() + File.separator + "split_" + i + suffix;
+		checkBarcodeCounts( file, counts );
 	}
 
-	private int hasBarcode( final String line ) throws Exception
+	private void demuxPairedFiles( final File fwRead, final File rvRead ) throws Exception
 	{
-		for( final String code: MetaUtil.getFieldValues( Config.requireString( this, MetaUtil.META_BARCODE_COLUMN ),
-				true ) )
+		Log.info( getClass(),
+				"Demultiplexing paired files " + fwRead.getAbsolutePath() + " & " + rvRead.getAbsolutePath() );
+		final long[] counts = newBarcodeCounts();
+		final SeqRecordReader fwReader = new SeqRecordReader( fwRead );
+		SeqRecordReader rvReader = null;
+		try
 		{
-			if( line.contains( code ) )
+			rvReader = new SeqRecordReader( rvRead );
+			boolean hasFw = true;
+			boolean hasRv = true;
+			while( hasFw || hasRv )
 			{
-				// Log.info( getClass(), "Found barcode[ " + code + "] in line: " + line );
-				return 1;
+				hasFw = hasFw && fwReader.next();
+				if( hasFw )
+				{
+					if( counts != null )
+					{
+						countBarcodes( fwReader, counts );
+					}
+					demuxPairedRead( fwReader, true );
+				}
+
+				hasRv = hasRv && rvReader.next();
+				if( hasRv )
+				{
+					demuxPairedRead( rvReader, false );
+				}
 			}
-			else if( line.contains( SeqUtil.reverseComplement( code ) ) )
+		}
+		finally
+		{
+			fwReader.close();
+			if( rvReader != null )
 			{
-				// Log.info( getClass(), "Found REVERSE COMPLIMENT of barcode[ " + SeqUtil.reverseComplement( code ) +
-				// "] in line: " + line );
-				return 2;
+				rvReader.close();
 			}
 		}
-		return 0;
+
+		checkBarcodeCounts( fwRead, counts );
 	}
 
-	private void incrementCounts( final String name, final String header ) throws Exception
+	private void demuxPairedRead( final SeqRecordReader reader, final boolean isFw ) throws Exception
 	{
-		if( isForwardRead( name, header ) )
+		if( isFw )
 		{
-			numValidFwReads++;
+			numTotalFwReads++;
 		}
 		else
 		{
+			numTotalRvReads++;
+		}
+
+		final String header = SeqUtil.getHeader( reader.getHeader().toString() );
+		final UnmatchedRead mate = ( isFw ? unmatchedRvReads: unmatchedFwReads ).remove( header );
+		if( mate == null )
+		{
+			( isFw ? unmatchedFwReads: unmatchedRvReads ).put( header,
+					new UnmatchedRead( isFw ? getSampleId( reader ): null, copyRead( reader ) ) );
+			return;
+		}
+
+		final String sampleId = isFw ? getSampleId( reader ): mate.sampleId;
+		if( sampleId != null )
+		{
+			numValidFwReads++;
 			numValidRvReads++;
 		}
+
+		getWriter( sampleId, isFw ).writeRecord( reader );
+		writeRead( getWriter( sampleId, !isFw ), mate.lines );
 	}
 
-	private boolean isForwardRead( final String name, final String header ) throws Exception
+	private Double getBarcodeCutoff() throws Exception
 	{
-		if( !Config.getBoolean( this, Constants.INTERNAL_PAIRED_READS ) )
+		final Double val = Config.getPositiveDoubleVal( this, DemuxUtil.BARCODE_CUTOFF );
+		if( val != null && val > 1 )
 		{
-			return true;
+			throw new ConfigFormatException( DemuxUtil.BARCODE_CUTOFF, "Must be between 0.0 - 1.0" );
 		}
+		return val;
+	}
 
-		final boolean isCombined = getInputFiles().size() == 1;
-		if( isCombined )
+	private String getFileSuffix( final boolean isFw ) throws Exception
+	{
+		String suffix = "";
+		if( Config.getBoolean( this, Constants.INTERNAL_PAIRED_READS ) )
 		{
-			if( header.contains( SeqUtil.ILLUMINA_FW_READ_IND ) )
+			suffix = isFw ? Config.requireString( this, Constants.INPUT_FORWARD_READ_SUFFIX )
+					: Config.requireString( this, Constants.INPUT_REVERSE_READ_SUFFIX );
+		}
+
+		return suffix + "." + ( SeqUtil.isFastA() ? Constants.FASTA: Constants.FASTQ );
+	}
+
+	private String getSampleId( final SeqRecordReader reader ) throws Exception
+	{
+		return sampleIdFinder.getSampleId( reader.getHeader(), reader.getSeq() );
+	}
+
+	/**
+	 * Get the open writer for the sample output file, or for the "NO_MATCH" file if sampleId is null. If
+	 * {@value #MAX_OPEN_WRITERS} writers are open, the least recently used writer is closed first. A file is created
+	 * the first time its writer is opened, and appended to if reopened.
+	 */
+	private SeqRecordWriter getWriter( final String sampleId, final boolean isFw ) throws Exception
+	{
+		final Map<String, File> files = isFw ? fwFiles: rvFiles;
+		File file = files.get( sampleId );
+		final boolean append = file != null;
+		if( file == null )
+		{
+			file = sampleId == null ? new File( getTempDir(), NO_MATCH + getFileSuffix( isFw ) )
+					: new File( getOutputDir(), sampleId + getFileSuffix( isFw ) );
+			files.put( sampleId, file );
+
+			if( sampleId != null && doPrint )
 			{
-				return true;
+				doPrint = false;
+				Log.info( getClass(), "EXAMPLE Demultiplexed Sample ID: " + sampleId );
+				Log.info( getClass(), "EXAMPLE Demultiplexed sequence file: " + file.getAbsolutePath() );
 			}
-			else if( header.contains( SeqUtil.ILLUMINA_RV_READ_IND ) )
+		}
+
+		SeqRecordWriter writer = openWriters.get( file );
+		if( writer == null )
+		{
+			if( openWriters.size() >= MAX_OPEN_WRITERS )
 			{
-				return false;
+				final Iterator<SeqRecordWriter> it = openWriters.values().iterator();
+				it.next().close();
+				it.remove();
 			}
-			else
+			writer = new SeqRecordWriter( file, append, WRITER_BUFFER_SIZE );
+			openWriters.put( file, writer );
+		}
+		return writer;
+	}
+
+	/**
+	 * Check the line for a barcode with a {@link biolockj.util.BarcodeIndex} of the metadata barcodes and their reverse
+	 * compliments, built on first use.
+	 *
+	 * @return 1 if a barcode is found, 2 if only a reverse compliment barcode is found, otherwise 0
+	 */
+	private int hasBarcode( final CharSequence line ) throws Exception
+	{
+		if( barcodeIndex == null )
+		{
+			final Map<String, String> barcodes = new HashMap<>();
+			for( final String code: MetaUtil
+					.getFieldValues( Config.requireString( this, MetaUtil.META_BARCODE_COLUMN ), true ) )
 			{
-				throw new Exception(
-						"Sequence header in " + name + " does not indicate forward[" + SeqUtil.ILLUMINA_FW_READ_IND
-								+ "] or reverse[" + SeqUtil.ILLUMINA_RV_READ_IND + "] read for header = " + header );
+				barcodes.put( code, code );
 			}
+			barcodeIndex = new BarcodeIndex( barcodes, true, DemuxUtil.allowBarcodeMismatch() );
 		}
 
-		return SeqUtil.isForwardRead( name );
+		final BarcodeIndex.Match match = barcodeIndex.find( line );
+		return match == null ? 0: match.isRevComp() ? 2: 1;
 	}
 
-	private void printCounts( final Map<String, Set<String>> validHeaders )
+	private boolean isForwardRead( final File file, final String header ) throws Exception
 	{
-		long size = 0L;
-		for( final String sampleId: validHeaders.keySet() )
+		if( header.contains( SeqUtil.ILLUMINA_FW_READ_IND ) )
+		{
+			return true;
+		}
+		else if( header.contains( SeqUtil.ILLUMINA_RV_READ_IND ) )
 		{
-			size += validHeaders.get( sampleId ).size();
+			return false;
 		}
 
-		Log.info( getClass(), "Total fw reads = " + numTotalFwReads );
-		Log.info( getClass(), "Total rv reads = " + numTotalRvReads );
-		Log.info( getClass(), "Number valid reads = " + size );
+		throw new Exception( "Sequence header in " + file.getName() + " does not indicate forward["
+				+ SeqUtil.ILLUMINA_FW_READ_IND + "] or reverse[" + SeqUtil.ILLUMINA_RV_READ_IND + "] read for header = "
+				+ header );
+	}
+
+	/**
+	 * Get a new barcode count array if barcode counts are needed for the summary and not yet counted.
+	 */
+	private long[] newBarcodeCounts()
+	{
+		return useBarcodes && !barcodesCounted ? new long[ NUM_BARCODE_COUNTS ]: null;
 	}
 
 	private boolean strategyConfigSet() throws Exception
@@ -828,30 +725,74 @@ public class Demultiplexer extends JavaModuleImpl implements JavaModule, SeqModu
 		return seqBarcodes > headerBarcodes;
 	}
 
-	private void writeSample( final List<String> lines, final String fileName ) throws Exception
+	private void writeRead( final SeqRecordWriter writer, final byte[][] lines ) throws Exception
+	{
+		for( final byte[] line: lines )
+		{
+			writer.writeLine( line, 0, line.length );
+		}
+	}
+
+	/**
+	 * Output paired reads without a mate to the "NO_MATCH" files.
+	 */
+	private void writeUnmatchedReads() throws Exception
+	{
+		for( final UnmatchedRead read: unmatchedFwReads.values() )
+		{
+			writeRead( getWriter( null, true ), read.lines );
+		}
+		for( final UnmatchedRead read: unmatchedRvReads.values() )
+		{
+			writeRead( getWriter( null, false ), read.lines );
+		}
+
+		if( !unmatchedFwReads.isEmpty() || !unmatchedRvReads.isEmpty() )
+		{
+			Log.info( getClass(), "Paired reads without a mate: fw = " + unmatchedFwReads.size() + ", rv = "
+					+ unmatchedRvReads.size() );
+		}
+
+		unmatchedFwReads.clear();
+		unmatchedRvReads.clear();
+	}
+
+	/**
+	 * Paired read held in memory until its mate is read.
+	 */
+	private static final class UnmatchedRead
 	{
-		final File outFile = new File( fileName );
-		final boolean exists = outFile.exists();
-		final BufferedWriter writer = new BufferedWriter( new FileWriter( outFile, exists ) );
-		for( final String line: lines )
+		private UnmatchedRead( final String sampleId, final byte[][] lines )
 		{
-			writer.write( line + Constants.RETURN );
+			this.sampleId = sampleId;
+			this.lines = lines;
 		}
-		writer.close();
+
+		private final byte[][] lines;
+		private final String sampleId;
 	}
 
+	private BarcodeIndex barcodeIndex = null;
+	private boolean barcodesCounted = false;
+	private boolean doPrint = true;
+	private final Map<String, File> fwFiles = new HashMap<>();
 	private long numTotalFwReads = 0L;
 	private long numTotalRvReads = 0L;
-
 	private long numValidFwReads = 0L;
 	private long numValidRvReads = 0L;
-
+	private final Map<File, SeqRecordWriter> openWriters = new LinkedHashMap<>( 16, 0.75f, true );
+	private final Map<String, File> rvFiles = new HashMap<>();
+	private DemuxUtil.SampleIdFinder sampleIdFinder = null;
 	private String summary = "";
+	private final Map<String, UnmatchedRead> unmatchedFwReads = new HashMap<>();
+	private final Map<String, UnmatchedRead> unmatchedRvReads = new HashMap<>();
+	private boolean useBarcodes = false;
 
 	/**
-	 * Module splits multiplexed file into smaller files with this number of lines: {@value #NUM_LINES_TEMP_FILE}
+	 * Maximum number of sample output writers kept open at once, well below common open file limits:
+	 * {@value #MAX_OPEN_WRITERS}
 	 */
-	protected static final int NUM_LINES_TEMP_FILE = 2000000;
+	protected static final int MAX_OPEN_WRITERS = 256;
 
 	/**
 	 * Multiplexed files created by BioLockJ may add sample ID to the sequence header if no barcode is provided.<br>
@@ -860,4 +801,18 @@ public class Demultiplexer extends JavaModuleImpl implements JavaModule, SeqModu
 	 */
 	protected static final String SAMPLE_ID_SUFFIX_TRIM_DEFAULT = "_";
 
+	/**
+	 * Sample output writer buffer size, kept small since up to {@value #MAX_OPEN_WRITERS} writers are open at once:
+	 * {@value #WRITER_BUFFER_SIZE}
+	 */
+	protected static final int WRITER_BUFFER_SIZE = 64 * 1024;
+
+	private static final int HEADER_FW_BARCODES = 1;
+	private static final int HEADER_RV_BARCODES = 2;
+	private static final String NO_MATCH = "NO_MATCH";
+	private static final int NUM_BARCODE_COUNTS = 5;
+	private static final int NUM_READS = 0;
+	private static final int SEQ_FW_BARCODES = 3;
+	private static final int SEQ_RV_BARCODES = 4;
+
 }
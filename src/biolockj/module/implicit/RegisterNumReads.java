@@ -83,19 +83,24 @@ public class RegisterNumReads extends JavaModuleImpl implements JavaModule, SeqM
 			}
 		}
 
-		final List<File> files = getInputFiles();
-		Log.info( getClass(), "Counting # reads/sample for " + files.size() + " files" );
-
-		for( final File f: files )
+		final List<File> files = new ArrayList<>();
+		for( final File f: getInputFiles() )
 		{
 			if( SeqUtil.isForwardRead( f.getName() ) )
 			{
-				final long count = SeqUtil.countNumReads( f );
-				Log.debug( getClass(), "Num Reads for :[" + SeqUtil.getSampleId( f.getName() ) + "] = " + count );
-				readsPerSample.put( SeqUtil.getSampleId( f.getName() ), Long.toString( count ) );
+				files.add( f );
 			}
 		}
 
+		Log.info( getClass(), "Counting # reads/sample for " + files.size() + " files" );
+		final List<Long> counts = processFiles( files, f -> SeqUtil.countNumReads( f ) );
+		for( int i = 0; i < files.size(); i++ )
+		{
+			final String id = SeqUtil.getSampleId( files.get( i ).getName() );
+			Log.debug( getClass(), "Num Reads for :[" + id + "] = " + counts.get( i ) );
+			readsPerSample.put( id, Long.toString( counts.get( i ) ) );
+		}
+
 		MetaUtil.addColumn( getNumReadFieldName(), readsPerSample, getOutputDir(), true );
 	}
 
@@ -15,6 +15,7 @@ import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileWriter;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import biolockj.Config;
 import biolockj.Constants;
 import biolockj.Log;
@@ -31,64 +32,42 @@ import biolockj.util.*;
 public abstract class ParserModuleImpl extends JavaModuleImpl implements ParserModule
 {
 
+	/**
+	 * Add the node to its {@link biolockj.node.ParsedSample}, found by a hash lookup on the sample ID. This method is
+	 * thread-safe so parsers can call it while parsing input files in parallel via
+	 * {@link #processFiles(Collection, FileTask)}.
+	 */
 	@Override
 	public void addOtuNode( final OtuNode node ) throws Exception
 	{
 		if( isValid( node ) )
 		{
-			final ParsedSample sample = getParsedSample( node.getSampleId() );
+			ParsedSample sample = parsedSamples.get( node.getSampleId() );
 			if( sample == null )
 			{
-				addParsedSample( new ParsedSample( node ) );
+				sample = parsedSamples.putIfAbsent( node.getSampleId(), new ParsedSample( node ) );
+				if( sample == null )
+				{
+					return;
+				}
 			}
-			else
+
+			synchronized( sample )
 			{
 				sample.addNode( node );
 			}
 		}
 	}
 
+	/**
+	 * Build the OTU count file for each {@link biolockj.node.ParsedSample} still held in memory.
+	 */
 	@Override
 	public void buildOtuCountFiles() throws Exception
 	{
-		for( final ParsedSample sample: parsedSamples )
+		for( final String sampleId: new TreeSet<>( parsedSamples.keySet() ) )
 		{
-			final Map<String, Integer> otuCounts = sample.getOtuCounts();
-			if( otuCounts != null )
-			{
-				final File outputFile = OtuUtil.getOtuCountFile( getOutputDir(), sample.getSampleId(), null );
-				Log.info( getClass(), "Build output sample: " + sample.getSampleId() + " | #OTUs=" + otuCounts.size()
-						+ "--> " + outputFile.getAbsolutePath() );
-				final BufferedWriter writer = new BufferedWriter( new FileWriter( outputFile ) );
-				try
-				{
-					int numOtus = 0;
-					for( final String otu: otuCounts.keySet() )
-					{
-						uniqueOtus.add( otu );
-						final int count = otuCounts.get( otu );
-						writer.write( otu + TAB_DELIM + count + RETURN );
-						numOtus += count;
-					}
-
-					hitsPerSample.put( sample.getSampleId(), String.valueOf( numOtus ) );
-
-				}
-				finally
-				{
-					if( writer != null )
-					{
-						writer.close();
-					}
-				}
-
-			}
-			else
-			{
-				Log.error( getClass(),
-						"buildOtuCountFiles should not encounter empty sample files where sample.getOtuCounts() == null!  Found null for: "
-								+ sample.getSampleId() );
-			}
+			buildOtuCountFile( parsedSamples.remove( sampleId ) );
 		}
 	}
 
@@ -105,14 +84,7 @@ public abstract class ParserModuleImpl extends JavaModuleImpl implements ParserM
 	@Override
 	public ParsedSample getParsedSample( final String sampleId )
 	{
-		for( final ParsedSample sample: parsedSamples )
-		{
-			if( sample.getSampleId().equals( sampleId ) )
-			{
-				return sample;
-			}
-		}
-		return null;
+		return parsedSamples.get( sampleId );
 	}
 
 	/**
@@ -150,9 +122,9 @@ public abstract class ParserModuleImpl extends JavaModuleImpl implements ParserM
 		MemoryUtil.reportMemoryUsage( "About to parse samples" );
 		parseSamples();
 
-		Log.debug( getClass(), "# Samples parsed: " + parsedSamples.size() );
+		Log.debug( getClass(), "# Samples parsed: " + ( parsedSamples.size() + hitsPerSample.size() ) );
 
-		if( parsedSamples.isEmpty() )
+		if( parsedSamples.isEmpty() && hitsPerSample.isEmpty() )
 		{
 			throw new Exception( "Parser failed to produce output!" );
 		}
@@ -165,6 +137,73 @@ public abstract class ParserModuleImpl extends JavaModuleImpl implements ParserM
 		}
 	}
 
+	/**
+	 * Write the OTU count file for the sample and record its number of hits.
+	 *
+	 * @param sample ParsedSample
+	 * @throws Exception if errors occur writing the file
+	 */
+	protected void buildOtuCountFile( final ParsedSample sample ) throws Exception
+	{
+		final Map<String, Integer> otuCounts = sample.getOtuCounts();
+		if( otuCounts != null )
+		{
+			final File outputFile = OtuUtil.getOtuCountFile( getOutputDir(), sample.getSampleId(), null );
+			Log.info( getClass(), "Build output sample: " + sample.getSampleId() + " | #OTUs=" + otuCounts.size()
+					+ "--> " + outputFile.getAbsolutePath() );
+			final BufferedWriter writer = new BufferedWriter( new FileWriter( outputFile ) );
+			try
+			{
+				int numOtus = 0;
+				for( final String otu: otuCounts.keySet() )
+				{
+					uniqueOtus.add( otu );
+					final int count = otuCounts.get( otu );
+					writer.write( otu + TAB_DELIM + count + RETURN );
+					numOtus += count;
+				}
+
+				hitsPerSample.put( sample.getSampleId(), String.valueOf( numOtus ) );
+
+			}
+			finally
+			{
+				if( writer != null )
+				{
+					writer.close();
+				}
+			}
+
+		}
+		else
+		{
+			Log.error( getClass(),
+					"buildOtuCountFiles should not encounter empty sample files where sample.getOtuCounts() == null!  Found null for: "
+							+ sample.getSampleId() );
+		}
+	}
+
+	/**
+	 * Parsers call this method once all input for the sample has been parsed. If
+	 * {@link biolockj.Config}.{@value #STREAM_SAMPLES}={@value biolockj.Constants#TRUE}, the OTU count file is built
+	 * immediately and the {@link biolockj.node.ParsedSample} is released, otherwise it is held in memory until
+	 * {@link #buildOtuCountFiles()} is called.
+	 *
+	 * @param sampleId Sample ID
+	 * @throws Exception if errors occur writing the file
+	 */
+	protected void sampleParsed( final String sampleId ) throws Exception
+	{
+		if( Config.getBoolean( this, STREAM_SAMPLES ) )
+		{
+			final ParsedSample sample = parsedSamples.remove( sampleId );
+			if( sample != null )
+			{
+				buildOtuCountFile( sample );
+			}
+		}
+	}
+
 	/**
 	 * Some {@link biolockj.module.classifier.ClassifierModule}s can include taxonomy level identifiers without an OTU
 	 * name in the sample report files. This method verifies the node exists, has a valid sample ID, and that no empty
@@ -202,19 +241,6 @@ public abstract class ParserModuleImpl extends JavaModuleImpl implements ParserM
 		}
 	}
 
-	private void addParsedSample( final ParsedSample newSample ) throws Exception
-	{
-		for( final ParsedSample sample: parsedSamples )
-		{
-			if( sample.getSampleId().equals( newSample.getSampleId() ) )
-			{
-				throw new Exception( "Attempt to add duplicate sample! " + sample.getSampleId() );
-			}
-		}
-
-		parsedSamples.add( newSample );
-	}
-
 	private void freeMemory() throws Exception
 	{
 		hitsPerSample = null;
@@ -271,16 +297,23 @@ public abstract class ParserModuleImpl extends JavaModuleImpl implements ParserM
 		}
 	}
 
-	private Map<String, String> hitsPerSample = new HashMap<>();
-	private TreeSet<ParsedSample> parsedSamples = new TreeSet<>();
+	private Map<String, String> hitsPerSample = new ConcurrentHashMap<>();
+	private Map<String, ParsedSample> parsedSamples = new ConcurrentHashMap<>();
 	private Set<String> sampleIds = new HashSet<>();
-	private Set<String> uniqueOtus = new HashSet<>();
+	private Set<String> uniqueOtus = ConcurrentHashMap.newKeySet();
 
 	/**
 	 * Metadata column name for column that holds number of OTU hits after any {@link biolockj.module.implicit.parser}
 	 * module executes: {@value #NUM_OTUS}
 	 */
 	protected static final String NUM_OTUS = "OTU_COUNT";
+
+	/**
+	 * {@link biolockj.Config} Boolean property {@value #STREAM_SAMPLES} if enabled, parsers that read one input file
+	 * per sample write each OTU count file as soon as the sample is parsed, so only samples in progress are held in
+	 * memory.
+	 */
+	protected static final String STREAM_SAMPLES = "parser.streamSamples";
 	private static final Set<String> depricatedOtuCountFields = new HashSet<>();;
 	private static String otuCountField = NUM_OTUS;
 
@@ -14,6 +14,7 @@ package biolockj.module.implicit.parser.r16s;
 import java.io.BufferedReader;
 import java.io.File;
 import biolockj.Config;
+import biolockj.ConfigSnapshot;
 import biolockj.Constants;
 import biolockj.Log;
 import biolockj.module.implicit.parser.ParserModule;
@@ -47,15 +48,18 @@ public class RdpParser extends ParserModuleImpl implements ParserModule
 	@Override
 	public void parseSamples() throws Exception
 	{
-		for( final File file: getInputFiles() )
+		config = new ConfigSnapshot.Builder( this ).addRequiredPositiveInteger( Constants.RDP_THRESHOLD_SCORE ).build();
+		final int nodeThresholdScore = Config.requirePositiveInteger( null, Constants.RDP_THRESHOLD_SCORE );
+		processFiles( getInputFiles(), file ->
 		{
 			MemoryUtil.reportMemoryUsage( "Parse " + file.getAbsolutePath() );
+			final String id = file.getName().replace( Constants.PROCESSED, "" );
 			final BufferedReader reader = BioLockJUtil.getFileReader( file );
 			try
 			{
 				for( String line = reader.readLine(); line != null; line = reader.readLine() )
 				{
-					addOtuNode( new RdpNode( file.getName().replace( Constants.PROCESSED, "" ), line ) );
+					addOtuNode( new RdpNode( id, line, nodeThresholdScore ) );
 				}
 			}
 			finally
@@ -65,7 +69,10 @@ public class RdpParser extends ParserModuleImpl implements ParserModule
 					reader.close();
 				}
 			}
-		}
+
+			sampleParsed( id );
+			return null;
+		} );
 	}
 
 	/**
@@ -80,7 +87,7 @@ public class RdpParser extends ParserModuleImpl implements ParserModule
 	{
 		try
 		{
-			if( ( (RdpNode) node ).getScore() >= Config.requirePositiveInteger( this, Constants.RDP_THRESHOLD_SCORE ) )
+			if( ( (RdpNode) node ).getScore() >= config.getInteger( Constants.RDP_THRESHOLD_SCORE ) )
 			{
 				return super.isValid( node );
 			}
@@ -101,4 +108,5 @@ public class RdpParser extends ParserModuleImpl implements ParserModule
 	 * produce module summary! " + ex.getMessage(), ex ); } return super.getSummary(); }
 	 */
 
+	private ConfigSnapshot config = null;
 }
@@ -44,16 +44,17 @@ public class Kraken2Parser extends ParserModuleImpl implements ParserModule
 	@Override
 	public void parseSamples() throws Exception
 	{
-		for( final File file: getInputFiles() )
+		processFiles( getInputFiles(), file ->
 		{
 			MemoryUtil.reportMemoryUsage( "Parse " + file.getAbsolutePath() );
+			final String id = file.getName().replace( Constants.PROCESSED, "" );
 			final BufferedReader reader = BioLockJUtil.getFileReader( file );
 			try
 			{
 				for( String line = reader.readLine(); line != null; line = reader.readLine() )
 				{
 					// Log.debug( getClass(), " LINE = " + line );
-					addOtuNode( new Kraken2Node( file.getName().replace( Constants.PROCESSED, "" ), line ) );
+					addOtuNode( new Kraken2Node( id, line ) );
 				}
 			}
 			finally
@@ -64,6 +65,8 @@ public class Kraken2Parser extends ParserModuleImpl implements ParserModule
 				}
 			}
 
-		}
+			sampleParsed( id );
+			return null;
+		} );
 	}
 }
@@ -47,15 +47,16 @@ public class KrakenParser extends ParserModuleImpl implements ParserModule
 	public void parseSamples() throws Exception
 	{
 
-		for( final File file: getInputFiles() )
+		processFiles( getInputFiles(), file ->
 		{
 			MemoryUtil.reportMemoryUsage( "Parse " + file.getAbsolutePath() );
+			final String id = file.getName().replace( Constants.PROCESSED, "" );
 			final BufferedReader reader = BioLockJUtil.getFileReader( file );
 			try
 			{
 				for( String line = reader.readLine(); line != null; line = reader.readLine() )
 				{
-					addOtuNode( new KrakenNode( file.getName().replace( Constants.PROCESSED, "" ), line ) );
+					addOtuNode( new KrakenNode( id, line ) );
 				}
 			}
 			finally
@@ -65,6 +66,9 @@ public class KrakenParser extends ParserModuleImpl implements ParserModule
 					reader.close();
 				}
 			}
-		}
+
+			sampleParsed( id );
+			return null;
+		} );
 	}
 }
@@ -44,9 +44,10 @@ public class Metaphlan2Parser extends ParserModuleImpl implements ParserModule
 	@Override
 	public void parseSamples() throws Exception
 	{
-		for( final File file: getInputFiles() )
+		processFiles( getInputFiles(), file ->
 		{
 			MemoryUtil.reportMemoryUsage( "Parse " + file.getAbsolutePath() );
+			final String id = file.getName().replace( Constants.PROCESSED, "" );
 			final BufferedReader reader = BioLockJUtil.getFileReader( file );
 			try
 			{
@@ -54,7 +55,7 @@ public class Metaphlan2Parser extends ParserModuleImpl implements ParserModule
 				{
 					if( !line.startsWith( "#" ) )
 					{
-						addOtuNode( new MetaphlanNode( file.getName().replace( Constants.PROCESSED, "" ), line ) );
+						addOtuNode( new MetaphlanNode( id, line ) );
 					}
 				}
 			}
@@ -65,6 +66,9 @@ public class Metaphlan2Parser extends ParserModuleImpl implements ParserModule
 					reader.close();
 				}
 			}
-		}
+
+			sampleParsed( id );
+			return null;
+		} );
 	}
 }
@@ -145,6 +145,7 @@ public class RemoveScarcePathwayCounts extends Humann2CountModule implements Jav
 		final List<List<String>> output = new ArrayList<>();
 
 		List<String> pathways = null;
+		boolean[] isScarce = null;
 
 		final List<String> validPathways = new ArrayList<>();
 		int totalPathwayCount = 0;
@@ -155,10 +156,12 @@ public class RemoveScarcePathwayCounts extends Humann2CountModule implements Jav
 			line.add( id );
 			if( pathways == null )
 			{
+				isScarce = new boolean[ record.size() ];
 				for( int i = 1; i < record.size(); i++ )
 				{
 					final String pathway = record.get( i );
-					if( !scarcePathways.contains( pathway ) )
+					isScarce[ i ] = scarcePathways.contains( pathway );
+					if( !isScarce[ i ] )
 					{
 						line.add( pathway );
 						validPathways.add( pathway );
@@ -174,7 +177,7 @@ public class RemoveScarcePathwayCounts extends Humann2CountModule implements Jav
 			for( int i = 1; i < record.size(); i++ )
 			{
 				final String pathway = pathways.get( i );
-				if( !scarcePathways.contains( pathway ) )
+				if( !isScarce[ i ] )
 				{
 					final Double count = Double.valueOf( record.get( i ) );
 					line.add( count.toString() );
@@ -290,38 +293,31 @@ public class RemoveScarcePathwayCounts extends Humann2CountModule implements Jav
 	private Set<String> getScarcePathways( final List<List<String>> table ) throws Exception
 	{
 		final Set<String> scarcePathways = new HashSet<>();
-		final Map<String, Double> pathMap = new HashMap<>();
-		List<String> pathways = null;
-		for( final List<String> record: table )
+		if( table.isEmpty() )
 		{
-			if( pathMap.isEmpty() )
-			{
-				pathways = record;
-				for( int i = 1; i < record.size(); i++ )
-				{
-					pathMap.put( record.get( i ), 0.0 );
-				}
-
-				continue;
-			}
+			return scarcePathways;
+		}
 
+		// Count the samples with each pathway column in one pass, then look up each pathway once
+		final List<String> pathways = table.get( 0 );
+		final int[] numSamples = new int[ pathways.size() ];
+		for( final List<String> record: table.subList( 1, table.size() ) )
+		{
 			for( int i = 1; i < record.size(); i++ )
 			{
-				final Double count = Double.valueOf( record.get( i ) );
-				final String pathway = pathways.get( i );
-				if( count > 0 )
+				if( Double.parseDouble( record.get( i ) ) > 0 )
 				{
-					pathMap.put( pathway, pathMap.get( pathway ) + 1 );
+					numSamples[ i ]++;
 				}
 			}
 		}
 
-		for( final String pathway: pathways )
+		final int cutoff = getCutoff();
+		for( int i = 1; i < pathways.size(); i++ )
 		{
-			final Double count = pathMap.get( pathway );
-			if( count != null && count > 0 && count < getCutoff() )
+			if( numSamples[ i ] > 0 && numSamples[ i ] < cutoff )
 			{
-				scarcePathways.add( pathway );
+				scarcePathways.add( pathways.get( i ) );
 			}
 		}
 
@@ -11,12 +11,13 @@
  */
 package biolockj.module.report.otu;
 
+import java.io.Closeable;
 import java.io.File;
-import java.util.ArrayList;
-import java.util.Collection;
-import java.util.List;
+import java.util.*;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.filefilter.HiddenFileFilter;
+import biolockj.Config;
+import biolockj.Constants;
 import biolockj.Log;
 import biolockj.module.BioModule;
 import biolockj.module.JavaModule;
@@ -55,6 +56,35 @@ public abstract class OtuCountModule extends JavaModuleImpl implements JavaModul
 		return isOtuModule( module );
 	}
 
+	/**
+	 * Close the OTU counts returned by {@link #getSampleOtuCounts()}, deleting the spill file if one was used.
+	 * 
+	 * @param sampleOtuCounts Map(SampleID, TreeMap(OTU, count)) OTU counts by sample
+	 * @throws Exception if errors occur
+	 */
+	protected void closeSampleOtuCounts( final Map<String, TreeMap<String, Long>> sampleOtuCounts ) throws Exception
+	{
+		if( sampleOtuCounts instanceof Closeable )
+		{
+			( (Closeable) sampleOtuCounts ).close();
+		}
+	}
+
+	/**
+	 * Get the OTU counts of every input file. If
+	 * {@link biolockj.Config}.{@value biolockj.Constants#REPORT_SPILL_OTU_COUNTS}={@value biolockj.Constants#TRUE}, the
+	 * counts are kept in a spill file in the module temp directory instead of memory.
+	 * 
+	 * @return Map(SampleID, TreeMap(OTU, count)) OTU counts by sample, iterated in Sample ID order
+	 * @throws Exception if errors occur
+	 */
+	protected Map<String, TreeMap<String, Long>> getSampleOtuCounts() throws Exception
+	{
+		final File spillFile = Config.getBoolean( this, Constants.REPORT_SPILL_OTU_COUNTS )
+				? new File( getTempDir(), SPILL_FILE ): null;
+		return OtuUtil.getSampleOtuCounts( getInputFiles(), spillFile );
+	}
+
 	/**
 	 * Check the module to determine if it generated OTU count files.
 	 * 
@@ -84,4 +114,8 @@ public abstract class OtuCountModule extends JavaModuleImpl implements JavaModul
 		return false;
 	}
 
+	/**
+	 * Name of the OTU count spill file saved in the module temp directory: {@value #SPILL_FILE}
+	 */
+	protected static final String SPILL_FILE = "otuCounts.spill";
 }
@@ -15,7 +15,9 @@ import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileWriter;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import biolockj.Config;
+import biolockj.ConfigSnapshot;
 import biolockj.Constants;
 import biolockj.Log;
 import biolockj.exception.ConfigFormatException;
@@ -30,7 +32,9 @@ import biolockj.util.*;
  * discard all samples with less OTUs than the rarefication threshold. Each sample is rarefied the configured number of
  * times and the average OTU count is used for each sample. Note that even if a previous module removed singletons, this
  * approach can yield new singleton OTU assignments but these are less likely to be due to contaminant and thus, should
- * generally be allowed in the OTU table output.
+ * generally be allowed in the OTU table output.<br>
+ * Each iteration draws from the sample's OTU count vector directly, so memory and time do not depend on the number of
+ * reads in the sample. Samples are rarefied in parallel.
  * 
  * @blj.web_desc Rarefy OTU Counts
  */
@@ -48,6 +52,7 @@ public class RarefyOtuCounts extends OtuCountModule implements JavaModule
 		Config.requirePositiveInteger( this, NUM_ITERATIONS );
 		Config.getBoolean( this, REMOVE_LOW_ABUNDANT_SAMPLES );
 		Config.requirePositiveDouble( this, LOW_ABUNDANT_CUTOFF );
+		Config.getNonNegativeInteger( this, RANDOM_SEED );
 
 	}
 
@@ -89,25 +94,38 @@ public class RarefyOtuCounts extends OtuCountModule implements JavaModule
 	public void runModule() throws Exception
 	{
 		sampleIds.addAll( MetaUtil.getSampleIds() );
-		Log.info( getClass(), "Rarefied OTU counts will be stored in metadata column: " + getMetaColName() + "_"
+		config = new ConfigSnapshot.Builder( this ).addRequiredPositiveInteger( NUM_ITERATIONS )
+				.addNonNegativeInteger( RANDOM_SEED ).addRequiredPositiveDouble( QUANTILE )
+				.addBoolean( REMOVE_LOW_ABUNDANT_SAMPLES ).build();
+		final String metaColName = getMetaColName();
+		Log.info( getClass(), "Rarefied OTU counts will be stored in metadata column: " + metaColName + "_"
 				+ Constants.OTU_COUNT );
-		final TreeMap<String, TreeMap<String, Long>> sampleOtuCounts = OtuUtil.getSampleOtuCounts( getInputFiles() );
-		final Long quantileNum = getNumOtusForQuantile( sampleOtuCounts );
-
-		Log.info( getClass(), "Rarefy " + sampleOtuCounts.size() + " to " + quantileNum );
-		for( final String sampleId: sampleOtuCounts.keySet() )
+		final Map<String, TreeMap<String, Long>> sampleOtuCounts = getSampleOtuCounts();
+		try
 		{
-			Log.info( getClass(), "Rarefy " + sampleId );
-			final TreeMap<String, Long> data = rarefy( sampleId, sampleOtuCounts.get( sampleId ), quantileNum );
-			if( data != null )
+			final Long quantileNum = getNumOtusForQuantile( sampleOtuCounts );
+
+			Log.info( getClass(), "Rarefy " + sampleOtuCounts.size() + " to " + quantileNum );
+			processFiles( getInputFiles(), file ->
 			{
-				generateOtuput( OtuUtil.getOtuCountFile( getOutputDir(), sampleId, getMetaColName() ), data );
-			}
+				final String sampleId = OtuUtil.getSampleId( file );
+				Log.info( getClass(), "Rarefy " + sampleId );
+				final TreeMap<String, Long> data = rarefy( sampleId, sampleOtuCounts.get( sampleId ), quantileNum );
+				if( data != null )
+				{
+					generateOtuput( OtuUtil.getOtuCountFile( getOutputDir(), sampleId, metaColName ), data );
+				}
+				return null;
+			} );
+		}
+		finally
+		{
+			closeSampleOtuCounts( sampleOtuCounts );
 		}
 
 		if( Config.getBoolean( this, Constants.REPORT_NUM_HITS ) )
 		{
-			MetaUtil.addColumn( getMetaColName() + "_" + Constants.OTU_COUNT, hitsPerSample, getOutputDir(), true );
+			MetaUtil.addColumn( metaColName + "_" + Constants.OTU_COUNT, hitsPerSample, getOutputDir(), true );
 		}
 	}
 
@@ -137,32 +155,6 @@ public class RarefyOtuCounts extends OtuCountModule implements JavaModule
 		}
 	}
 
-	/**
-	 * Get OTU count data for the given sampleId.
-	 *
-	 * @param sampleId Sample ID
-	 * @param otuCounts All OTU counts
-	 * @return List of OTUs for the given sampleId
-	 * @throws Exception if errors occur
-	 */
-	protected List<String> getData( final String sampleId, final TreeMap<String, Long> otuCounts ) throws Exception
-	{
-		final String metaField = MetaUtil.getField( sampleId, ParserModuleImpl.getOtuCountField() );
-		final Long val = Long.valueOf( metaField );
-		final List<String> otus = new ArrayList<>( val.intValue() );
-		
-		for( final String otu: otuCounts.keySet() )
-		{
-			for( int i = 0; i < otuCounts.get( otu ); i++ )
-			{
-				otus.add( otu );
-			}
-			Collections.sort( otus );
-		}
-
-		return otus;
-	}
-
 	/**
 	 * Return a list of low abundant samples, as defined by {@value #LOW_ABUNDANT_CUTOFF}
 	 *
@@ -230,11 +222,11 @@ public class RarefyOtuCounts extends OtuCountModule implements JavaModule
 	/**
 	 * Get the quantile number of OTUs. If quantile = 0.5 the median value is returned.
 	 *
-	 * @param sampleOtuCounts TreeMap(SampleId, TreeMap(OTU, count)) OTU counts for every sample
+	 * @param sampleOtuCounts Map(SampleId, TreeMap(OTU, count)) OTU counts for every sample
 	 * @return quantile number of OTUs
 	 * @throws Exception if errors occur
 	 */
-	protected Long getNumOtusForQuantile( final TreeMap<String, TreeMap<String, Long>> sampleOtuCounts )
+	protected Long getNumOtusForQuantile( final Map<String, TreeMap<String, Long>> sampleOtuCounts )
 			throws Exception
 	{
 		final TreeMap<String, Long> countMap = new TreeMap<>();
@@ -247,27 +239,28 @@ public class RarefyOtuCounts extends OtuCountModule implements JavaModule
 		final List<Long> data = new ArrayList<>( countMap.values() );
 		Collections.sort( data );
 
-		final int index = new Double( Config.requirePositiveDouble( this, QUANTILE ) * countMap.size() ).intValue();
+		final int index = new Double( config.getDouble( QUANTILE ) * countMap.size() ).intValue();
 
 		return data.get( index );
 	}
 
 	/**
-	 * Select random OTUs based on the quantileNum from the list of OTUs in data.
+	 * Get the random number generator for the sample. If {@value #RANDOM_SEED} is defined, the generator is seeded
+	 * from the seed and sample ID so results are reproducible regardless of thread scheduling.
 	 *
-	 * @param data List( OTUs )
-	 * @param quantileNum Qunatile (range: 0.0 - 1.0)
-	 * @return List of randomly selected OTUs up to the given quantile
+	 * @param sampleId Sample ID
+	 * @return Random number generator
 	 * @throws Exception if errors occur
 	 */
-	protected List<String> getRandomQuantileOtus( List<String> data, final Long quantileNum ) throws Exception
+	protected Random getRandom( final String sampleId ) throws Exception
 	{
-		Collections.shuffle( data );
-		if( data.size() > quantileNum )
-		{
-			data = data.subList( 0, quantileNum.intValue() );
-		}
-		return data;
+		final Integer randomSeed = config.getInteger( RANDOM_SEED );
+		return randomSeed == null ? new Random(): new Random( 31L * randomSeed + sampleId.hashCode() );
+	}
+
+	private String getMetaColName() throws Exception
+	{
+		return "postRareQ" + new Double( Config.requirePositiveDouble( this, QUANTILE ) * 100 ).intValue();
 	}
 
 	/**
@@ -282,53 +275,94 @@ public class RarefyOtuCounts extends OtuCountModule implements JavaModule
 	protected TreeMap<String, Long> rarefy( final String sampleId, final TreeMap<String, Long> otuCounts,
 			final long quantileNum ) throws Exception
 	{
+		final String[] otus = otuCounts.keySet().toArray( new String[ otuCounts.size() ] );
+		final long[] counts = new long[ otus.length ];
+		long total = 0L;
+		for( int i = 0; i < otus.length; i++ )
+		{
+			counts[ i ] = otuCounts.get( otus[ i ] );
+			total += counts[ i ];
+		}
 
-		final TreeMap<String, Long> otuCount = new TreeMap<>();
-		final List<String> data = getData( sampleId, otuCounts );
-		if( Config.getBoolean( this, REMOVE_LOW_ABUNDANT_SAMPLES ) && data.size() < quantileNum )
+		if( config.getBoolean( REMOVE_LOW_ABUNDANT_SAMPLES ) && total < quantileNum )
 		{
 			Log.info( getClass(), "REMOVE LOW ABUNDANT sample: " + sampleId );
 			return null;
 		}
 
-		for( int i = 0; i < Config.requirePositiveInteger( this, NUM_ITERATIONS ); i++ )
+		final Random random = getRandom( sampleId );
+		final long[] sums = new long[ otus.length ];
+		final int numIterations = config.getInteger( NUM_ITERATIONS );
+		for( int i = 0; i < numIterations; i++ )
 		{
 			Log.debug( getClass(), sampleId + " iteration[ " + i + " ]" );
-			for( final String otu: getRandomQuantileOtus( data, quantileNum ) )
+			final long[] sample = subsample( counts, quantileNum, random );
+			for( int j = 0; j < sums.length; j++ )
 			{
-				if( otuCount.get( otu ) == null )
-				{
-					otuCount.put( otu, 0L );
-				}
-
-				otuCount.put( otu, otuCount.get( otu ) + 1 );
+				sums[ j ] += sample[ j ];
 			}
 		}
 
 		long totalSampleOtuCount = 0L;
 		final TreeMap<String, Long> meanCountValues = new TreeMap<>();
-		int i = 0;
-		for( final String otu: otuCount.keySet() )
+		for( int i = 0; i < otus.length; i++ )
 		{
-			final long avg = new Integer( Math.round( otuCount.get( otu ) / Config.requirePositiveInteger( this, NUM_ITERATIONS ) ) ).longValue();
+			final long avg = sums[ i ] / numIterations;
 			if( avg > 0 )
 			{
-				meanCountValues.put( otu, avg );
+				meanCountValues.put( otus[ i ], avg );
 				totalSampleOtuCount += avg;
 			}
-			Log.debug( getClass(), "Total Sample Otu Count[" + i++ + "] = " + totalSampleOtuCount );
+			Log.debug( getClass(), "Total Sample Otu Count[" + i + "] = " + totalSampleOtuCount );
 		}
 
 		hitsPerSample.put( sampleId, String.valueOf( totalSampleOtuCount ) );
 		return meanCountValues;
 	}
 
-	private String getMetaColName() throws Exception
+	/**
+	 * Select numToKeep reads without replacement from the OTU count vector (a multivariate hypergeometric draw). Read
+	 * positions are drawn in ascending order by {@link biolockj.util.SequentialSampler} and mapped to OTUs by walking
+	 * the cumulative counts, so no per-read data is built.
+	 *
+	 * @param counts OTU counts
+	 * @param numToKeep Number of reads to keep
+	 * @param random Random number generator
+	 * @return Subsampled OTU counts (same order as counts)
+	 * @throws Exception if errors occur
+	 */
+	protected static long[] subsample( final long[] counts, final long numToKeep, final Random random )
+			throws Exception
 	{
-		return "postRareQ" + new Double( Config.requirePositiveDouble( this, QUANTILE ) * 100 ).intValue();
+		long total = 0L;
+		for( final long count: counts )
+		{
+			total += count;
+		}
+
+		if( numToKeep >= total )
+		{
+			return counts.clone();
+		}
+
+		final long[] sample = new long[ counts.length ];
+		final SequentialSampler sampler = new SequentialSampler( total, numToKeep, random );
+		int otu = 0;
+		long otuEnd = counts[ 0 ];
+		for( long pos = sampler.next(); pos > -1; pos = sampler.next() )
+		{
+			while( pos >= otuEnd )
+			{
+				otuEnd += counts[ ++otu ];
+			}
+			sample[ otu ]++;
+		}
+
+		return sample;
 	}
 
-	private Map<String, String> hitsPerSample = new HashMap<>();
+	private ConfigSnapshot config = null;
+	private Map<String, String> hitsPerSample = new ConcurrentHashMap<>();
 	private final Set<String> sampleIds = new HashSet<>();
 
 	/**
@@ -351,6 +385,12 @@ public class RarefyOtuCounts extends OtuCountModule implements JavaModule
 	 */
 	protected static final String QUANTILE = "rarefyOtuCounts.quantile";
 
+	/**
+	 * {@link biolockj.Config} Non-negative Integer property {@value #RANDOM_SEED} seeds the random number generator so
+	 * rarefied counts can be reproduced. If undefined, each run uses a new random seed.
+	 */
+	protected static final String RANDOM_SEED = "rarefyOtuCounts.randomSeed";
+
 	/**
 	 * {@link biolockj.Config} Boolean property {@value #REMOVE_LOW_ABUNDANT_SAMPLES} if TRUE, all samples below the
 	 * quantile sample are removed.
@@ -74,9 +74,9 @@ public class RemoveLowOtuCounts extends OtuCountModule implements JavaModule
 	public void runModule() throws Exception
 	{
 		sampleIds.addAll( MetaUtil.getSampleIds() );
-		final TreeMap<String, TreeMap<String, Long>> sampleOtuCounts = OtuUtil.getSampleOtuCounts( getInputFiles() );
+		final CountMatrix otuMatrix = OtuUtil.getSampleOtuMatrix( getInputFiles() );
 
-		final TreeMap<String, TreeSet<String>> lowCountOtus = removeLowOtuCounts( sampleOtuCounts );
+		final TreeMap<String, TreeSet<String>> lowCountOtus = removeLowOtuCounts( otuMatrix );
 		logLowCountOtus( lowCountOtus );
 		if( Config.getBoolean( this, Constants.REPORT_NUM_HITS ) )
 		{
@@ -126,34 +126,32 @@ public class RemoveLowOtuCounts extends OtuCountModule implements JavaModule
 	/**
 	 * Remove OTUs below the {@link biolockj.Config}.{@value biolockj.Constants#REPORT_MIN_COUNT }
 	 *
-	 * @param sampleOtuCounts TreeMap(SampleId, TreeMap(OTU, count)) OTU counts for every sample
-	 * @return TreeMap(SampleId, TreeMap(OTU, count)) Updated sampleOtuCounts after removal of low counts.
+	 * @param otuMatrix CountMatrix of OTU counts for every sample
+	 * @return TreeMap(SampleId, TreeSet(OTU)) of low count OTUs removed from each sample
 	 * @throws Exception if errors occur
 	 */
-	protected TreeMap<String, TreeSet<String>> removeLowOtuCounts(
-			final TreeMap<String, TreeMap<String, Long>> sampleOtuCounts ) throws Exception
+	protected TreeMap<String, TreeSet<String>> removeLowOtuCounts( final CountMatrix otuMatrix ) throws Exception
 	{
 		final TreeMap<String, TreeSet<String>> lowCountOtus = new TreeMap<>();
-		Log.debug( getClass(), "Build low count files for total # files: " + sampleOtuCounts.size() );
-		for( final String sampleId: sampleOtuCounts.keySet() )
+		final int minCount = getMinCount();
+		Log.debug( getClass(), "Build low count files for total # files: " + otuMatrix.getNumRows() );
+		for( int row = 0; row < otuMatrix.getNumRows(); row++ )
 		{
+			final String sampleId = otuMatrix.getRowLabel( row );
 			final Set<String> badOtus = new TreeSet<>();
 			Log.debug( getClass(), "Check for low OTU counts in: " + sampleId );
 			long numOtus = 0;
-			final TreeMap<String, Long> otuCounts = sampleOtuCounts.get( sampleId );
-
-			final Set<String> validOtus = new TreeSet<>( otuCounts.keySet() );
 			long numOtuRemoved = 0;
-			for( final String otu: otuCounts.keySet() )
+			for( int i = otuMatrix.getRowStart( row ); i < otuMatrix.getRowEnd( row ); i++ )
 			{
-				final long count = otuCounts.get( otu );
-				if( count < getMinCount() )
+				final String otu = otuMatrix.getColLabel( otuMatrix.getEntryCol( i ) );
+				final long count = otuMatrix.getEntryCount( i );
+				if( count < minCount )
 				{
 					uniqueOtuRemoved.add( otu );
 					totalOtuRemoved += count;
 					badOtus.add( otu );
 					Log.debug( getClass(), sampleId + ": Remove Low OTU count: " + otu + "=" + count );
-					validOtus.remove( otu );
 					if( lowCountOtus.get( sampleId ) == null )
 					{
 						lowCountOtus.put( sampleId, new TreeSet<>() );
@@ -164,8 +162,6 @@ public class RemoveLowOtuCounts extends OtuCountModule implements JavaModule
 				else
 				{
 					numOtus += count;
-					// Log.debug( getClass(),
-					// sampleId + ": update OTU count to " + numOtus + " after adding: " + otu + "=" + count );
 				}
 			}
 
@@ -182,15 +178,19 @@ public class RemoveLowOtuCounts extends OtuCountModule implements JavaModule
 				{
 
 					Log.warn( getClass(), sampleId + ": Removed " + badOtus.size() + " low OTU counts (below "
-							+ getProp() + "=" + getMinCount() + ") --> " + badOtus );
+							+ getProp() + "=" + minCount + ") --> " + badOtus );
 
 					final File otuFile = OtuUtil.getOtuCountFile( getOutputDir(), sampleId, getMetaColName() );
 					final BufferedWriter writer = new BufferedWriter( new FileWriter( otuFile ) );
 					try
 					{
-						for( final String otu: validOtus )
+						for( int i = otuMatrix.getRowStart( row ); i < otuMatrix.getRowEnd( row ); i++ )
 						{
-							writer.write( otu + TAB_DELIM + otuCounts.get( otu ) + RETURN );
+							if( otuMatrix.getEntryCount( i ) >= minCount )
+							{
+								writer.write( otuMatrix.getColLabel( otuMatrix.getEntryCol( i ) ) + TAB_DELIM
+										+ otuMatrix.getEntryCount( i ) + RETURN );
+							}
 						}
 					}
 					finally
@@ -207,6 +207,9 @@ public class RemoveLowOtuCounts extends OtuCountModule implements JavaModule
 			}
 		}
 
+		OtuUtil.writeBinaryOtuFile( otuMatrix.filter( ( row, col, count ) -> count >= minCount ), getOutputDir(),
+				getMetaColName() );
+
 		return lowCountOtus;
 	}
 
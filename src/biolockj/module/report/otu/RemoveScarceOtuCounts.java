@@ -79,18 +79,25 @@ public class RemoveScarceOtuCounts extends OtuCountModule implements JavaModule
 	{
 		sampleIds.addAll( MetaUtil.getSampleIds() );
 		Log.info( getClass(), "Searching samples to remove OTUs found in less than " + getCutoff() + " samples." );
-		final TreeMap<String, TreeMap<String, Long>> sampleOtuCounts = OtuUtil.getSampleOtuCounts( getInputFiles() );
-
-		final TreeSet<String> uniqueOtus = OtuUtil.findUniqueOtus( sampleOtuCounts );
-		Log.info( getClass(),
-				"Searching " + uniqueOtus.size() + " unique OTUs in " + sampleOtuCounts.size()
-						+ " samples for OTUs found in less than the cutoff percentage [ " + getScarceCutoff() + " ] = "
-						+ getCutoff() + " samples." );
+		final Map<String, TreeMap<String, Long>> sampleOtuCounts = getSampleOtuCounts();
+		try
+		{
+			final TreeSet<String> uniqueOtus = OtuUtil.findUniqueOtus( sampleOtuCounts );
+			Log.info( getClass(),
+					"Searching " + uniqueOtus.size() + " unique OTUs in " + sampleOtuCounts.size()
+							+ " samples for OTUs found in less than the cutoff percentage [ " + getScarceCutoff()
+							+ " ] = " + getCutoff() + " samples." );
 
-		final TreeMap<String, TreeSet<String>> scarceTaxa = findScarceTaxa( sampleOtuCounts, uniqueOtus );
-		final TreeMap<String, TreeSet<String>> scarceOtus = findScarceOtus( sampleOtuCounts, uniqueOtus, scarceTaxa );
-		logScarceOtus( scarceOtus.keySet() );
-		removeScarceOtuCounts( getUpdatedOtuCounts( sampleOtuCounts, scarceOtus ) );
+			final TaxaDictionary dictionary = new TaxaDictionary( uniqueOtus );
+			final TreeMap<String, TreeSet<String>> scarceTaxa = findScarceTaxa( sampleOtuCounts, dictionary );
+			final TreeMap<String, TreeSet<String>> scarceOtus = findScarceOtus( dictionary, scarceTaxa );
+			logScarceOtus( scarceOtus.keySet() );
+			removeScarceOtuCounts( getUpdatedOtuCounts( sampleOtuCounts, scarceOtus ) );
+		}
+		finally
+		{
+			closeSampleOtuCounts( sampleOtuCounts );
+		}
 
 		if( Config.getBoolean( this, Constants.REPORT_NUM_HITS ) )
 		{
@@ -99,26 +106,36 @@ public class RemoveScarceOtuCounts extends OtuCountModule implements JavaModule
 	}
 
 	/**
-	 * Find the scarce OTUs that contain the key values in scarceTaxa.
+	 * Find the scarce OTUs with an ancestor taxa in scarceTaxa. Each OTU is mapped to its ancestors with the
+	 * {@link biolockj.util.TaxaDictionary}, so every OTU is checked once per level.
 	 *
-	 * @param sampleOtuCounts TreeMap(SampleId, TreeMap(OTU, count)) OTU counts for every sample
-	 * @param uniqueOtus TreeSet(OTU) contains all OTUs for all samples
+	 * @param dictionary TaxaDictionary of all OTUs for all samples
 	 * @param scarceTaxa TreeMap(taxa, TreeSet(SampleId)) contains scarce taxa and their associated samples
 	 * @return TreeMap(OTU, TreeSet(SampleId)) contains scarce OTUs and their associated samples
 	 * @throws Exception if errors occur
 	 */
-	protected TreeMap<String, TreeSet<String>> findScarceOtus(
-			final TreeMap<String, TreeMap<String, Long>> sampleOtuCounts, final TreeSet<String> uniqueOtus,
+	protected TreeMap<String, TreeSet<String>> findScarceOtus( final TaxaDictionary dictionary,
 			final TreeMap<String, TreeSet<String>> scarceTaxa ) throws Exception
 	{
 		final TreeMap<String, TreeSet<String>> scarceOtus = new TreeMap<>();
-		for( final String otu: uniqueOtus )
+		if( scarceTaxa.isEmpty() )
 		{
-			for( final String taxa: scarceTaxa.keySet() )
+			return scarceOtus;
+		}
+
+		final List<String> levels = TaxaUtil.getTaxaLevels();
+		for( int otuId = 0; otuId < dictionary.getNumOtus(); otuId++ )
+		{
+			final String otu = dictionary.getOtu( otuId );
+			for( int i = 0; i < levels.size(); i++ )
 			{
-				if( otu.contains( taxa ) )
+				final String taxa = dictionary.getTaxaName( otuId, i );
+				final TreeSet<String> samples = taxa == null ? null
+						: scarceTaxa.get( OtuUtil.buildOtuTaxa( levels.get( i ), taxa ) );
+				if( samples != null )
 				{
-					scarceOtus.put( otu, scarceTaxa.get( taxa ) );
+					scarceOtus.put( otu, samples );
+					break;
 				}
 			}
 		}
@@ -129,82 +146,125 @@ public class RemoveScarceOtuCounts extends OtuCountModule implements JavaModule
 	/**
 	 * Find scarce taxa found in less samples than the cutoff percentage:
 	 * {@link biolockj.Config}.{@value biolockj.Constants#REPORT_SCARCE_CUTOFF}. Return a map of these scare taxa and a
-	 * set of samples that need to remove them.
+	 * set of samples that need to remove them.<br>
+	 * The samples that contain each taxa are indexed in one pass over the OTU counts, with a bit set of sample indexes
+	 * for each taxa ID assigned by the {@link biolockj.util.TaxaDictionary}.
 	 *
-	 * @param sampleOtuCounts TreeMap(SampleId, TreeMap(OTU, count)) OTU counts for every sample
-	 * @param otus TreeSet of unique OTUs
+	 * @param sampleOtuCounts Map(SampleId, TreeMap(OTU, count)) OTU counts for every sample
+	 * @param dictionary TaxaDictionary of all OTUs for all samples
 	 * @return TreeMap(taxa, TreeSet(SampleIds))
 	 * @throws Exception if errors occur
 	 */
 	protected TreeMap<String, TreeSet<String>> findScarceTaxa(
-			final TreeMap<String, TreeMap<String, Long>> sampleOtuCounts, final TreeSet<String> otus )
+			final Map<String, TreeMap<String, Long>> sampleOtuCounts, final TaxaDictionary dictionary )
 			throws Exception
 	{
-		final TreeMap<String, TreeSet<String>> scarceTaxa = new TreeMap<>();
-		for( final String level: TaxaUtil.getTaxaLevels() )
+		final List<String> levels = TaxaUtil.getTaxaLevels();
+		final BitSet[][] samplesWithTaxa = new BitSet[ levels.size() ][];
+		for( int i = 0; i < levels.size(); i++ )
+		{
+			samplesWithTaxa[ i ] = new BitSet[ dictionary.getNumTaxa( i ) ];
+		}
+
+		final List<String> ids = new ArrayList<>( sampleOtuCounts.keySet() );
+		for( int sample = 0; sample < ids.size(); sample++ )
 		{
-			final TreeMap<String, TreeSet<String>> scarceLevelTaxa = new TreeMap<>();
-			final TreeSet<String> levelTaxa = TaxaUtil.findUniqueTaxa( otus, level );
-			Log.debug( getClass(), "Checking level: " + level + " with " + levelTaxa.size() + " taxa" );
-			for( final String taxa: levelTaxa )
+			for( final String otu: sampleOtuCounts.get( ids.get( sample ) ).keySet() )
 			{
-				final TreeMap<String, TreeMap<String, Long>> levelTaxaCounts = TaxaUtil
-						.getLevelTaxaCounts( sampleOtuCounts, level );
-				final TreeSet<String> samplesWithTaxa = new TreeSet<>();
-				for( final String sampleId: levelTaxaCounts.keySet() )
+				final int otuId = dictionary.getOtuId( otu );
+				for( int i = 0; otuId != TaxaDictionary.NONE && i < levels.size(); i++ )
 				{
-					final TreeMap<String, Long> taxaCounts = levelTaxaCounts.get( sampleId );
-					Log.debug( getClass(), "Checking sampleId: " + sampleId + " with " + taxaCounts.size() + " " + level
-							+ " taxa for: " + taxa );
-					if( taxaCounts.keySet().contains( taxa ) )
+					final int taxaId = dictionary.getTaxaId( otuId, i );
+					if( taxaId != TaxaDictionary.NONE )
 					{
-						samplesWithTaxa.add( sampleId );
+						if( samplesWithTaxa[ i ][ taxaId ] == null )
+						{
+							samplesWithTaxa[ i ][ taxaId ] = new BitSet( ids.size() );
+						}
+						samplesWithTaxa[ i ][ taxaId ].set( sample );
 					}
 				}
+			}
+		}
 
-				Log.debug( getClass(), taxa + " found in " + samplesWithTaxa.size() + " samples" );
-				if( !samplesWithTaxa.isEmpty() && samplesWithTaxa.size() <= getCutoff() )
+		final TreeMap<String, TreeSet<String>> scarceTaxa = new TreeMap<>();
+		for( int i = 0; i < levels.size(); i++ )
+		{
+			final String level = levels.get( i );
+			final TreeSet<String> scarceLevelTaxa = new TreeSet<>();
+			for( final int taxaId: dictionary.getSortedTaxaIds( i ) )
+			{
+				final BitSet samples = samplesWithTaxa[ i ][ taxaId ];
+				if( samples != null && samples.cardinality() <= getCutoff() )
 				{
-					scarceLevelTaxa.put( OtuUtil.buildOtuTaxa( level, taxa ), samplesWithTaxa );
-					scarceTaxa.put( OtuUtil.buildOtuTaxa( level, taxa ), samplesWithTaxa );
+					final TreeSet<String> sampleIdsWithTaxa = new TreeSet<>();
+					for( int sample = samples.nextSetBit( 0 ); sample >= 0; sample = samples.nextSetBit( sample + 1 ) )
+					{
+						sampleIdsWithTaxa.add( ids.get( sample ) );
+					}
+
+					final String taxa = OtuUtil.buildOtuTaxa( level, dictionary.getTaxa( i, taxaId ) );
+					Log.debug( getClass(), taxa + " found in " + sampleIdsWithTaxa.size() + " samples" );
+					scarceLevelTaxa.add( taxa );
+					scarceTaxa.put( taxa, sampleIdsWithTaxa );
 				}
 			}
 
 			Log.info( getClass(), "Found " + scarceLevelTaxa.size() + " scarce " + level + " taxa: "
-					+ BioLockJUtil.getCollectionAsString( scarceLevelTaxa.keySet() ) );
-
+					+ BioLockJUtil.getCollectionAsString( scarceLevelTaxa ) );
 		}
 
 		return scarceTaxa;
 	}
 
 	/**
-	 * Remove scarce OTUs from the sampleOtuCounts and return it.
+	 * Remove scarce OTUs from the sampleOtuCounts and return it. The OTU counts of each sample with scarce OTUs are
+	 * read once and put back once updated, so spilled OTU counts are updated too.
 	 *
-	 * @param sampleOtuCounts TreeMap(SampleId, TreeMap(OTU, count)) OTU counts for every sample
+	 * @param sampleOtuCounts Map(SampleId, TreeMap(OTU, count)) OTU counts for every sample
 	 * @param scarceOtus TreeMap(OTU, TreeSet(SampleId)) Scarce OTUs and the samples that list them
-	 * @return TreeMap(SampleId, TreeMap(OTU, count)) sampleOtuCounts after scarce OTUs have been removed
+	 * @return Map(SampleId, TreeMap(OTU, count)) sampleOtuCounts after scarce OTUs have been removed
 	 * @throws Exception if errors occur
 	 */
-	protected TreeMap<String, TreeMap<String, Long>> getUpdatedOtuCounts(
-			final TreeMap<String, TreeMap<String, Long>> sampleOtuCounts,
+	protected Map<String, TreeMap<String, Long>> getUpdatedOtuCounts(
+			final Map<String, TreeMap<String, Long>> sampleOtuCounts,
 			final TreeMap<String, TreeSet<String>> scarceOtus ) throws Exception
 	{
+		final TreeMap<String, Set<String>> sampleScarceOtus = new TreeMap<>();
 		for( final String badOtu: scarceOtus.keySet() )
 		{
 			for( final String sampleId: scarceOtus.get( badOtu ) )
 			{
-				if( sampleOtuCounts.get( sampleId ).get( badOtu ) != null )
+				if( sampleScarceOtus.get( sampleId ) == null )
+				{
+					sampleScarceOtus.put( sampleId, new HashSet<>() );
+				}
+				sampleScarceOtus.get( sampleId ).add( badOtu );
+			}
+		}
+
+		for( final String sampleId: sampleScarceOtus.keySet() )
+		{
+			final TreeMap<String, Long> otuCounts = sampleOtuCounts.get( sampleId );
+			boolean updated = false;
+			for( final String badOtu: sampleScarceOtus.get( sampleId ) )
+			{
+				final Long count = otuCounts.remove( badOtu );
+				if( count != null )
 				{
 					uniqueOtuRemoved.add( badOtu );
-					totalOtuRemoved += sampleOtuCounts.get( sampleId ).get( badOtu );
-					sampleOtuCounts.get( sampleId ).remove( badOtu );
+					totalOtuRemoved += count;
+					updated = true;
 				}
 			}
+
+			if( updated )
+			{
+				sampleOtuCounts.put( sampleId, otuCounts );
+			}
 		}
 
 		return sampleOtuCounts;
-
 	}
 
 	/**
@@ -243,10 +303,10 @@ public class RemoveScarceOtuCounts extends OtuCountModule implements JavaModule
 	/**
 	 * Output OTU count files with the updatedOtuCounts
 	 *
-	 * @param updatedOtuCounts TreeMap(SampleId, TreeMap(OTU, count)) OTU counts for every sample
+	 * @param updatedOtuCounts Map(SampleId, TreeMap(OTU, count)) OTU counts for every sample
 	 * @throws Exception if errors occur
 	 */
-	protected void removeScarceOtuCounts( final TreeMap<String, TreeMap<String, Long>> updatedOtuCounts )
+	protected void removeScarceOtuCounts( final Map<String, TreeMap<String, Long>> updatedOtuCounts )
 			throws Exception
 	{
 		for( final String sampleId: updatedOtuCounts.keySet() )
@@ -155,71 +155,102 @@ public class AddMetadataToTaxaTables extends TaxaCountModule implements JavaModu
 	}
 
 	/**
-	 * Create the merged metadata tables.
+	 * Create the merged metadata tables. The metadata columns of each sample are rendered once, then the taxonomy
+	 * tables are merged concurrently with {@link #processFiles(java.util.Collection, FileTask)}.
 	 *
 	 * @throws Exception if unable to build tables
 	 */
 	protected void generateMergedTables() throws Exception
 	{
-		final String outDir = getOutputDir().getAbsolutePath() + File.separator;
-		for( final File file: getInputFiles() )
-		{
-			final String name = file.getName().replaceAll( TSV_EXT, "" ) + META_MERGED;
-			Log.info( getClass(), "Merge OTU table + Metadata file: " + outDir + name );
-			final BufferedReader reader = BioLockJUtil.getFileReader( file );
-			final BufferedWriter writer = new BufferedWriter( new FileWriter( outDir + name ) );
+		final Map<String, byte[]> metaRecords = getMetaRecords();
+		processFiles( getInputFiles(), file -> {
+			mergeTable( file, metaRecords );
+			return null;
+		} );
+	}
 
+	/**
+	 * Merge the OTU table with the metadata, streaming each line of the OTU table with the rendered metadata columns of
+	 * the sample in the 1st column appended (both have PK = sample ID).
+	 *
+	 * @param file OTU table
+	 * @param metaRecords Map(sampleId, metadata columns) from {@link #getMetaRecords()}
+	 * @throws Exception if unable to create merged table
+	 */
+	protected void mergeTable( final File file, final Map<String, byte[]> metaRecords ) throws Exception
+	{
+		final File outFile = new File( getOutputDir(), file.getName().replaceAll( TSV_EXT, "" ) + META_MERGED );
+		Log.info( getClass(), "Merge OTU table + Metadata file: " + outFile.getAbsolutePath() );
+		final BufferedReader reader = BioLockJUtil.getFileReader( file );
+		final OutputStream out = new BufferedOutputStream( new FileOutputStream( outFile ) );
+		final String metaId = MetaUtil.getID();
+		try
+		{
 			for( String line = reader.readLine(); line != null; line = reader.readLine() )
 			{
-				final String mergedLine = getMergedLine( line );
-				if( mergedLine != null )
+				final String sampleId = new StringTokenizer( line, TAB_DELIM ).nextToken();
+				final byte[] metaRecord = metaRecords.get( sampleId );
+				if( metaRecord == null )
 				{
-					writer.write( mergedLine + RETURN );
+					Log.warn( getClass(), "Missing record for: " + sampleId + " in metadata: " + MetaUtil.getPath() );
+					continue;
 				}
-			}
 
-			writer.close();
+				final byte[] otuRecord = ( line.indexOf( '\'' ) < 0 && line.indexOf( '"' ) < 0 ? line
+						: BioLockJUtil.removeQuotes( line ) ).getBytes();
+				out.write( otuRecord );
+				out.write( metaRecord );
+				out.write( RETURN_BYTES );
+				logMergedLine( sampleId, sampleId.equals( metaId ), otuRecord, metaRecord );
+			}
+		}
+		finally
+		{
 			reader.close();
-			Log.info( getClass(), "Done merging table: " + file.getAbsolutePath() );
+			out.close();
 		}
 
+		Log.info( getClass(), "Done merging table: " + file.getAbsolutePath() );
 	}
 
 	/**
-	 * Return OTU table line with metadata row appended (both have PK = sample ID)
+	 * Render the metadata columns appended to each OTU table line, with quotes removed, keyed by sample ID. The header
+	 * line is keyed by the metadata ID column name.
 	 *
-	 * @param line OTU table line
-	 * @return OTU table line + metadata line
-	 * @throws Exception if unable to create merged line
+	 * @return Map(sampleId, metadata columns)
+	 * @throws Exception if errors occur reading the metadata
 	 */
-	protected String getMergedLine( final String line ) throws Exception
+	protected Map<String, byte[]> getMetaRecords() throws Exception
 	{
-		final StringBuffer sb = new StringBuffer();
-		final String sampleId = new StringTokenizer( line, TAB_DELIM ).nextToken();
-		if( sampleId.equals( MetaUtil.getID() ) || MetaUtil.getSampleIds().contains( sampleId ) )
+		final Map<String, byte[]> metaRecords = new HashMap<>();
+		final List<String> ids = MetaUtil.getSampleIds();
+		ids.add( MetaUtil.getID() );
+		for( final String id: ids )
 		{
-			sb.append( BioLockJUtil.removeQuotes( line ) );
-			for( final String field: MetaUtil.getMetadataRecord( sampleId ) )
+			final StringBuilder sb = new StringBuilder();
+			for( final String field: MetaUtil.getMetadataRecord( id ) )
 			{
 				sb.append( TAB_DELIM ).append( BioLockJUtil.removeQuotes( field ) );
 			}
-		}
-		else
-		{
-			Log.warn( getClass(), "Missing record for: " + sampleId + " in metadata: " + MetaUtil.getPath() );
-			return null;
+			metaRecords.put( id, sb.toString().getBytes() );
 		}
 
-		if( mergeHeaderLine == null )
+		return metaRecords;
+	}
+
+	private synchronized void logMergedLine( final String sampleId, final boolean isHeader, final byte[] otuRecord,
+			final byte[] metaRecord )
+	{
+		if( isHeader && mergeHeaderLine == null )
 		{
-			mergeHeaderLine = "Merged OTU table header [" + sampleId + "] = " + sb.toString();
+			mergeHeaderLine = "Merged OTU table header [" + sampleId + "] = " + new String( otuRecord )
+					+ new String( metaRecord );
 		}
-		else if( mergeSampleLine == null )
+		else if( !isHeader && mergeSampleLine == null )
 		{
-			mergeSampleLine = "Example Merged OTU table row [" + sampleId + "] = " + sb.toString();
+			mergeSampleLine = "Example Merged OTU table row [" + sampleId + "] = " + new String( otuRecord )
+					+ new String( metaRecord );
 		}
-
-		return sb.toString();
 	}
 
 	private final Map<String, String> hitRatioPerSample = new HashMap<>();
@@ -236,4 +267,6 @@ public class AddMetadataToTaxaTables extends TaxaCountModule implements JavaModu
 	 * File suffix added to OTU table file name once merged with metadata.
 	 */
 	public static final String META_MERGED = "_metaMerged" + TSV_EXT;
+
+	private static final byte[] RETURN_BYTES = RETURN.getBytes();
 }
@@ -11,10 +11,10 @@
  */
 package biolockj.module.report.taxa;
 
-import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileWriter;
 import java.util.*;
+import biolockj.Config;
+import biolockj.Constants;
 import biolockj.Log;
 import biolockj.module.JavaModule;
 import biolockj.module.report.otu.OtuCountModule;
@@ -38,92 +38,76 @@ public class BuildTaxaTables extends OtuCountModule implements JavaModule
 	@Override
 	public void runModule() throws Exception
 	{
-		buildTaxonomyTables( OtuUtil.getSampleOtuCounts( getInputFiles() ) );
+		buildTaxonomyTables( OtuUtil.getSampleOtuMatrix( getInputFiles() ) );
 	}
 
 	/**
-	 * Build taxonomy tables from the sampleTaxaCounts.
+	 * Build taxonomy tables from the OTU count matrix. The OTU columns are aggregated into taxa columns for every level
+	 * in a single pass over the OTU counts, using the level taxa of each OTU from a
+	 * {@link biolockj.util.TaxaDictionary} built for the OTU columns. The level tables are then written concurrently.
 	 *
-	 * @param sampleOtuCounts TreeMap(SampleId, TreeMap(OTU, count)) OTU counts for every sample
+	 * @param otuMatrix CountMatrix of OTU counts for every sample
 	 * @throws Exception if errors occur
 	 */
-	protected void buildTaxonomyTables( final TreeMap<String, TreeMap<String, Long>> sampleOtuCounts )
-			throws Exception
+	protected void buildTaxonomyTables( final CountMatrix otuMatrix ) throws Exception
 	{
 		final String label = "OTUs";
 		final int pad = SummaryUtil.getPad( label ) + 4;
 
-		final TreeSet<String> otus = OtuUtil.findUniqueOtus( sampleOtuCounts );
-		Log.info( getClass(), "Write " + otus.size() + " unique OTUs for: " + sampleOtuCounts.size() + " samples" );
-		report( "OTU Count", sampleOtuCounts );
-		report( "Unique OTU", otus );
+		Log.info( getClass(),
+				"Write " + otuMatrix.getNumCols() + " unique OTUs for: " + otuMatrix.getNumRows() + " samples" );
+		report( "OTU Count", otuMatrix );
+		report( "Unique OTU", otuMatrix.getColLabels() );
 		summary += BioLockJUtil.addTrailingSpaces( "# Samples:", pad )
-				+ BioLockJUtil.formatNumericOutput( new Integer( sampleOtuCounts.size() ).longValue(), false ) + RETURN;
-		long totalOtus = 0;
-		boolean topLevel = true;
-		for( final String level: TaxaUtil.getTaxaLevels() )
+				+ BioLockJUtil.formatNumericOutput( new Integer( otuMatrix.getNumRows() ).longValue(), false ) + RETURN;
+
+		final List<String> levels = TaxaUtil.getTaxaLevels();
+		final TaxaDictionary dictionary = new TaxaDictionary( otuMatrix.getColLabels() );
+		final List<CountMatrix.ColMapper> mappers = new ArrayList<>();
+		for( int i = 0; i < levels.size(); i++ )
 		{
-			final TreeSet<String> levelTaxa = TaxaUtil.findUniqueTaxa( otus, level );
-			final TreeMap<String, TreeMap<String, Long>> levelTaxaCounts = TaxaUtil
-					.getLevelTaxaCounts( sampleOtuCounts, level );
-			final Map<String, Long> uniqueOtus = new HashMap<>();
+			final int levelIndex = i;
+			mappers.add( otu -> dictionary.getTaxaName( dictionary.getOtuId( otu ), levelIndex ) );
+		}
 
-			uniqueOtus.put( level, new Integer( levelTaxa.size() ).longValue() );
-			report( "Taxonomy Counts @" + level, levelTaxaCounts );
-			final File table = TaxaUtil.getTaxonomyTableFile( getOutputDir(), level, null );
-			Log.info( getClass(), "Building: " + table.getAbsolutePath() );
+		final List<CountMatrix> levelMatrices = otuMatrix.aggregateCols( mappers );
+		final Map<File, CountMatrix> tables = new LinkedHashMap<>();
+		long totalOtus = 0;
+		for( int i = 0; i < levels.size(); i++ )
+		{
+			final String level = levels.get( i );
+			final CountMatrix levelMatrix = levelMatrices.get( i );
+			report( "Taxonomy Counts @" + level, levelMatrix );
+			tables.put( TaxaUtil.getTaxonomyTableFile( getOutputDir(), level, null ), levelMatrix );
 
-			final BufferedWriter writer = new BufferedWriter( new FileWriter( table ) );
-			try
+			for( final String sampleId: otuMatrix.getRowLabels() )
 			{
-				writer.write( MetaUtil.getID() );
-				for( final String taxa: levelTaxa )
+				final int row = levelMatrix.getRowIndex( sampleId );
+				if( row < 0 )
 				{
-					writer.write( TAB_DELIM + taxa );
+					Log.warn( getClass(), "No " + level + " taxa found: " + sampleId );
 				}
-				writer.write( RETURN );
-
-				for( final String sampleId: sampleOtuCounts.keySet() )
+				else if( i == 0 )
 				{
-					final TreeMap<String, Long> taxaCounts = levelTaxaCounts.get( sampleId );
-					if( taxaCounts.isEmpty() )
-					{
-						Log.warn( getClass(), "No " + level + " taxa found: " + sampleId );
-						continue;
-					}
-					writer.write( sampleId );
-
-					for( final String taxa: levelTaxa )
-					{
-						Long count = 0L;
-						if( taxaCounts != null && taxaCounts.keySet().contains( taxa ) )
-						{
-							count = taxaCounts.get( taxa );
-							if( topLevel )
-							{
-								totalOtus += count;
-							}
-						}
-
-						writer.write( TAB_DELIM + count );
-						Log.debug( getClass(), sampleId + ":" + taxa + "=" + count );
-					}
-
-					writer.write( RETURN );
+					totalOtus += levelMatrix.getRowTotal( row );
 				}
-
-				summary += BioLockJUtil.addTrailingSpaces( "# Unique " + level + " OTUs:", pad )
-						+ BioLockJUtil.formatNumericOutput( uniqueOtus.get( level ), false ) + RETURN;
 			}
-			finally
+
+			summary += BioLockJUtil.addTrailingSpaces( "# Unique " + level + " OTUs:", pad )
+					+ BioLockJUtil.formatNumericOutput( new Integer( levelMatrix.getNumCols() ).longValue(), false )
+					+ RETURN;
+		}
+
+		final boolean writeBinary = Config.getBoolean( this, Constants.REPORT_BINARY_COUNTS );
+		processFiles( tables.keySet(), table -> {
+			Log.info( getClass(), "Building: " + table.getAbsolutePath() );
+			tables.get( table ).writeTable( table, MetaUtil.getID() );
+			if( writeBinary )
 			{
-				if( writer != null )
-				{
-					writer.close();
-				}
+				CountMatrixFile.write( tables.get( table ), CountMatrixFile.getBinaryFile( table ) );
 			}
-			topLevel = false;
-		}
+			return null;
+		} );
 
 		summary += BioLockJUtil.addTrailingSpaces( "# Total OTUs:", pad )
 				+ BioLockJUtil.formatNumericOutput( totalOtus, false );
@@ -140,16 +124,16 @@ public class BuildTaxaTables extends OtuCountModule implements JavaModule
 		}
 	}
 
-	private void report( final String label, final TreeMap<String, TreeMap<String, Long>> map ) throws Exception
+	private void report( final String label, final CountMatrix matrix ) throws Exception
 	{
 		if( Log.doDebug() )
 		{
-			for( final String id: map.keySet() )
+			for( int row = 0; row < matrix.getNumRows(); row++ )
 			{
-				final TreeMap<String, Long> innerMap = map.get( id );
-				for( final String otu: innerMap.keySet() )
+				for( int i = matrix.getRowStart( row ); i < matrix.getRowEnd( row ); i++ )
 				{
-					Log.debug( getClass(), "REPORT [ " + id + " " + label + " ]: " + otu + "=" + innerMap.get( otu ) );
+					Log.debug( getClass(), "REPORT [ " + matrix.getRowLabel( row ) + " " + label + " ]: "
+							+ matrix.getColLabel( matrix.getEntryCol( i ) ) + "=" + matrix.getEntryCount( i ) );
 				}
 			}
 		}
@@ -11,14 +11,12 @@
  */
 package biolockj.module.report.taxa;
 
-import java.io.BufferedReader;
 import java.io.File;
-import java.util.*;
+import java.util.ArrayList;
+import java.util.List;
 import biolockj.Constants;
 import biolockj.Log;
 import biolockj.module.JavaModule;
-import biolockj.util.BioLockJUtil;
-import biolockj.util.MetaUtil;
 import biolockj.util.TaxaUtil;
 
 /**
@@ -37,84 +35,24 @@ public class LogTransformTaxaTables extends NormalizeTaxaTables implements JavaM
 	@Override
 	protected void transform( final File otuTable ) throws Exception
 	{
-		final List<List<String>> dataPointsLogged = new ArrayList<>();
-		final List<List<Long>> dataPointsUnnormalized = new ArrayList<>();
 		final List<String> sampleIDs = new ArrayList<>();
 		final List<String> otuNames = new ArrayList<>();
-		final BufferedReader reader = BioLockJUtil.getFileReader( otuTable );
-		try
-		{
-			otuNames.addAll( getOtuNames( reader.readLine() ) );
-			String nextLine = reader.readLine();
-			while( nextLine != null )
-			{
-				final StringTokenizer st = new StringTokenizer( nextLine, Constants.TAB_DELIM );
-				final String sampleID = st.nextToken();
-				final List<Long> innerList = new ArrayList<>();
-				sampleIDs.add( sampleID );
-				dataPointsUnnormalized.add( innerList );
-				dataPointsLogged.add( new ArrayList<String>() );
-
-				while( st.hasMoreTokens() )
-				{
-					final String nextToken = st.nextToken();
-					long d = 0;
-					if( nextToken.length() > 0 )
-					{
-						d = Long.parseLong( nextToken );
-					}
-					innerList.add( d );
-				}
-
-				final long rowSum = innerList.stream().mapToLong( Long::longValue ).sum();
-	
-				if( rowSum == 0 )
-				{
-					throw new Exception( sampleID + " has all zeros for table counts." );
-				}
-				nextLine = reader.readLine();
-			}
-		}
-		finally
-		{
-			if( reader != null )
-			{
-				reader.close();
-			}
-		}
-
-		final Set<Integer> allZeroIndex = findAllZeroIndex( dataPointsUnnormalized );
-		final List<String> filteredSampleIDs = filterZeroSampleIDs( sampleIDs, allZeroIndex );
-
-		Log.debug( getClass(), "# samples with all zeros (to be removed)  = " + allZeroIndex.size() );
+		final List<long[]> counts = readCounts( otuTable, sampleIDs, otuNames );
+		getRowSums( sampleIDs, counts );
 
-		for( int x = 0; x < dataPointsUnnormalized.size(); x++ )
-		{
-			final List<String> loggedInnerList = dataPointsLogged.get( x );
-			for( int y = 0; y < dataPointsUnnormalized.get( x ).size(); y++ )
+		final byte[][] logRows = new byte[ counts.size() ][];
+		transformRows( counts.size(), x -> {
+			final StringBuilder logged = new StringBuilder( sampleIDs.get( x ) );
+			for( final long count: counts.get( x ) )
 			{
-				long val = dataPointsUnnormalized.get( x ).get( y ) + 1;
-				if( allZeroIndex.contains( x ) )
-				{
-					// index 0 = col headers, so add + 1
-					final String id = MetaUtil.getSampleIds().get( x + 1 );
-					Log.warn( getClass(), "All zero row will not be transformed - ID ommitted: " + id );
-				}
-				else if( getLogBase().equalsIgnoreCase( LOG_E ) )
-				{
-					loggedInnerList.add( new Double( Math.log( val ) ).toString() );
-				}
-				else if( getLogBase().equalsIgnoreCase( LOG_10 ) )
-				{
-					loggedInnerList.add( new Double( Math.log10( val ) ).toString() );
-				}
+				logged.append( Constants.TAB_DELIM ).append( log( count + 1 ) );
 			}
-		}
+			logRows[ x ] = logged.toString().getBytes();
+		} );
 
 		final String level = TaxaUtil.getTaxonomyTableLevel( otuTable );
 		Log.debug( getClass(), "Transforming table for level: " + level );
-		final File logNormTable = getLogTransformedFile( level );
-		writeDataToFile( logNormTable, filteredSampleIDs, otuNames, dataPointsLogged );
+		writeDataToFile( getLogTransformedFile( level ), otuNames, logRows );
 	}
 	
 	private File getLogTransformedFile( final String level ) throws Exception
@@ -13,14 +13,14 @@ package biolockj.module.report.taxa;
 
 import java.io.*;
 import java.util.*;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
 import biolockj.Config;
 import biolockj.Constants;
 import biolockj.Log;
 import biolockj.exception.ConfigFormatException;
 import biolockj.module.JavaModule;
-import biolockj.util.BioLockJUtil;
-import biolockj.util.MetaUtil;
-import biolockj.util.TaxaUtil;
+import biolockj.util.*;
 
 /**
  * This utility is used to normalize and/or log-transform the raw OTU counts using the formulas:
@@ -94,26 +94,6 @@ public class NormalizeTaxaTables extends TaxaCountModule implements JavaModule
 		summary = "Output " + getOutputDir().listFiles().length;
 	}
 
-	/**
-	 * Filter Sample IDs with all zero rows
-	 * 
-	 * @param sampleIDs List of Sample IDs
-	 * @param allZeroIndex Table row index for all-zero rows
-	 * @return Filtered list of Sample IDs
-	 * @throws Exception if errors occur
-	 */
-	protected List<String> filterZeroSampleIDs( final List<String> sampleIDs, final Set<Integer> allZeroIndex )
-			throws Exception
-	{
-		final List<String> zeroSampleIDs = getNonZeroSampleIDs( sampleIDs, allZeroIndex );
-
-		for( final String id: zeroSampleIDs )
-		{
-			sampleIDs.remove( id );
-		}
-		return sampleIDs;
-	}
-
 	/**
 	 * Get the Log base (10 or e)
 	 * 
@@ -124,12 +104,6 @@ public class NormalizeTaxaTables extends TaxaCountModule implements JavaModule
 		return logBase;
 	}
 
-
-	private File getLogTransformedFile( final String level ) throws Exception
-	{
-		return TaxaUtil.getTaxonomyTableFile( getOutputDir(), level, TaxaUtil.NORMALIZED + "_Log" + getLogBase() );
-	}
-
 	/**
 	 * Parse Taxa names from the given header line.
 	 * 
@@ -151,198 +125,249 @@ public class NormalizeTaxaTables extends TaxaCountModule implements JavaModule
 	}
 
 	/**
-	 * Populate normalized OTU counts with the formula: (RC/n)*((SUM(x))/N)+1
+	 * Calculate the sum of each table row.
+	 * 
+	 * @param sampleIDs Sample IDs
+	 * @param counts Table rows
+	 * @return Row sums
+	 * @throws Exception if any row has all zero counts
+	 */
+	protected long[] getRowSums( final List<String> sampleIDs, final List<long[]> counts ) throws Exception
+	{
+		final long[] rowSums = new long[ counts.size() ];
+		for( int x = 0; x < rowSums.length; x++ )
+		{
+			for( final long count: counts.get( x ) )
+			{
+				rowSums[ x ] += count;
+			}
+
+			if( rowSums[ x ] == 0 )
+			{
+				throw new Exception( sampleIDs.get( x ) + " has all zeros for table counts." );
+			}
+			Log.debug( getClass(), "Row Sum [" + ( x + 1 ) + "] = " + rowSums[ x ] );
+		}
+		return rowSums;
+	}
+
+	/**
+	 * Log transform the value with the configured {@link #getLogBase()}.
+	 * 
+	 * @param val Value
+	 * @return Log(log_base) of val
+	 */
+	protected double log( final double val )
+	{
+		return getLogBase().equalsIgnoreCase( LOG_E ) ? Math.log( val ): Math.log10( val );
+	}
+
+	/**
+	 * Read the taxa counts from the taxa table, or from its binary count file if
+	 * {@link biolockj.Config}.{@value biolockj.Constants#REPORT_BINARY_COUNTS}={@value biolockj.Constants#TRUE} and a
+	 * previous module saved one. Rows without any counts in the binary count file are skipped.
+	 * 
+	 * @param taxaTable Taxa count table
+	 * @param sampleIDs Empty list populated with the Sample ID of each row
+	 * @param otuNames Empty list populated with the taxa names
+	 * @return Table rows
+	 * @throws Exception if errors occur reading the table
+	 */
+	protected List<long[]> readCounts( final File taxaTable, final List<String> sampleIDs,
+			final List<String> otuNames ) throws Exception
+	{
+		final File binaryFile = CountMatrixFile.getBinaryFile( taxaTable );
+		if( Config.getBoolean( this, Constants.REPORT_BINARY_COUNTS ) && binaryFile.exists() )
+		{
+			return readBinaryTable( binaryFile, sampleIDs, otuNames );
+		}
+		return readTable( taxaTable, sampleIDs, otuNames );
+	}
+
+	/**
+	 * Populate normalized OTU counts with the formula: (RC/n)*((SUM(x))/N)+1<br>
+	 * The normalized and log transformed values of each row are formatted in the same pass over the counts.
 	 *
 	 * @param taxaTable OTU raw count table
 	 * @throws Exception if unable to construct NormalizeTaxaTables
 	 */
 	protected void transform( final File taxaTable ) throws Exception
 	{
-		final List<List<String>> dataPointsNormalized = new ArrayList<>();
-		final List<List<String>> dataPointsNormalizedThenLogged = new ArrayList<>();
-		final List<List<Long>> dataPointsUnnormalized = new ArrayList<>();
 		final List<String> sampleIDs = new ArrayList<>();
 		final List<String> otuNames = new ArrayList<>();
+		final List<long[]> counts = readCounts( taxaTable, sampleIDs, otuNames );
+		final long[] rowSums = getRowSums( sampleIDs, counts );
 		long tableSum = 0;
-
-		final BufferedReader reader = BioLockJUtil.getFileReader( taxaTable );
-		try
-		{
-			otuNames.addAll( getOtuNames( reader.readLine() ) );
-			String nextLine = reader.readLine();
-
-			while( nextLine != null )
-			{
-				final StringTokenizer st = new StringTokenizer( nextLine, Constants.TAB_DELIM );
-				final String sampleID = st.nextToken();
-				final List<Long> innerList = new ArrayList<>();
-				sampleIDs.add( sampleID );
-				dataPointsUnnormalized.add( innerList );
-				dataPointsNormalized.add( new ArrayList<String>() );
-				dataPointsNormalizedThenLogged.add( new ArrayList<String>() );
-
-				while( st.hasMoreTokens() )
-				{
-					final String nextToken = st.nextToken();
-					long d = 0;
-					if( nextToken.length() > 0 )
-					{
-						d = Long.parseLong( nextToken );
-					}
-					innerList.add( d );
-				}
-
-				final long rowSum = innerList.stream().mapToLong( Long::longValue ).sum();
-				tableSum += rowSum;
-				if( rowSum == 0 )
-				{
-					throw new Exception( sampleID + " has all zeros for table counts." );
-				}
-				nextLine = reader.readLine();
-
-				Log.debug( getClass(), "Row Sum [" + sampleIDs.size() + "] = " + rowSum );
-			}
-		}
-		finally
+		for( final long rowSum: rowSums )
 		{
-			if( reader != null )
-			{
-				reader.close();
-			}
+			tableSum += rowSum;
 		}
-		
-		Log.debug( getClass(), "Table Sum [ #samples=" + sampleIDs.size() + "] = " + tableSum );
-
-		final Set<Integer> allZeroIndex = findAllZeroIndex( dataPointsUnnormalized );
-		final List<String> filteredSampleIDs = filterZeroSampleIDs( sampleIDs, allZeroIndex );
-		final double aveRowSum = tableSum / filteredSampleIDs.size();
 
-		Log.debug( getClass(), "Final Table Sum = " + tableSum );
+		final double aveRowSum = tableSum / sampleIDs.size();
+		Log.debug( getClass(), "Table Sum [ #samples=" + sampleIDs.size() + "] = " + tableSum );
 		Log.debug( getClass(), "Average Row Sum = " + aveRowSum );
-		Log.debug( getClass(), "# samples with all zeros (to be removed)  = " + allZeroIndex.size() );
-
-		for( int x = 0; x < dataPointsUnnormalized.size(); x++ )
-		{
-			final long rowSum = dataPointsUnnormalized.get( x ).stream().mapToLong( Long::longValue ).sum();
-			final List<String> loggedInnerList = dataPointsNormalizedThenLogged.get( x );
 
-			for( int y = 0; y < dataPointsUnnormalized.get( x ).size(); y++ )
+		final boolean doLog = !getLogBase().isEmpty();
+		final byte[][] normRows = new byte[ counts.size() ][];
+		final byte[][] logRows = new byte[ doLog ? counts.size(): 0 ][];
+		transformRows( counts.size(), x -> {
+			final long[] row = counts.get( x );
+			final StringBuilder norm = new StringBuilder( sampleIDs.get( x ) );
+			final StringBuilder logged = doLog ? new StringBuilder( sampleIDs.get( x ) ): null;
+			for( final long count: row )
 			{
-				final Double normVal = aveRowSum * dataPointsUnnormalized.get( x ).get( y ) / rowSum + 1;
-				dataPointsNormalized.get( x ).add( new Long( normVal.longValue() ).toString() );
-				if( allZeroIndex.contains( x ) )
-				{
-					// index 0 = col headers, so add + 1
-					final String id = MetaUtil.getSampleIds().get( x + 1 );
-					Log.warn( getClass(), "All zero row will not be transformed - ID removed: " + id );
-				}
-				else if( getLogBase().equalsIgnoreCase( LOG_E ) )
+				final double normVal = aveRowSum * count / rowSums[ x ] + 1;
+				norm.append( Constants.TAB_DELIM ).append( (long) normVal );
+				if( doLog )
 				{
-					loggedInnerList.add( new Double( Math.log( normVal ) ).toString() );
-				}
-				else if( getLogBase().equalsIgnoreCase( LOG_10 ) )
-				{
-					loggedInnerList.add( new Double( Math.log10( normVal ) ).toString() );
+					logged.append( Constants.TAB_DELIM ).append( log( normVal ) );
 				}
 			}
-		}
+
+			normRows[ x ] = norm.toString().getBytes();
+			if( doLog )
+			{
+				logRows[ x ] = logged.toString().getBytes();
+			}
+		} );
 
 		File normOutDir = getOutputDir();
 		final String level = TaxaUtil.getTaxonomyTableLevel( taxaTable );
 		Log.debug( getClass(), "Normalizing table for level: " + level );
-		if( !getLogBase().isEmpty() )
+		if( doLog )
 		{
 			normOutDir = getTempDir();
-			final File logNormTable = getLogTransformedFile( level );
-			writeDataToFile( logNormTable, filteredSampleIDs, otuNames, dataPointsNormalizedThenLogged );
+			writeDataToFile( getLogTransformedFile( level ), otuNames, logRows );
 		}
 
-		final File normTable = TaxaUtil.getTaxonomyTableFile( normOutDir, level, TaxaUtil.NORMALIZED );
-		writeDataToFile( normTable, filteredSampleIDs, otuNames, dataPointsNormalized );
+		writeDataToFile( TaxaUtil.getTaxonomyTableFile( normOutDir, level, TaxaUtil.NORMALIZED ), otuNames,
+				normRows );
 	}
 
 	/**
-	 * Write transformed data to file
+	 * Run the row transform on each table row. Rows are transformed in parallel if
+	 * {@link biolockj.Config}.{@value biolockj.module.ScriptModule#SCRIPT_NUM_THREADS} &gt; 1, so the transform must
+	 * only update the row it is given.
 	 * 
-	 * @param inputFile Count table
-	 * @param sampleNames Sample
-	 * @param taxaNames Taxa names
-	 * @param taxaCounts Taxa counts
+	 * @param numRows Number of table rows
+	 * @param transform Row transform, given the row index
 	 * @throws Exception if errors occur
 	 */
-	protected void writeDataToFile( final File inputFile, final List<String> sampleNames, final List<String> taxaNames,
-			final List<List<String>> taxaCounts ) throws Exception
+	protected void transformRows( final int numRows, final IntConsumer transform ) throws Exception
 	{
-		final BufferedWriter writer = new BufferedWriter( new FileWriter( inputFile ) );
-
-		writer.write( MetaUtil.getID() );
-
-		for( final String s: taxaNames )
+		final IntStream rows = IntStream.range( 0, numRows );
+		if( Config.requirePositiveInteger( this, SCRIPT_NUM_THREADS ) > 1 )
 		{
-			writer.write( Constants.TAB_DELIM + s );
+			rows.parallel().forEach( transform );
 		}
-
-		writer.write( Constants.RETURN );
-
-		final int size = sampleNames.size();
-		for( int x = 0; x < size; x++ )
+		else
 		{
-			writer.write( sampleNames.get( x ) );
+			rows.forEach( transform );
+		}
+	}
 
-			for( int y = 0; y < taxaNames.size(); y++ )
+	/**
+	 * Write transformed data to file
+	 * 
+	 * @param outputFile Transformed table
+	 * @param taxaNames Taxa names
+	 * @param rows Formatted table rows, each starting with the Sample ID
+	 * @throws Exception if errors occur
+	 */
+	protected void writeDataToFile( final File outputFile, final List<String> taxaNames, final byte[][] rows )
+			throws Exception
+	{
+		final OutputStream out = new BufferedOutputStream( new FileOutputStream( outputFile ) );
+		try
+		{
+			final StringBuilder header = new StringBuilder( MetaUtil.getID() );
+			for( final String s: taxaNames )
 			{
-				writer.write( Constants.TAB_DELIM + taxaCounts.get( x ).get( y ) );
+				header.append( Constants.TAB_DELIM ).append( s );
 			}
+			out.write( header.append( Constants.RETURN ).toString().getBytes() );
 
-			if( x + 1 != size )
+			final byte[] newLine = Constants.RETURN.getBytes();
+			for( int x = 0; x < rows.length; x++ )
 			{
-				writer.write( Constants.RETURN );
+				if( x > 0 )
+				{
+					out.write( newLine );
+				}
+				out.write( rows[ x ] );
 			}
 		}
-
-		writer.close();
-	}
-
-	private List<String> getNonZeroSampleIDs( final List<String> sampleIDs, final Set<Integer> allZeroIndex )
-			throws Exception
-	{
-		final List<String> zeroSampleIDs = new ArrayList<>();
-		for( final Integer i: allZeroIndex )
+		finally
 		{
-			zeroSampleIDs.add( sampleIDs.get( i ) );
+			out.close();
 		}
+	}
 
-		return zeroSampleIDs;
+	private File getLogTransformedFile( final String level ) throws Exception
+	{
+		return TaxaUtil.getTaxonomyTableFile( getOutputDir(), level, TaxaUtil.NORMALIZED + "_Log" + getLogBase() );
 	}
 
 	/**
-	 * Return the table index for rows with all zer count values
-	 * 
-	 * @param data List of table rows
-	 * @return Set of empty zero-rows
-	 * @throws Exception if errors occur
+	 * Read the taxa counts from a binary count file saved by a previous module.
 	 */
-	protected static Set<Integer> findAllZeroIndex( final List<List<Long>> data ) throws Exception
+	private List<long[]> readBinaryTable( final File file, final List<String> sampleIDs, final List<String> otuNames )
+			throws Exception
 	{
-		final Set<Integer> allZero = new HashSet<>();
-		for( int x = 0; x < data.size(); x++ )
+		Log.debug( getClass(), "Read binary count file: " + file.getAbsolutePath() );
+		final CountMatrix matrix = CountMatrixFile.read( file );
+		final List<long[]> data = new ArrayList<>();
+		otuNames.addAll( matrix.getColLabels() );
+		for( int row = 0; row < matrix.getNumRows(); row++ )
 		{
-			for( int y = 0; y < data.get( x ).size(); y++ )
+			if( matrix.getRowStart( row ) == matrix.getRowEnd( row ) )
 			{
-				long sum = 0;
+				continue;
+			}
 
-				for( final Long d: data.get( x ) )
-				{
-					sum += d;
-				}
+			final long[] counts = new long[ matrix.getNumCols() ];
+			for( int i = matrix.getRowStart( row ); i < matrix.getRowEnd( row ); i++ )
+			{
+				counts[ matrix.getEntryCol( i ) ] = matrix.getEntryCount( i );
+			}
+			sampleIDs.add( matrix.getRowLabel( row ) );
+			data.add( counts );
+		}
+		return data;
+	}
 
-				if( sum == 0 )
+	private List<long[]> readTable( final File taxaTable, final List<String> sampleIDs, final List<String> otuNames )
+			throws Exception
+	{
+		final List<long[]> data = new ArrayList<>();
+		final BufferedReader reader = BioLockJUtil.getFileReader( taxaTable );
+		try
+		{
+			otuNames.addAll( getOtuNames( reader.readLine() ) );
+			for( String nextLine = reader.readLine(); nextLine != null; nextLine = reader.readLine() )
+			{
+				final StringTokenizer st = new StringTokenizer( nextLine, Constants.TAB_DELIM );
+				sampleIDs.add( st.nextToken() );
+				final long[] counts = new long[ st.countTokens() ];
+				for( int y = 0; y < counts.length; y++ )
 				{
-					allZero.add( x );
+					final String nextToken = st.nextToken();
+					if( nextToken.length() > 0 )
+					{
+						counts[ y ] = Long.parseLong( nextToken );
+					}
 				}
+				data.add( counts );
+			}
+		}
+		finally
+		{
+			if( reader != null )
+			{
+				reader.close();
 			}
 		}
-		return allZero;
+		return data;
 	}
 
 	private String logBase = "";
@@ -156,13 +156,13 @@ public class Multiplexer extends JavaModuleImpl implements JavaModule, SeqModule
 	 * Get the header for the sequence.
 	 *
 	 * @param file Sequence file in fasta or fastq format
-	 * @param seqLines Sequence lines for 1 read
+	 * @param headerLine Header line of 1 read
 	 * @return the header row for the sequence
 	 * @throws Exception if errors occur while obtaining header
 	 */
-	protected String getHeader( final File file, final List<String> seqLines ) throws Exception
+	protected String getHeader( final File file, final String headerLine ) throws Exception
 	{
-		final String header = seqLines.get( 0 ).trim();
+		final String header = headerLine.trim();
 		final String headerChar = header.substring( 0, 1 );
 		final String sampleId = SeqUtil.getSampleId( file.getName() );
 		final long numReads = incrementNumReads( file );
@@ -209,31 +209,27 @@ public class Multiplexer extends JavaModuleImpl implements JavaModule, SeqModule
 	{
 		Log.info( getClass(), "Multiplexing file  = " + sample.getAbsolutePath() );
 		final File muxFile = new File( getMutliplexeFileName( sample ) );
-		final List<String> seqLines = new ArrayList<>();
-		BufferedReader reader = null;
-		BufferedWriter writer = null;
+		final SeqRecordReader reader = new SeqRecordReader( sample );
+		SeqRecordWriter writer = null;
 		try
 		{
-			reader = BioLockJUtil.getFileReader( sample );
-			writer = new BufferedWriter( new FileWriter( muxFile, true ) );
-			for( String line = reader.readLine(); line != null; line = reader.readLine() )
+			writer = new SeqRecordWriter( muxFile, true );
+			while( reader.next() )
 			{
-				seqLines.add( line );
-				if( seqLines.size() == SeqUtil.getNumLinesPerRead() ) // full read
+				writer.writeLine( getHeader( sample, reader.getHeader().toString() ) );
+				for( int i = 1; i < reader.getLinesPerRead(); i++ )
 				{
-					writer.write( getHeader( sample, seqLines ) + RETURN );
-					for( int i = 1; i < seqLines.size(); i++ )
-					{
-						writer.write( seqLines.get( i ) + RETURN );
-					}
-					seqLines.clear();
+					writer.writeLine( reader.getLine( i ) );
 				}
 			}
 		}
 		finally
 		{
-			writer.close();
 			reader.close();
+			if( writer != null )
+			{
+				writer.close();
+			}
 		}
 	}
 
@@ -13,9 +13,11 @@ package biolockj.module.seq;
 
 import java.io.*;
 import java.util.*;
-import java.util.stream.LongStream;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.apache.commons.lang.math.NumberUtils;
 import biolockj.Config;
+import biolockj.ConfigSnapshot;
 import biolockj.Constants;
 import biolockj.Log;
 import biolockj.module.JavaModule;
@@ -26,7 +28,9 @@ import biolockj.util.*;
 
 /**
  * This BioModule imposes a minimum and/or maximum number of reads per sample. Samples below the minimum are discarded.
- * Samples above the maximum are limited by selecting random reads up to the maximum value.
+ * Samples above the maximum are limited by selecting random reads up to the maximum value.<br>
+ * If {@link biolockj.Config}.{@value #INPUT_RESERVOIR_SAMPLING}={@value biolockj.Constants#TRUE}, or if the number of
+ * reads is not available in the metadata, reads are selected by reservoir sampling in a single pass of the file.
  * 
  * @blj.web_desc Rarefy Seqs
  */
@@ -81,7 +85,8 @@ public class RarefySeqs extends JavaModuleImpl implements JavaModule, SeqModule
 		{
 			preReqs.add( ModuleUtil.getDefaultMergePairedReadsConverter() );
 		}
-		else if( SeqUtil.piplineHasSeqInput() && needsCountModule() )
+		else if( SeqUtil.piplineHasSeqInput() && !Config.getBoolean( this, INPUT_RESERVOIR_SAMPLING )
+				&& needsCountModule() )
 		{
 			preReqs.add( RegisterNumReads.class.getName() );
 		}
@@ -123,120 +128,205 @@ public class RarefySeqs extends JavaModuleImpl implements JavaModule, SeqModule
 	public void runModule() throws Exception
 	{
 		sampleIds.addAll( MetaUtil.getSampleIds() );
+		config = new ConfigSnapshot.Builder( this ).addPositiveInteger( INPUT_RAREFYING_MAX )
+				.addNonNegativeInteger( INPUT_RAREFYING_MIN ).addBoolean( INPUT_RESERVOIR_SAMPLING ).build();
 		final List<File> files = getInputFiles();
-		for( int i = 0; i < files.size(); i++ )
+		final AtomicInteger numDone = new AtomicInteger();
+		processFiles( files, file ->
 		{
-			final File f = files.get( i );
-			rarefy( f );
-			if( i % 25 == 0 || i + 1 == files.size() )
+			rarefy( file );
+			final int i = numDone.incrementAndGet();
+			if( i % 25 == 0 || i == files.size() )
 			{
 				Log.info( getClass(), "Done rarefying " + i + "/" + files.size() + " files." );
 			}
-		}
-
+			return null;
+		} );
 	}
 
 	/**
-	 * Build the rarefied file for the input file, keeping only the given indexes
+	 * Build the rarefied file for the input file, keeping only the given indexes. The sorted indexes are walked in step
+	 * with the file, so each read is tested in constant time and reading stops after the last index is found.
 	 *
 	 * @param input Sequence file
-	 * @param indexes List of indexes to keep
+	 * @param indexes Sorted array of read indexes to keep
 	 * @throws Exception if unable to build rarefied file
 	 */
-	protected void buildRarefiedFile( final File input, final List<Long> indexes ) throws Exception
+	protected void buildRarefiedFile( final File input, final long[] indexes ) throws Exception
 	{
-		Log.info( getClass(), "Rarefy [#index=" + indexes.size() + "]: " + input.getAbsolutePath() );
-		Log.debug( getClass(), "indexes: " + BioLockJUtil.getCollectionAsString( indexes ) );
-		final String fileExt = "." + Config.requireString( this, Constants.INTERNAL_SEQ_TYPE );
-		final String name = getOutputDir().getAbsolutePath() + File.separator + SeqUtil.getSampleId( input.getName() )
-				+ fileExt;
-		final File output = new File( name );
-		final BufferedReader reader = BioLockJUtil.getFileReader( input );
-		final BufferedWriter writer = new BufferedWriter( new FileWriter( output ) );
+		Log.info( getClass(), "Rarefy [#index=" + indexes.length + "]: " + input.getAbsolutePath() );
+		final File output = getOutputFile( input );
+		final SeqRecordReader reader = new SeqRecordReader( input );
+		SeqRecordWriter writer = null;
 		Log.debug( getClass(),
-				"Building file [#lines/read=" + SeqUtil.getNumLinesPerRead() + "]: " + output.getAbsolutePath() );
+				"Building file [#lines/read=" + reader.getLinesPerRead() + "]: " + output.getAbsolutePath() );
+		int next = 0;
 		try
 		{
+			writer = new SeqRecordWriter( output );
 			long index = 0;
-			int i = 0;
-			final Set<Long> usedIndexes = new HashSet<>();
-			for( String line = reader.readLine(); line != null; line = reader.readLine() )
+			while( next < indexes.length && reader.next() )
 			{
-				if( indexes.contains( index ) )
-				{
-					if( !usedIndexes.contains( index ) )
-					{
-						Log.debug( getClass(), "Add to usedIndexes: " + index );
-					}
-
-					usedIndexes.add( index );
-					writer.write( line + RETURN );
-				}
-
-				if( ++i % SeqUtil.getNumLinesPerRead() == 0 )
+				if( index++ == indexes[ next ] )
 				{
-					index++;
+					writer.writeRecord( reader );
+					next++;
 				}
 			}
-
-			readsPerSample.put( SeqUtil.getSampleId( input.getName() ), Integer.toString( indexes.size() ) );
-
-			if( !usedIndexes.containsAll( indexes ) )
-			{
-				indexes.removeAll( usedIndexes );
-				throw new Exception(
-						"Error occurred rarefying indexes for: " + input.getAbsolutePath() + " ---> " + indexes );
-			}
 		}
 		finally
 		{
 			reader.close();
-			writer.close();
+			if( writer != null )
+			{
+				writer.close();
+			}
+		}
+
+		if( next < indexes.length )
+		{
+			throw new Exception( "Error occurred rarefying indexes for: " + input.getAbsolutePath() + " ---> "
+					+ ( indexes.length - next ) + " indexes beyond the last read (index=" + indexes[ next ] + ")" );
 		}
+
+		readsPerSample.put( SeqUtil.getSampleId( input.getName() ), Integer.toString( indexes.length ) );
 	}
 
 	/**
 	 * Builds the rarefied file if too many seqs found, or adds files with too few samples to the list of bad samples.
+	 * If {@value #INPUT_RESERVOIR_SAMPLING} is enabled or the number of reads is not found in the metadata, call
+	 * {@link #reservoirSample(File, long, Integer)}.
 	 *
 	 * @param seqFile Sequence file to rarefy
 	 * @throws Exception if processing errors occur
 	 */
 	protected void rarefy( final File seqFile ) throws Exception
 	{
-		Integer maxConfig = Config.getNonNegativeInteger( this, INPUT_RAREFYING_MAX );
-		Integer minConfig = Config.getNonNegativeInteger( this, INPUT_RAREFYING_MIN );
-		Long max = 0L;
-		Long min = 0L;
+		final Integer maxConfig = config.getInteger( INPUT_RAREFYING_MAX );
+		final Integer minConfig = config.getInteger( INPUT_RAREFYING_MIN );
+		final long min = minConfig == null ? 1L: minConfig;
 		final String sampleId = SeqUtil.getSampleId( seqFile.getName() );
-		final long numReads = getCount( sampleId, RegisterNumReads.getNumReadFieldName() );
+		final Long numReads = config.getBoolean( INPUT_RESERVOIR_SAMPLING ) ? null
+				: getCount( sampleId, RegisterNumReads.getNumReadFieldName() );
 
-		if( maxConfig != null )
+		if( numReads == null )
 		{
-			max = numReads < max ? numReads: max;
+			reservoirSample( seqFile, min, maxConfig );
+			return;
 		}
 
-		if( minConfig == null )
+		Log.debug( getClass(), "Sample[" + sampleId + "]  numReads = " + numReads );
+		if( numReads >= min )
+		{
+			final int max = maxConfig == null || numReads < maxConfig ? numReads.intValue(): maxConfig;
+			buildRarefiedFile( seqFile, getRandomIndexes( numReads, max, new Random() ) );
+		}
+		else
+		{
+			logRemovedSample( sampleId, numReads, min );
+		}
+	}
+
+	/**
+	 * Select up to max random reads in a single pass of the file using reservoir sampling. The reads are held in
+	 * memory and written in their original order once the whole file is read. If max is undefined, every read is kept
+	 * and only the minimum is enforced.
+	 *
+	 * @param seqFile Sequence file to rarefy
+	 * @param min Minimum number of reads
+	 * @param max Maximum number of reads (or null)
+	 * @throws Exception if processing errors occur
+	 */
+	protected void reservoirSample( final File seqFile, final long min, final Integer max ) throws Exception
+	{
+		final String sampleId = SeqUtil.getSampleId( seqFile.getName() );
+		final File output = getOutputFile( seqFile );
+		final Random random = new Random();
+		final TreeMap<Long, byte[][]> reservoir = new TreeMap<>();
+		final long[] reservoirIndexes = max == null ? null: new long[ max ];
+		long numReads = 0L;
+
+		Log.info( getClass(), "Rarefy [reservoir=" + ( max == null ? "ALL": max ) + "]: " + seqFile.getAbsolutePath() );
+		final SeqRecordReader reader = new SeqRecordReader( seqFile );
+		SeqRecordWriter writer = null;
+		try
+		{
+			writer = max == null ? new SeqRecordWriter( output ): null;
+			while( reader.next() )
+			{
+				if( writer != null )
+				{
+					writer.writeRecord( reader );
+				}
+				else if( numReads < max )
+				{
+					reservoirIndexes[ (int) numReads ] = numReads;
+					reservoir.put( numReads, copyRead( reader ) );
+				}
+				else
+				{
+					final long j = (long) ( random.nextDouble() * ( numReads + 1 ) );
+					if( j < max )
+					{
+						reservoir.remove( reservoirIndexes[ (int) j ] );
+						reservoirIndexes[ (int) j ] = numReads;
+						reservoir.put( numReads, copyRead( reader ) );
+					}
+				}
+				numReads++;
+			}
+		}
+		finally
 		{
-			min = 1L;
+			reader.close();
+			if( writer != null )
+			{
+				writer.close();
+			}
 		}
 
 		Log.debug( getClass(), "Sample[" + sampleId + "]  numReads = " + numReads );
-		if( numReads >= min )
+		if( numReads < min )
 		{
-			final long[] range = LongStream.rangeClosed( 0, numReads - 1 ).toArray();
-			final List<Long> indexes = new ArrayList<>();
-			Collections.addAll( indexes, Arrays.stream( range ).boxed().toArray( Long[]::new ) );
-			Collections.shuffle( indexes );
-			indexes.subList( max.intValue(), indexes.size() ).clear();
-			buildRarefiedFile( seqFile, indexes );
+			if( max == null )
+			{
+				BioLockJUtil.deleteWithRetry( output, 5 );
+			}
+			logRemovedSample( sampleId, numReads, min );
+			return;
 		}
-		else
+
+		if( max != null )
 		{
-			Log.info( getClass(),
-					"Remove sample [" + sampleId + "] - contains (" + numReads
-							+ ") reads, which is less than minimum # reads ("
-							+ Config.getNonNegativeInteger( this, INPUT_RAREFYING_MIN ) + ")" );
+			final SeqRecordWriter reservoirWriter = new SeqRecordWriter( output );
+			try
+			{
+				for( final byte[][] read: reservoir.values() )
+				{
+					for( final byte[] line: read )
+					{
+						reservoirWriter.writeLine( line, 0, line.length );
+					}
+				}
+			}
+			finally
+			{
+				reservoirWriter.close();
+			}
 		}
+
+		readsPerSample.put( sampleId, Long.toString( writer == null ? reservoir.size(): numReads ) );
+	}
+
+	private byte[][] copyRead( final SeqRecordReader reader )
+	{
+		final byte[][] read = new byte[ reader.getLinesPerRead() ][];
+		for( int i = 0; i < read.length; i++ )
+		{
+			final SeqRecordReader.Slice line = reader.getLine( i );
+			read[ i ] = Arrays.copyOfRange( line.getBuffer(), line.getOffset(), line.getOffset() + line.length() );
+		}
+		return read;
 	}
 
 	private Long getCount( final String sampleId, final String attName ) throws Exception
@@ -263,6 +353,18 @@ public class RarefySeqs extends JavaModuleImpl implements JavaModule, SeqModule
 		return otuColName;
 	}
 
+	private File getOutputFile( final File input ) throws Exception
+	{
+		return new File( getOutputDir().getAbsolutePath() + File.separator + SeqUtil.getSampleId( input.getName() )
+				+ "." + Config.requireString( this, Constants.INTERNAL_SEQ_TYPE ) );
+	}
+
+	private void logRemovedSample( final String sampleId, final long numReads, final long min )
+	{
+		Log.info( getClass(), "Remove sample [" + sampleId + "] - contains (" + numReads
+				+ ") reads, which is less than minimum # reads (" + min + ")" );
+	}
+
 	private boolean needsCountModule() throws Exception
 	{
 		for( final String module: Config.requireList( this, Constants.INTERNAL_BLJ_MODULE ) )
@@ -280,8 +382,32 @@ public class RarefySeqs extends JavaModuleImpl implements JavaModule, SeqModule
 		return true;
 	}
 
+	/**
+	 * Select numToKeep sorted random indexes from [0, numReads) in one pass, using selection sampling (Knuth's
+	 * Algorithm S). Only the selected indexes are stored.
+	 *
+	 * @param numReads Total number of reads
+	 * @param numToKeep Number of indexes to select
+	 * @param random Random number generator
+	 * @return Sorted array of selected indexes
+	 */
+	protected static long[] getRandomIndexes( final long numReads, final int numToKeep, final Random random )
+	{
+		final long[] indexes = new long[ numToKeep ];
+		int found = 0;
+		for( long i = 0; i < numReads && found < numToKeep; i++ )
+		{
+			if( ( numReads - i ) * random.nextDouble() < numToKeep - found )
+			{
+				indexes[ found++ ] = i;
+			}
+		}
+		return indexes;
+	}
+
+	private ConfigSnapshot config = null;
 	private String otuColName = null;
-	private Map<String, String> readsPerSample = new HashMap<>();
+	private Map<String, String> readsPerSample = new ConcurrentHashMap<>();
 	private final Set<String> sampleIds = new HashSet<>();
 
 	/**
@@ -299,4 +425,11 @@ public class RarefySeqs extends JavaModuleImpl implements JavaModule, SeqModule
 	 */
 	protected static final String INPUT_RAREFYING_MIN = "rarefySeqs.min";
 
+	/**
+	 * {@link biolockj.Config} Boolean property {@value #INPUT_RESERVOIR_SAMPLING} if enabled, select reads by reservoir
+	 * sampling in a single pass of each file instead of using the number of reads in the metadata. Up to
+	 * {@value #INPUT_RAREFYING_MAX} reads per sample are held in memory.
+	 */
+	protected static final String INPUT_RESERVOIR_SAMPLING = "rarefySeqs.reservoirSampling";
+
 }
@@ -13,6 +13,7 @@ package biolockj.module.seq;
 
 import java.io.*;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
 import biolockj.Config;
 import biolockj.Constants;
 import biolockj.Log;
@@ -73,7 +74,7 @@ public class SeqFileValidator extends JavaModuleImpl implements JavaModule, SeqM
 			final TreeSet<String> longReads = new TreeSet<>();
 			for( final String sampleId: new TreeSet<>( sampleStats.keySet() ) )
 			{
-				final Long[] stats = sampleStats.get( sampleId );
+				final long[] stats = sampleStats.get( sampleId );
 				combinedMeanFwReadLen += stats[ INDEX_AVG_FW_READ_LEN ];
 				combinedMeanRvReadLen += stats[ INDEX_AVG_RV_READ_LEN ];
 				Log.debug( getClass(), "combinedMeanFwReadLen=" + combinedMeanFwReadLen );
@@ -119,7 +120,7 @@ public class SeqFileValidator extends JavaModuleImpl implements JavaModule, SeqM
 
 	/**
 	 * Cache sampleIds to compare to validated sampleIds post-processing. Call {@link #validateFile(File, Integer)} for
-	 * each input file.<br>
+	 * each input file in parallel, then merge the per-file stats in input file order.<br>
 	 * Call {@link #removeBadFiles()} to remove empty files (cases where all reads fail validation).<br>
 	 * Call {@link #verifyPairedSeqs()} if module input files are paired read files.<br>
 	 * Call {@link biolockj.util.MetaUtil#addColumn(String, Map, File, boolean)}
@@ -128,10 +129,18 @@ public class SeqFileValidator extends JavaModuleImpl implements JavaModule, SeqM
 	public void runModule() throws Exception
 	{
 		sampleIds.addAll( MetaUtil.getSampleIds() );
-		int count = 0;
-		for( final File file: getInputFiles() )
+		final AtomicInteger count = new AtomicInteger();
+		final List<File> files = getInputFiles();
+		final List<long[]> results = processFiles( files, file -> validateFile( file, count.getAndIncrement() ) );
+		for( int i = 0; i < files.size(); i++ )
 		{
-			validateFile( file, count++ );
+			final long[] stats = results.get( i );
+			if( stats != null )
+			{
+				final String id = SeqUtil.getSampleId( files.get( i ).getName() );
+				setMaxSeq( id, stats[ INDEX_MAX_SEQ_LEN ] );
+				populateSampleStats( stats, files.get( i ), id );
+			}
 		}
 
 		removeBadFiles();
@@ -171,129 +180,131 @@ public class SeqFileValidator extends JavaModuleImpl implements JavaModule, SeqM
 	 * <li>Remove reads below minimum threshold: {@value #INPUT_SEQ_MIN}
 	 * <li>Trim reads if above the maximum threshold: {@value #INPUT_SEQ_MAX}
 	 * </ol>
-	 * Invalid reads are saved to a file in the module temp directory for analysis/review.
+	 * Invalid reads are saved to a file in the module temp directory for analysis/review, as they are found.<br>
+	 * Read length thresholds are read from the {@link biolockj.Config} once per file.<br>
+	 * This method is called concurrently for multiple files, so it only updates thread-safe module state.
 	 *
 	 * @param file Sequence file
 	 * @param fileCount Integer count
+	 * @return File stats, or null if all reads failed validation
 	 * @throws Exception if I/O errors occur while processing sequence files
 	 */
-	protected void validateFile( final File file, final Integer fileCount ) throws Exception
+	protected long[] validateFile( final File file, final Integer fileCount ) throws Exception
 	{
 		Log.info( getClass(), "Validating File[" + fileCount + "]: " + file.getAbsolutePath() );
-		final Long[] stats = initStats();
-		long combinedReadLen = 0;
+		final long[] stats = new long[ NUM_STATS ];
+		final String headerChars = String.join( "", SeqUtil.getSeqHeaderChars() );
+		final int minLen = minReadLen();
+		final Integer maxLen = Config.getPositiveInteger( this, INPUT_SEQ_MAX );
+		final int seqMax = maxLen == null ? 0: maxLen;
 		int seqNum = 0;
 
-		final List<String> seqLines = new ArrayList<>();
-		final List<String> badLines = new ArrayList<>();
 		final File outputFile = new File( getFileName( getOutputDir(), file.getName() ) );
-		final BufferedReader reader = BioLockJUtil.getFileReader( file );
-		final BufferedWriter writer = new BufferedWriter( new FileWriter( outputFile ) );
+		final SeqRecordReader reader = new SeqRecordReader( file );
+		SeqRecordWriter writer = null;
+		SeqRecordWriter invalidWriter = null;
 		try
 		{
-			String line = null;
-
-			try
-			{
-				line = SeqUtil.scanFirstLine( reader, file );
-			}
-			catch( final Exception scanEx )
+			writer = new SeqRecordWriter( outputFile );
+			while( reader.next() )
 			{
-				badFiles.add( outputFile );
-				return;
-			}
+				seqNum++;
+				for( int i = 0; i < reader.getLinesPerRead(); i++ )
+				{
+					reader.getLine( i ).trim();
+				}
+				final SeqRecordReader.Slice header = reader.getHeader();
+				final SeqRecordReader.Slice seq = reader.getSeq();
+				final SeqRecordReader.Slice qual = reader.getQuality();
+				final int headerLen = header.length();
+				final int seqLen = seq.length();
+				if( headerLen == 0 )
+				{
+					Log.warn( getClass(), "Sequence #" + seqNum + " has an empty header & seq len = " + seqLen
+							+ " in ---> " + file.getAbsolutePath() );
+				}
 
-			do
-			{
-				seqLines.add( line.trim() );
-				if( seqLines.size() == SeqUtil.getNumLinesPerRead() )
+				boolean isValid = false;
+				if( headerLen == 0 || headerChars.indexOf( header.charAt( 0 ) ) < 0 )
 				{
-					seqNum++;
-					final int headerLen = seqLines.get( 0 ).length();
-					final int seqLen = seqLines.get( 1 ).length();
-					String headerChar = "";
-					if( headerLen == 0 )
-					{
-						Log.warn( getClass(), "Sequence #" + seqNum + " has an empty header & seq len = " + seqLen
-								+ " in ---> " + file.getAbsolutePath() );
-					}
-					else
-					{
-						headerChar = seqLines.get( 0 ).substring( 0, 1 );
-					}
+					stats[ INDEX_NUM_READS_INVALID_FORMAT ]++;
+					Log.warn( getClass(), "Sequence #" + seqNum + " format invalid.  Must begin with a valid header char ("
+							+ headerChars + ")  --> header line = " + header );
+				}
+				else if( seqLen < minLen )
+				{
+					stats[ INDEX_NUM_READS_TOO_SHORT ]++;
+					Log.warn( getClass(), "Sequence #" + seqNum + " format invalid.  Must have a minimum number of bases ("
+							+ minLen + ")  --> \n" + header + "\n" + seq );
+				}
+				else if( qual != null && seqLen != qual.length() )
+				{
+					stats[ INDEX_NUM_READS_INVALID_FORMAT ]++;
+					Log.warn( getClass(), "Sequence #" + seqNum + " fastq format invalid.  Must have equal "
+							+ " number of bases and quality scores: " + header );
+				}
+				else
+				{
+					isValid = true;
+				}
 
-					if( !SeqUtil.getSeqHeaderChars().contains( headerChar ) )
-					{
-						stats[ INDEX_NUM_READS_INVALID_FORMAT ]++;
-						badLines.addAll( seqLines );
-						Log.warn( getClass(),
-								"Sequence #" + seqNum + " format invalid.  Must begin with a valid header char ("
-										+ SeqUtil.getSeqHeaderChars() + ")  --> header line = " + seqLines.get( 0 ) );
-					}
-					else if( seqLen < minReadLen() )
-					{
-						stats[ INDEX_NUM_READS_TOO_SHORT ]++;
-						badLines.addAll( seqLines );
-						Log.warn( getClass(),
-								"Sequence #" + seqNum + " format invalid.  Must have a minimum number of bases ("
-										+ minReadLen() + ")  --> \n" + seqLines.get( 0 ) + "\n" + seqLines.get( 1 ) );
-					}
-					else if( SeqUtil.isFastQ() && seqLen != seqLines.get( 3 ).length() )
+				if( !isValid )
+				{
+					if( invalidWriter == null )
 					{
-						stats[ INDEX_NUM_READS_INVALID_FORMAT ]++;
-						badLines.addAll( seqLines );
-						Log.warn( getClass(), "Sequence #" + seqNum + " fastq format invalid.  Must have equal "
-								+ " number of bases and quality scores: " + seqLines.get( 0 ) );
+						invalidWriter = getInvalidReadsWriter( file );
 					}
-					else
+					invalidWriter.writeRecord( reader );
+					continue;
+				}
+
+				stats[ INDEX_NUM_VALID_READS ]++;
+				if( seqLen > stats[ INDEX_MAX_SEQ_LEN ] )
+				{
+					stats[ INDEX_MAX_SEQ_LEN ] = seqLen;
+				}
+
+				if( seqMax > 0 && seqLen > seqMax )
+				{
+					stats[ INDEX_NUM_TRIMMED_READS ]++;
+					seq.truncate( 0, seqMax );
+					if( qual != null )
 					{
-						stats[ INDEX_NUM_VALID_READS ]++;
-						setMaxSeq( SeqUtil.getSampleId( file.getName() ), seqLen );
-						final Integer seqMax = Config.getPositiveInteger( this, INPUT_SEQ_MAX );
-						if( seqMax != null && seqMax > 0 && seqLen > seqMax )
-						{
-							stats[ INDEX_NUM_TRIMMED_READS ]++;
-							seqLines.set( 1, seqLines.get( 1 ).substring( 0, seqMax ) );
-							if( SeqUtil.isFastQ() )
-							{
-								seqLines.set( 3, seqLines.get( 3 ).substring( 0, seqMax ) );
-							}
-						}
-
-						final long readLen = seqLines.get( 1 ).length();
-						combinedReadLen += readLen;
-
-						if( readLen > 0 && stats[ INDEX_MIN_READS ] == 0 || readLen < stats[ INDEX_MIN_READS ] )
-						{
-							stats[ INDEX_MIN_READS ] = readLen;
-						}
-						if( readLen > stats[ INDEX_MAX_READS ] )
-						{
-							stats[ INDEX_MAX_READS ] = readLen;
-						}
-
-						for( final String seqLine: seqLines )
-						{
-							writer.write( seqLine + Constants.RETURN );
-						}
+						qual.truncate( 0, seqMax );
 					}
+				}
+
+				final long readLen = seq.length();
+				stats[ INDEX_COMBINED_READ_LEN ] += readLen;
 
-					seqLines.clear();
+				if( readLen > 0 && stats[ INDEX_MIN_READS ] == 0 || readLen < stats[ INDEX_MIN_READS ] )
+				{
+					stats[ INDEX_MIN_READS ] = readLen;
+				}
+				if( readLen > stats[ INDEX_MAX_READS ] )
+				{
+					stats[ INDEX_MAX_READS ] = readLen;
 				}
 
-				line = reader.readLine();
+				writer.writeRecord( reader );
+			}
+
+			if( reader.getReadCount() == 0 )
+			{
+				badFiles.add( outputFile );
+				return null;
 			}
-			while( line != null );
 		}
 		finally
 		{
+			reader.close();
 			if( writer != null )
 			{
 				writer.close();
 			}
-			if( reader != null )
+			if( invalidWriter != null )
 			{
-				reader.close();
+				invalidWriter.close();
 			}
 		}
 
@@ -302,11 +313,12 @@ public class SeqFileValidator extends JavaModuleImpl implements JavaModule, SeqM
 			badFiles.add( file );
 		}
 
-		if( !badFiles.contains( file ) )
+		if( badFiles.contains( file ) )
 		{
-			saveRemovedSeqsToFile( badLines, file );
-			populateSampleStats( stats, file, seqNum, combinedReadLen );
+			return null;
 		}
+
+		return stats;
 	}
 
 	/**
@@ -387,6 +399,17 @@ public class SeqFileValidator extends JavaModuleImpl implements JavaModule, SeqM
 		return dir.getAbsolutePath() + File.separator + name;
 	}
 
+	/**
+	 * Open the file in the module temp directory to save the invalid reads of the sequence file for review. Invalid
+	 * reads are written as they are found, so memory use does not depend on the number of invalid reads.
+	 */
+	private SeqRecordWriter getInvalidReadsWriter( final File file ) throws Exception
+	{
+		final File invalidFile = new File( getFileName( getTempDir(), "INVALID_READS_" + file.getName() ) );
+		Log.warn( getClass(), "Extracting invalid reads to --> " + invalidFile.getAbsolutePath() );
+		return new SeqRecordWriter( invalidFile );
+	}
+
 	private String getMetaColName() throws Exception
 	{
 		if( otuColName == null )
@@ -470,16 +493,6 @@ public class SeqFileValidator extends JavaModuleImpl implements JavaModule, SeqM
 		return summary;
 	}
 
-	private Long[] initStats() throws Exception
-	{
-		final Long[] stats = new Long[ 8 ];
-		for( int i = 0; i < stats.length; i++ )
-		{
-			stats[ i ] = 0L;
-		}
-		return stats;
-	}
-
 	private int minReadLen() throws Exception
 	{
 		Integer seqMin = Config.getPositiveInteger( this, INPUT_SEQ_MIN );
@@ -490,13 +503,12 @@ public class SeqFileValidator extends JavaModuleImpl implements JavaModule, SeqM
 		return seqMin;
 	}
 
-	private void populateSampleStats( final Long[] stats, final File file, final int seqNum,
-			final long combinedReadLen ) throws Exception
+	private void populateSampleStats( final long[] stats, final File file, final String id ) throws Exception
 	{
-		final String id = SeqUtil.getSampleId( file.getName() );
-		setNumReads( file, stats );
+		final long combinedReadLen = stats[ INDEX_COMBINED_READ_LEN ];
+		setNumReads( file, id, stats );
 
-		final Long[] otherStats = sampleStats.get( id );
+		final long[] otherStats = sampleStats.get( id );
 		final long len = stats[ INDEX_NUM_VALID_READS ] > 0
 				? Double.valueOf( combinedReadLen / stats[ INDEX_NUM_VALID_READS ] ).longValue()
 				: 0;
@@ -539,31 +551,7 @@ public class SeqFileValidator extends JavaModuleImpl implements JavaModule, SeqM
 			}
 		}
 
-		sampleStats.put( SeqUtil.getSampleId( file.getName() ), stats );
-	}
-
-	private void saveRemovedSeqsToFile( final Collection<String> badLines, final File file ) throws Exception
-	{
-		if( !badLines.isEmpty() )
-		{
-			final File tempFile = new File( getFileName( getTempDir(), "INVALID_READS_" + file.getName() ) );
-			Log.warn( getClass(), "Extracting invalid reads to --> " + tempFile.getAbsolutePath() );
-			final BufferedWriter invalidWriter = new BufferedWriter( new FileWriter( tempFile ) );
-			try
-			{
-				for( final String seqLine: badLines )
-				{
-					invalidWriter.write( seqLine + RETURN );
-				}
-			}
-			finally
-			{
-				if( invalidWriter != null )
-				{
-					invalidWriter.close();
-				}
-			}
-		}
+		sampleStats.put( id, stats );
 	}
 
 	private void setMaxSeq( final String sampleId, final long seqLen ) throws Exception
@@ -591,29 +579,27 @@ public class SeqFileValidator extends JavaModuleImpl implements JavaModule, SeqM
 		}
 	}
 
-	private void setNumReads( final File file, final Long[] stats ) throws Exception
+	private void setNumReads( final File file, final String id, final long[] stats ) throws Exception
 	{
 		if( SeqUtil.isForwardRead( file.getName() ) )
 		{
-			readsPerSample.put( SeqUtil.getSampleId( file.getName() ),
-					String.valueOf( stats[ INDEX_NUM_VALID_READS ] ) );
+			readsPerSample.put( id, String.valueOf( stats[ INDEX_NUM_VALID_READS ] ) );
 		}
 		else
 		{
-			rvReadsPerSample.put( SeqUtil.getSampleId( file.getName() ),
-					String.valueOf( stats[ INDEX_NUM_VALID_READS ] ) );
+			rvReadsPerSample.put( id, String.valueOf( stats[ INDEX_NUM_VALID_READS ] ) );
 		}
 
 	}
 
-	private Set<File> badFiles = new HashSet<>();
+	private Set<File> badFiles = Collections.synchronizedSet( new HashSet<>() );
 	private final Map<Long, TreeSet<String>> maxSeqFound = new HashMap<>();
 	private String otuColName = null;
 	private Map<String, String> readsPerSample = new HashMap<>();
 	private Map<String, String> rvReadsPerSample = new HashMap<>();
 	private Set<String> sampleIds = new HashSet<>();
 
-	private Map<String, Long[]> sampleStats = new HashMap<>();
+	private Map<String, long[]> sampleStats = new HashMap<>();
 
 	/**
 	 * Column name that holds number of valid reads per sample: {@value #NUM_VALID_READS}
@@ -638,11 +624,14 @@ public class SeqFileValidator extends JavaModuleImpl implements JavaModule, SeqM
 
 	private static final int INDEX_AVG_FW_READ_LEN = 6;
 	private static final int INDEX_AVG_RV_READ_LEN = 7;
+	private static final int INDEX_COMBINED_READ_LEN = 8;
 	private static final int INDEX_MAX_READS = 2;
+	private static final int INDEX_MAX_SEQ_LEN = 9;
 	private static final int INDEX_MIN_READS = 1;
 	private static final int INDEX_NUM_READS_INVALID_FORMAT = 4;
 	private static final int INDEX_NUM_READS_TOO_SHORT = 5;
 	private static final int INDEX_NUM_TRIMMED_READS = 3;
 	private static final int INDEX_NUM_VALID_READS = 0;
+	private static final int NUM_STATS = 10;
 
 }
@@ -14,6 +14,8 @@ package biolockj.module.seq;
 import java.io.*;
 import java.text.DecimalFormat;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 import biolockj.*;
 import biolockj.module.JavaModule;
 import biolockj.module.JavaModuleImpl;
@@ -396,6 +398,48 @@ public class TrimPrimers extends JavaModuleImpl implements JavaModule, SeqModule
 		return primers;
 	}
 
+	private void addMissingPrimer( final Map<String, Map<String, String>> missingPrimers, final File file,
+			final SeqRecordReader reader, final String origSequence )
+	{
+		missingPrimers.computeIfAbsent( file.getName(), k -> new HashMap<>() ).put( reader.getHeader().toString(),
+				origSequence );
+	}
+
+	/**
+	 * Set the forward and reverse primer lengths found in the read. Reverse primers are only matched against the bases
+	 * that remain after the forward primer is removed.
+	 */
+	private void findPrimers( final SeqRecordReader.Slice seq, final int[] primerLengths ) throws Exception
+	{
+		primerLengths[ FW_PRIMER ] = 0;
+		primerLengths[ RV_PRIMER ] = 0;
+		for( final PrimerMatcher primer: fwPrimers )
+		{
+			final int len = primer.match( seq, 0, seq.length() );
+			if( len > 0 )
+			{
+				if( primerLengths[ FW_PRIMER ] != 0 )
+				{
+					throw new Exception( "INVALID SEQ!  Read contains 2 forward primers!  " + seq );
+				}
+				primerLengths[ FW_PRIMER ] = len;
+			}
+		}
+
+		for( final PrimerMatcher primer: rvPrimers )
+		{
+			final int len = primer.match( seq, primerLengths[ FW_PRIMER ], seq.length() );
+			if( len > 0 )
+			{
+				if( primerLengths[ RV_PRIMER ] != 0 )
+				{
+					throw new Exception( "INVALID SEQ!  Read contains 2 reverse primers!  " + seq );
+				}
+				primerLengths[ RV_PRIMER ] = len;
+			}
+		}
+	}
+
 	private String getMetaColName() throws Exception
 	{
 		if( otuColName == null )
@@ -422,45 +466,26 @@ public class TrimPrimers extends JavaModuleImpl implements JavaModule, SeqModule
 				+ Config.requireString( this, Constants.INTERNAL_SEQ_TYPE );
 	}
 
-	private Set<String> getValidHeaders( final File file, final Set<String> primers ) throws Exception
+	private Set<String> getValidHeaders( final File file ) throws Exception
 	{
 		final Set<String> validHeaders = new HashSet<>();
-		final BufferedReader reader = BioLockJUtil.getFileReader( file );
-		int lineCounter = 1;
-		String header = null;
+		final int[] primerLengths = new int[ 2 ];
+		final SeqRecordReader reader = new SeqRecordReader( file );
 		try
 		{
-			for( String line = reader.readLine(); line != null; line = reader.readLine() )
+			while( reader.next() )
 			{
-				line = line.trim();
-				if( lineCounter % SeqUtil.getNumLinesPerRead() == 1 )
-				{
-					header = SeqUtil.getHeader( line );
-				}
-				else if( lineCounter % SeqUtil.getNumLinesPerRead() == 2 )
+				findPrimers( reader.getSeq().trim(), primerLengths );
+				if( primerLengths[ FW_PRIMER ] > 0 || primerLengths[ RV_PRIMER ] > 0 )
 				{
-					boolean foundHeader = false;
-					for( final String seq: primers )
+					final String header = SeqUtil.getHeader( reader.getHeader().toString() );
+					if( validHeaders.contains( header ) )
 					{
-						final int seqLength = line.length();
-						line = line.replaceFirst( seq, "" );
-						if( seqLength != line.length() )
-						{
-							foundHeader = true;
-						}
+						throw new Exception( "NON-FATAL Exception: Duplicate header: " + header );
 					}
 
-					if( foundHeader )
-					{
-						if( validHeaders.contains( header ) )
-						{
-							throw new Exception( "NON-FATAL Exception: Duplicate header: " + header );
-						}
-
-						validHeaders.add( header );
-					}
+					validHeaders.add( header );
 				}
-				lineCounter++;
 			}
 
 			Log.info( getClass(), file.getName() + " # valid headers = " + validHeaders.size() );
@@ -491,6 +516,22 @@ public class TrimPrimers extends JavaModuleImpl implements JavaModule, SeqModule
 		return validReadsPerSample;
 	}
 
+	private void initPrimerMatchers( final Set<String> primers ) throws Exception
+	{
+		for( final String primer: primers )
+		{
+			final PrimerMatcher matcher = new PrimerMatcher( primer );
+			if( matcher.isForward() )
+			{
+				fwPrimers.add( matcher );
+			}
+			else
+			{
+				rvPrimers.add( matcher );
+			}
+		}
+	}
+
 	private void printReports( final Map<String, Map<String, String>> missingPrimers, final String reportLabel )
 			throws Exception
 	{
@@ -531,13 +572,7 @@ public class TrimPrimers extends JavaModuleImpl implements JavaModule, SeqModule
 		}
 	}
 
-	private void processFile( final File file, final Set<String> primers ) throws Exception
-	{
-		processFile( file, new HashSet<>(), primers );
-	}
-
-	private void processFile( final File file, final Set<String> validHeaders, final Set<String> primers )
-			throws Exception
+	private void processFile( final File file, final Set<String> validHeaders ) throws Exception
 	{
 		Log.info( getClass(), "Processing file = " + file.getAbsolutePath() );
 		seqs.add( file );
@@ -550,148 +585,65 @@ public class TrimPrimers extends JavaModuleImpl implements JavaModule, SeqModule
 		final File trimmedFile = new File( getTrimFilePath( file ) );
 		Log.info( getClass(), "Create trimmed file = " + trimmedFile.getAbsolutePath() );
 
-		final BufferedReader reader = BioLockJUtil.getFileReader( file );
-		final BufferedWriter writer = new BufferedWriter( new FileWriter( trimmedFile ) );
+		long numWithPrimer = 0L;
+		long numNoPrimer = 0L;
+		long numTrimmed = 0L;
+		final int[] primerLengths = new int[ 2 ];
+		final SeqRecordReader reader = new SeqRecordReader( file );
+		SeqRecordWriter writer = null;
 		try
 		{
-			int fwPrimerLength = 0;
-			int rvPrimerLength = 0;
-			final List<String> seqLines = new ArrayList<>();
-			boolean found = false;
-
-			String origSequence = "";
-			for( String line = reader.readLine(); line != null; line = reader.readLine() )
+			writer = new SeqRecordWriter( trimmedFile );
+			while( reader.next() )
 			{
-				if( seqLines.size() == 1 )
+				final SeqRecordReader.Slice seq = reader.getSeq();
+				findPrimers( seq, primerLengths );
+				final int fwPrimerLength = primerLengths[ FW_PRIMER ];
+				final int rvPrimerLength = primerLengths[ RV_PRIMER ];
+				boolean found = false;
+				if( fwPrimerLength > 0 || rvPrimerLength > 0 )
 				{
-					origSequence = line;
-					found = false;
-					for( final String seq: primers )
+					if( mergedReadTwoPrimers && fwPrimerLength < 1 )
 					{
-						if( line.replaceFirst( seq, "" ).length() != line.length() )
-						{
-							if( seq.startsWith( "^" ) )
-							{
-								if( fwPrimerLength != 0 )
-								{
-									throw new Exception(
-											"INVALID SEQ!  Read contains 2 forward primers!  " + origSequence );
-								}
-
-								fwPrimerLength = line.length() - line.replaceFirst( seq, "" ).length();
-							}
-							else if( seq.endsWith( "$" ) )
-							{
-								if( rvPrimerLength != 0 )
-								{
-									throw new Exception(
-											"INVALID SEQ!  Read contains 2 reverse primers!  " + origSequence );
-								}
-
-								rvPrimerLength = line.length() - line.replaceFirst( seq, "" ).length();
-							}
-							else
-							{
-								throw new Exception(
-										"INVALID PRIMER!  Primers must start with \"^\" or end with \"$\"" );
-							}
-
-							line = line.replaceFirst( seq, "" );
-
-							if( mergedReadTwoPrimers && fwPrimerLength < 1 && rvPrimerLength < 1 )
-							{
-								// Log.warn( getClass(), "Read missing BOTH primers " + origSequence );
-								if( missingBothPrimers.get( file.getName() ) == null )
-								{
-									final Map<String, String> m = new HashMap<>();
-									m.put( seqLines.get( 0 ), origSequence );
-									missingBothPrimers.put( file.getName(), m );
-								}
-								else
-								{
-									missingBothPrimers.get( file.getName() ).put( seqLines.get( 0 ), origSequence );
-								}
-							}
-							else if( mergedReadTwoPrimers && fwPrimerLength < 1 )
-							{
-								Log.debug( getClass(), "Read missing forward primer " + origSequence );
-								if( missingFwPrimers.get( file.getName() ) == null )
-								{
-									final Map<String, String> m = new HashMap<>();
-									m.put( seqLines.get( 0 ), origSequence );
-									missingFwPrimers.put( file.getName(), m );
-								}
-								else
-								{
-									missingFwPrimers.get( file.getName() ).put( seqLines.get( 0 ), origSequence );
-								}
-
-							}
-							else if( mergedReadTwoPrimers && rvPrimerLength < 1 )
-							{
-								Log.debug( getClass(), "Read missing reverse primer " + origSequence );
-								if( missingRvPrimers.get( file.getName() ) == null )
-								{
-									final Map<String, String> m = new HashMap<>();
-									m.put( seqLines.get( 0 ), origSequence );
-									missingRvPrimers.put( file.getName(), m );
-								}
-								else
-								{
-									missingRvPrimers.get( file.getName() ).put( seqLines.get( 0 ), origSequence );
-								}
-							}
-							else
-							{
-								found = true;
-							}
-						}
+						Log.debug( getClass(), "Read missing forward primer " + seq );
+						addMissingPrimer( missingFwPrimers, file, reader, seq.toString() );
 					}
-
-					if( found )
+					else if( mergedReadTwoPrimers && rvPrimerLength < 1 )
 					{
-						final Long x = numLinesWithPrimer.get( file.getAbsolutePath() );
-						numLinesWithPrimer.put( file.getAbsolutePath(), x == null ? 1L: x + 1L );
+						Log.debug( getClass(), "Read missing reverse primer " + seq );
+						addMissingPrimer( missingRvPrimers, file, reader, seq.toString() );
 					}
 					else
 					{
-						final Long x = numLinesNoPrimer.get( file.getAbsolutePath() );
-						numLinesNoPrimer.put( file.getAbsolutePath(), x == null ? 1L: x + 1L );
+						found = true;
 					}
 				}
-				else if( seqLines.size() == 3 )
+
+				if( found )
 				{
-					if( fwPrimerLength > 0 )
-					{
-						line = line.substring( fwPrimerLength );
-					}
-					if( rvPrimerLength > 0 )
-					{
-						line = line.substring( 0, line.length() - rvPrimerLength );
-					}
+					numWithPrimer++;
+				}
+				else
+				{
+					numNoPrimer++;
 				}
 
-				seqLines.add( line );
-
-				if( seqLines.size() == SeqUtil.getNumLinesPerRead() )
+				final int seqLen = seq.length();
+				seq.truncate( fwPrimerLength, seqLen - rvPrimerLength );
+				final SeqRecordReader.Slice qual = reader.getQuality();
+				if( qual != null )
 				{
-					final boolean validRecord = found && ( Config.getBoolean( this, Constants.INTERNAL_PAIRED_READS )
-							? validHeaders.contains( seqLines.get( 0 ) )
-							: true );
+					qual.truncate( fwPrimerLength, qual.length() - rvPrimerLength );
+				}
 
-					if( !Config.getBoolean( this, INPUT_REQUIRE_PRIMER ) || validRecord )
-					{
-						final Long x = seqsWithPrimersTrimmed.get( file );
-						seqsWithPrimersTrimmed.put( file, x == null ? 1L: x + 1L );
+				final boolean validRecord = found && ( config.getBoolean( Constants.INTERNAL_PAIRED_READS )
+						? validHeaders.contains( SeqUtil.getHeader( reader.getHeader().toString() ) )
+						: true );
 
-						for( int j = 0; j < SeqUtil.getNumLinesPerRead(); j++ )
-						{
-							writer.write( seqLines.get( j ) + RETURN );
-						}
-					}
-					fwPrimerLength = 0;
-					rvPrimerLength = 0;
-					seqLines.clear();
+				if( !config.getBoolean( INPUT_REQUIRE_PRIMER ) || validRecord )
+				{
+					numTrimmed++;
+					writer.writeRecord( reader );
 				}
 			}
 		}
@@ -702,63 +654,87 @@ public class TrimPrimers extends JavaModuleImpl implements JavaModule, SeqModule
 		finally
 		{
 			reader.close();
-			writer.close();
+			if( writer != null )
+			{
+				writer.close();
+			}
+			if( numWithPrimer > 0 )
+			{
+				numLinesWithPrimer.put( file.getAbsolutePath(), numWithPrimer );
+			}
+			if( numNoPrimer > 0 )
+			{
+				numLinesNoPrimer.put( file.getAbsolutePath(), numNoPrimer );
+			}
+			if( numTrimmed > 0 )
+			{
+				seqsWithPrimersTrimmed.put( file, numTrimmed );
+			}
 		}
 	}
 
 	private void trimSeqs() throws Exception
 	{
-		final Set<String> primers = getPrimers();
-		final boolean hasPairedReads = Config.getBoolean( this, Constants.INTERNAL_PAIRED_READS );
+		initPrimerMatchers( getPrimers() );
+		config = new ConfigSnapshot.Builder( this ).addBoolean( Constants.INTERNAL_PAIRED_READS )
+				.addBoolean( INPUT_REQUIRE_PRIMER ).build();
+		final boolean hasPairedReads = config.getBoolean( Constants.INTERNAL_PAIRED_READS );
 		final Map<File, File> pairedReads = hasPairedReads ? SeqUtil.getPairedReads( getInputFiles() ): null;
 		final List<File> files = hasPairedReads ? new ArrayList<>( pairedReads.keySet() ): getInputFiles();
 		final int count = files == null ? 0: files.size();
-		int i = 0;
+		final AtomicInteger numDone = new AtomicInteger();
 		Log.info( getClass(), "Trimming primers from " + ( hasPairedReads ? 2 * count: count ) + " files..." );
-		for( final File file: files )
+		processFiles( files, file ->
 		{
-
-			final Set<String> validReads = getValidHeaders( file, primers );
 			if( hasPairedReads )
 			{
-				validReads.retainAll( getValidHeaders( pairedReads.get( file ), primers ) );
-				processFile( file, validReads, primers );
+				final Set<String> validReads = getValidHeaders( file );
+				validReads.retainAll( getValidHeaders( pairedReads.get( file ) ) );
+				processFile( file, validReads );
 				processFile( pairedReads.get( file ), validReads );
 			}
 			else
 			{
-				processFile( file, primers );
+				processFile( file, new HashSet<>() );
 			}
 
-			if( ( i++ + 1 ) % 25 == 0 )
+			final int i = numDone.incrementAndGet();
+			if( i % 25 == 0 )
 			{
 				Log.info( getClass(),
 						"Done trimming " + i + "/" + count + ( hasPairedReads ? " file pairs": " files" ) );
 			}
-		}
+			return null;
+		} );
 
-		Log.info( getClass(), "Done trimming " + i + "/" + count + ( hasPairedReads ? " file pairs": " files" ) );
+		Log.info( getClass(),
+				"Done trimming " + numDone.get() + "/" + count + ( hasPairedReads ? " file pairs": " files" ) );
 
 		printReports( missingBothPrimers, "missingBothPrimers" );
 		printReports( missingFwPrimers, "missingFwPrimers" );
 		printReports( missingRvPrimers, "missingRvPrimers" );
 	}
 
+	private ConfigSnapshot config = null;
+
 	private final DecimalFormat df = new DecimalFormat( "##.##" );
 
 	private boolean foundPaired = false;
 
+	private final List<PrimerMatcher> fwPrimers = new ArrayList<>();
+
 	private boolean mergedReadTwoPrimers = false;
 
-	private final Map<String, Map<String, String>> missingBothPrimers = new HashMap<>();
+	private final Map<String, Map<String, String>> missingBothPrimers = new ConcurrentHashMap<>();
 
-	private final Map<String, Map<String, String>> missingFwPrimers = new HashMap<>();
-	private final Map<String, Map<String, String>> missingRvPrimers = new HashMap<>();
-	private final Map<String, Long> numLinesNoPrimer = new HashMap<>();
-	private final Map<String, Long> numLinesWithPrimer = new HashMap<>();
+	private final Map<String, Map<String, String>> missingFwPrimers = new ConcurrentHashMap<>();
+	private final Map<String, Map<String, String>> missingRvPrimers = new ConcurrentHashMap<>();
+	private final Map<String, Long> numLinesNoPrimer = new ConcurrentHashMap<>();
+	private final Map<String, Long> numLinesWithPrimer = new ConcurrentHashMap<>();
 	private String otuColName = null;
-	private final Set<File> seqs = new HashSet<>();
-	private final Map<File, Long> seqsWithPrimersTrimmed = new HashMap<>();
+	private final List<PrimerMatcher> rvPrimers = new ArrayList<>();
+	private final Set<File> seqs = Collections.synchronizedSet( new HashSet<>() );
+	private final Map<File, Long> seqsWithPrimersTrimmed = new ConcurrentHashMap<>();
 	private final Map<String, String> validReadsPerSample = new HashMap<>();
 
 	/**
@@ -778,6 +754,8 @@ public class TrimPrimers extends JavaModuleImpl implements JavaModule, SeqModule
 	 */
 	protected static final String INPUT_REQUIRE_PRIMER = "trimPrimers.requirePrimer";
 
+	private static final int FW_PRIMER = 0;
+	private static final int RV_PRIMER = 1;
 	private static Set<String> substitutions = new HashSet<>();
 	private static final List<String> summaryMsgs = new ArrayList<>();
 }
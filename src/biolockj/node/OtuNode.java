@@ -77,6 +77,15 @@ public interface OtuNode
 	 */
 	public Map<String, String> getTaxaMap() throws Exception;
 
+	/**
+	 * Return TRUE if the node count is the cumulative count of its clade, so it includes the counts of every OTU below
+	 * it, as in classifier summary reports. Return FALSE if each node count only counts the reads assigned to that
+	 * exact OTU, as when each read is parsed separately.
+	 *
+	 * @return TRUE if node counts are cumulative
+	 */
+	public boolean isCumulativeCount();
+
 	/**
 	 * Set the number of reads for a sample ID that have this OTU assignment.
 	 *
@@ -110,15 +110,18 @@ public abstract class OtuNodeImpl implements OtuNode, Comparable<OtuNode>
 	@Override
 	public Map<String, String> delimToLevelMap()
 	{
-		if( delimToLevelMap.isEmpty() )
+		synchronized( delimToLevelMap )
 		{
-			delimToLevelMap.put( DOMAIN_DELIM, Constants.DOMAIN );
-			delimToLevelMap.put( PHYLUM_DELIM, Constants.PHYLUM );
-			delimToLevelMap.put( CLASS_DELIM, Constants.CLASS );
-			delimToLevelMap.put( ORDER_DELIM, Constants.ORDER );
-			delimToLevelMap.put( FAMILY_DELIM, Constants.FAMILY );
-			delimToLevelMap.put( GENUS_DELIM, Constants.GENUS );
-			delimToLevelMap.put( SPECIES_DELIM, Constants.SPECIES );
+			if( delimToLevelMap.isEmpty() )
+			{
+				delimToLevelMap.put( DOMAIN_DELIM, Constants.DOMAIN );
+				delimToLevelMap.put( PHYLUM_DELIM, Constants.PHYLUM );
+				delimToLevelMap.put( CLASS_DELIM, Constants.CLASS );
+				delimToLevelMap.put( ORDER_DELIM, Constants.ORDER );
+				delimToLevelMap.put( FAMILY_DELIM, Constants.FAMILY );
+				delimToLevelMap.put( GENUS_DELIM, Constants.GENUS );
+				delimToLevelMap.put( SPECIES_DELIM, Constants.SPECIES );
+			}
 		}
 		return delimToLevelMap;
 	}
@@ -199,6 +202,15 @@ public abstract class OtuNodeImpl implements OtuNode, Comparable<OtuNode>
 		return taxaMap;
 	}
 
+	/**
+	 * By default, each node counts the reads assigned to its exact OTU.
+	 */
+	@Override
+	public boolean isCumulativeCount()
+	{
+		return false;
+	}
+
 	@Override
 	public void setCount( final int count )
 	{
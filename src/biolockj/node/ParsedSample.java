@@ -34,6 +34,7 @@ public class ParsedSample implements Serializable, Comparable<ParsedSample>
 	public ParsedSample( final OtuNode node ) throws Exception
 	{
 		sampleId = node.getSampleId();
+		isCumulative = node.isCumulativeCount();
 		addNode( node );
 	}
 
@@ -82,6 +83,8 @@ public class ParsedSample implements Serializable, Comparable<ParsedSample>
 	/**
 	 * Get the streamlined taxonomy tree with counts, each OTU listed only 1 time with num occurrences in the
 	 * sample.<br>
+	 * If the {@link biolockj.node.OtuNode#isCumulativeCount()} counts are cumulative, the counts of each parent OTU are
+	 * rolled up with its descendants, otherwise every OTU count is returned as-is.<br>
 	 * Example:
 	 * d__Bacteria;p__Bacteroidetes;c__Bacteroidia;o__Bacteroidales;f__Bacteroidaceae;g__Bacteroides;s__Bacteroides_vulgatus
 	 * 87342
@@ -104,50 +107,30 @@ public class ParsedSample implements Serializable, Comparable<ParsedSample>
 		}
 
 		final TreeMap<String, Integer> fullPathOtuCounts = new TreeMap<>();
-		for( String otu: otuCounts.keySet() )
+		if( !isCumulative )
 		{
-			if( otu.isEmpty() )
+			for( final String otu: otuCounts.keySet() )
 			{
-				continue;
+				if( !otu.isEmpty() )
+				{
+					Log.debug( getClass(), "Add [ " + sampleId + " ] OTU " + otu + "=" + otuCounts.get( otu ) );
+					fullPathOtuCounts.put( otu, otuCounts.get( otu ) );
+				}
 			}
+			otuCounts = null;
+			return fullPathOtuCounts;
+		}
 
-			final Set<String> kids = getChildren( fullPathOtuCounts, otu );
-			final int otuCount = otuCounts.get( otu );
-			if( kids.isEmpty() )
-			{
-				Log.debug( getClass(), "Add [ " + sampleId + " ] OTU " + otu + "=" + otuCount );
-				fullPathOtuCounts.put( otu, otuCount );
-			}
-			else
+		final TaxaNode root = new TaxaNode();
+		for( final String otu: otuCounts.keySet() )
+		{
+			if( !otu.isEmpty() )
 			{
-				final int totalCount = totalCount( fullPathOtuCounts, kids );
-				if( totalCount < otuCount )
-				{
-					String parentTaxa = null;
-					for( final String level: TaxaUtil.getTaxaLevelSpan() )
-					{
-						if( otu.contains( level ) )
-						{
-							parentTaxa = TaxaUtil.getTaxaName( otu, level );
-						}
-						else if( parentTaxa != null )
-						{
-							otu += Constants.SEPARATOR
-									+ OtuUtil.buildOtuTaxa( level, TaxaUtil.buildUnclassifiedTaxa( parentTaxa ) );
-						}
-					}
-
-					final int diff = otuCount - totalCount;
-					fullPathOtuCounts.put( otu, diff );
-					Log.debug( getClass(),
-							"Add parent remainder count [ " + sampleId + " ] Unclassified OTU: " + otu + "=" + diff );
-				}
-				else if( otuCount >= totalCount )
-				{
-					Log.debug( getClass(), "Ignore [" + sampleId + " ] Parent OTU " + otu + "=" + otuCount );
-				}
+				root.add( otu, otuCounts.get( otu ) );
 			}
 		}
+
+		rollUp( root, fullPathOtuCounts );
 		otuCounts = null;
 		return fullPathOtuCounts;
 	}
@@ -162,29 +145,99 @@ public class ParsedSample implements Serializable, Comparable<ParsedSample>
 		return sampleId;
 	}
 
-	private Set<String> getChildren( final TreeMap<String, Integer> otuCounts, final String otu ) throws Exception
+	/**
+	 * Build the full path OTU for the unclassified remainder of a parent OTU by adding an unclassified taxa for each
+	 * level below the parent.
+	 */
+	private String buildRemainderOtu( final String parentOtu ) throws Exception
 	{
-		final Set<String> kids = new HashSet<>();
-		for( final String key: otuCounts.keySet() )
+		String otu = parentOtu;
+		String parentTaxa = null;
+		for( final String level: TaxaUtil.getTaxaLevelSpan() )
 		{
-			if( key.contains( otu ) )
+			if( otu.contains( level ) )
+			{
+				parentTaxa = TaxaUtil.getTaxaName( otu, level );
+			}
+			else if( parentTaxa != null )
 			{
-				kids.add( key );
+				otu += Constants.SEPARATOR + OtuUtil.buildOtuTaxa( level, TaxaUtil.buildUnclassifiedTaxa( parentTaxa ) );
 			}
 		}
-		return kids;
+		return otu;
+	}
+
+	/**
+	 * Add the cumulative OTU counts below the node to fullPathOtuCounts in a single bottom-up traversal. Leaf OTUs are
+	 * added as-is. If a parent OTU count exceeds the total count added for its descendants, the difference is added as
+	 * an unclassified OTU under the parent, otherwise the parent is ignored.
+	 *
+	 * @return Total count added for the node and its descendants
+	 */
+	private int rollUp( final TaxaNode node, final TreeMap<String, Integer> fullPathOtuCounts ) throws Exception
+	{
+		int totalCount = 0;
+		for( final TaxaNode kid: node.kids.values() )
+		{
+			totalCount += rollUp( kid, fullPathOtuCounts );
+		}
+
+		if( node.otu == null )
+		{
+			return totalCount;
+		}
+
+		if( node.kids.isEmpty() )
+		{
+			Log.debug( getClass(), "Add [ " + sampleId + " ] OTU " + node.otu + "=" + node.count );
+			fullPathOtuCounts.put( node.otu, node.count );
+			return node.count;
+		}
+
+		if( totalCount < node.count )
+		{
+			final String otu = buildRemainderOtu( node.otu );
+			final int diff = node.count - totalCount;
+			fullPathOtuCounts.merge( otu, diff, Integer::sum );
+			Log.debug( getClass(),
+					"Add parent remainder count [ " + sampleId + " ] Unclassified OTU: " + otu + "=" + diff );
+			return node.count;
+		}
+
+		Log.debug( getClass(), "Ignore [" + sampleId + " ] Parent OTU " + node.otu + "=" + node.count );
+		return totalCount;
 	}
 
-	private int totalCount( final TreeMap<String, Integer> otuCounts, final Set<String> otus ) throws Exception
+	/**
+	 * Taxonomy trie node with one level per {@value biolockj.Constants#SEPARATOR} delimited token of the OTU path.
+	 */
+	private static final class TaxaNode
 	{
-		int count = 0;
-		for( final String otu: otus )
+		private void add( final String otu, final int count )
 		{
-			count += otuCounts.get( otu );
+			TaxaNode node = this;
+			final StringTokenizer st = new StringTokenizer( otu, Constants.SEPARATOR );
+			while( st.hasMoreTokens() )
+			{
+				final String taxa = st.nextToken();
+				TaxaNode kid = node.kids.get( taxa );
+				if( kid == null )
+				{
+					kid = new TaxaNode();
+					node.kids.put( taxa, kid );
+				}
+				node = kid;
+			}
+			node.otu = otu;
+			node.count = count;
 		}
-		return count;
+
+		private int count = 0;
+		private final Map<String, TaxaNode> kids = new HashMap<>();
+		private String otu = null;
 	}
 
+	private final boolean isCumulative;
 	private Map<String, Integer> otuCounts = new TreeMap<>();
 	private final String sampleId;
 	private static final long serialVersionUID = 4882054401193953055L;
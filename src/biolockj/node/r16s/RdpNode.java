@@ -37,6 +37,21 @@ public class RdpNode extends OtuNodeImpl implements OtuNode
 	 */
 	public RdpNode( final String id, final String line ) throws Exception
 	{
+		this( id, line, Config.requirePositiveInteger( null, Constants.RDP_THRESHOLD_SCORE ) );
+	}
+
+	/**
+	 * Constructor called one line of RDP output with the {@value biolockj.Constants#RDP_THRESHOLD_SCORE} already read
+	 * from the {@link biolockj.Config}, so parsing a line does not look up the Config for every taxonomy level.
+	 *
+	 * @param id Sample ID
+	 * @param line RDP Classifier output line
+	 * @param thresholdScore Minimum score of included taxonomy levels
+	 * @throws Exception if propagated from {@link #buildRdpNode(String, String)}
+	 */
+	public RdpNode( final String id, final String line, final int thresholdScore ) throws Exception
+	{
+		this.thresholdScore = thresholdScore;
 		buildRdpNode( id, line );
 	}
 
@@ -88,7 +103,7 @@ public class RdpNode extends OtuNodeImpl implements OtuNode
 			final Integer nextScore = st.hasMoreTokens() ? calculateScore( st.nextToken().trim() ): null;
 
 			if( level == null || nextScore == null
-					|| nextScore < Config.requirePositiveInteger( null, Constants.RDP_THRESHOLD_SCORE ) )
+					|| nextScore < thresholdScore )
 			{
 				return;
 			}
@@ -146,6 +161,7 @@ public class RdpNode extends OtuNodeImpl implements OtuNode
 	}
 
 	private int score = 0;
+	private final int thresholdScore;
 
 	// Override default taxonomy level delimiters set in OtuNodeImpl
 	static
@@ -65,6 +65,15 @@ public class Kraken2Node extends OtuNodeImpl implements OtuNode
 		}
 	}
 
+	/**
+	 * Kraken2 report lines count every read assigned to the clade, including the reads of the OTUs below it.
+	 */
+	@Override
+	public boolean isCumulativeCount()
+	{
+		return true;
+	}
+
 	private static final String TAXA_DELIM = "\\|";
 
 }
@@ -74,6 +74,15 @@ public class MetaphlanNode extends OtuNodeImpl implements OtuNode
 		}
 	}
 
+	/**
+	 * Metaphlan report lines count every read assigned to the clade, including the reads of the OTUs below it.
+	 */
+	@Override
+	public boolean isCumulativeCount()
+	{
+		return true;
+	}
+
 	private static final String METAPHLAN_DELIM = "\\|";
 
 	// Override default DOMAIN taxonomy level delimiter (d__) set in OtuNodeImpl with QIIME domain delim (k__)
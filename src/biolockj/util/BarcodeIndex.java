@@ -0,0 +1,334 @@
+/**
+ * @UNCC Fodor Lab
+ * @author Michael Sioda
+ * @email msioda@uncc.edu
+ * @date Mar 18, 2019
+ * @disclaimer This code is free software; you can redistribute it and/or modify it under the terms of the GNU General
+ * Public License as published by the Free Software Foundation; either version 2 of the License, or (at your option) any
+ * later version, provided that any use properly credits the author. This program is distributed in the hope that it
+ * will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU General Public License for more details at http://www.gnu.org *
+ */
+package biolockj.util;
+
+import java.util.*;
+
+/**
+ * Precomputed index of demultiplexer barcodes, used to find the barcode in a sequence header or at the start of a
+ * sequence without looping over every barcode.<br>
+ * Barcodes (and optionally their reverse compliments) are compiled into an Aho-Corasick automaton, so
+ * {@link #find(CharSequence)} reads each character of the text once, however many barcodes are indexed. Barcodes at
+ * the start of a sequence are found by {@link #findPrefix(CharSequence)} with a hash lookup for each barcode length.
+ * <br>
+ * If mismatches are allowed, every sequence within Hamming distance 1 of a barcode is also indexed, unless it is
+ * within distance 1 of more than one barcode. Exact matches are always preferred to mismatches, and barcodes are
+ * preferred to reverse compliments.
+ */
+public class BarcodeIndex
+{
+	/**
+	 * Build the index.
+	 *
+	 * @param barcodeIds Map with key=barcode, value=ID returned when the barcode is found
+	 * @param addRevComp Set TRUE to also index the reverse compliment of each barcode
+	 * @param allowMismatch Set TRUE to also index sequences within Hamming distance 1 of each barcode
+	 * @throws Exception if a barcode is not a DNA sequence
+	 */
+	public BarcodeIndex( final Map<String, String> barcodeIds, final boolean addRevComp,
+			final boolean allowMismatch ) throws Exception
+	{
+		final Map<String, Match> exact = new HashMap<>();
+		final Set<String> barcodes = new HashSet<>();
+		for( final String barcode: barcodeIds.keySet() )
+		{
+			if( barcode != null && !barcode.isEmpty() )
+			{
+				barcodes.add( barcode );
+				exact.put( barcode, new Match( barcodeIds.get( barcode ), false, true ) );
+			}
+		}
+		if( addRevComp )
+		{
+			for( final String barcode: barcodes )
+			{
+				final String revComp = SeqUtil.reverseComplement( barcode );
+				if( !exact.containsKey( revComp ) )
+				{
+					exact.put( revComp, new Match( barcodeIds.get( barcode ), true, true ) );
+				}
+			}
+		}
+
+		patterns.putAll( exact );
+		if( allowMismatch )
+		{
+			addMismatches( exact );
+		}
+
+		for( final String pattern: patterns.keySet() )
+		{
+			lengths.add( pattern.length() );
+		}
+
+		buildAutomaton();
+	}
+
+	/**
+	 * Find the best barcode found anywhere in the text.
+	 *
+	 * @param text Sequence header or sequence
+	 * @return Match, or null if no barcode is found
+	 */
+	public Match find( final CharSequence text )
+	{
+		Match best = null;
+		int state = 0;
+		for( int i = 0; i < text.length(); i++ )
+		{
+			final char c = text.charAt( i );
+			final int code = c < charCodes.length ? charCodes[ c ]: NO_CODE;
+			state = code == NO_CODE ? 0: delta[ state * alphabetSize + code ];
+			final Match match = out[ state ];
+			if( match != null && ( best == null || match.rank() < best.rank() ) )
+			{
+				best = match;
+				if( best.rank() == 0 )
+				{
+					break;
+				}
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * Find the best barcode found at the start of the sequence.
+	 *
+	 * @param seq Sequence
+	 * @return Match, or null if the sequence does not start with a barcode
+	 */
+	public Match findPrefix( final CharSequence seq )
+	{
+		Match best = null;
+		for( final int len: lengths )
+		{
+			if( len > seq.length() )
+			{
+				break;
+			}
+			final Match match = patterns.get( seq.subSequence( 0, len ).toString() );
+			if( match != null && ( best == null || match.rank() < best.rank() ) )
+			{
+				best = match;
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * Barcode found in a sequence header or sequence.
+	 */
+	public static final class Match
+	{
+		private Match( final String id, final boolean isRevComp, final boolean isExact )
+		{
+			this.id = id;
+			this.isRevComp = isRevComp;
+			this.isExact = isExact;
+		}
+
+		/**
+		 * Get the ID of the barcode found.
+		 *
+		 * @return Barcode ID
+		 */
+		public String getId()
+		{
+			return id;
+		}
+
+		/**
+		 * Return TRUE if the barcode matched without mismatches.
+		 *
+		 * @return boolean
+		 */
+		public boolean isExact()
+		{
+			return isExact;
+		}
+
+		/**
+		 * Return TRUE if the reverse compliment of the barcode was found.
+		 *
+		 * @return boolean
+		 */
+		public boolean isRevComp()
+		{
+			return isRevComp;
+		}
+
+		private int rank()
+		{
+			return ( isExact ? 0: 2 ) + ( isRevComp ? 1: 0 );
+		}
+
+		private final String id;
+		private final boolean isExact;
+		private final boolean isRevComp;
+	}
+
+	private void addMismatches( final Map<String, Match> exact )
+	{
+		final Set<String> ambiguous = new HashSet<>();
+		final Map<String, Match> mismatches = new HashMap<>();
+		for( final String pattern: exact.keySet() )
+		{
+			final Match match = exact.get( pattern );
+			final char[] chars = pattern.toCharArray();
+			for( int i = 0; i < chars.length; i++ )
+			{
+				final char orig = chars[ i ];
+				for( final char base: BASES )
+				{
+					if( base == orig )
+					{
+						continue;
+					}
+					chars[ i ] = base;
+					final String variant = new String( chars );
+					if( !exact.containsKey( variant ) && !ambiguous.contains( variant ) )
+					{
+						final Match prev = mismatches.get( variant );
+						if( prev == null
+								|| prev.isRevComp() && !match.isRevComp() && prev.getId().equals( match.getId() ) )
+						{
+							mismatches.put( variant, new Match( match.getId(), match.isRevComp(), false ) );
+						}
+						else if( !prev.getId().equals( match.getId() ) )
+						{
+							mismatches.remove( variant );
+							ambiguous.add( variant );
+						}
+					}
+				}
+				chars[ i ] = orig;
+			}
+		}
+
+		patterns.putAll( mismatches );
+	}
+
+	private void buildAutomaton()
+	{
+		Arrays.fill( charCodes, NO_CODE );
+		for( final String pattern: patterns.keySet() )
+		{
+			for( int i = 0; i < pattern.length(); i++ )
+			{
+				final char c = pattern.charAt( i );
+				if( c < charCodes.length && charCodes[ c ] == NO_CODE )
+				{
+					charCodes[ c ] = alphabetSize++;
+				}
+			}
+		}
+
+		// Build the trie, with -1 for missing edges
+		int numStates = 1;
+		int[] trie = newStates( 16 );
+		Match[] trieOut = new Match[ 16 ];
+		for( final String pattern: patterns.keySet() )
+		{
+			int state = 0;
+			for( int i = 0; i < pattern.length(); i++ )
+			{
+				final char c = pattern.charAt( i );
+				if( c >= charCodes.length )
+				{
+					state = -1;
+					break;
+				}
+				final int edge = state * alphabetSize + charCodes[ c ];
+				if( trie[ edge ] < 0 )
+				{
+					if( numStates == trieOut.length )
+					{
+						final int[] grown = newStates( numStates * 2 );
+						System.arraycopy( trie, 0, grown, 0, trie.length );
+						trie = grown;
+						trieOut = Arrays.copyOf( trieOut, numStates * 2 );
+					}
+					trie[ edge ] = numStates++;
+				}
+				state = trie[ edge ];
+			}
+			if( state > 0 )
+			{
+				trieOut[ state ] = patterns.get( pattern );
+			}
+		}
+
+		// Breadth first, fill missing edges with the failure link edges so each character is a single lookup
+		delta = Arrays.copyOf( trie, numStates * alphabetSize );
+		out = Arrays.copyOf( trieOut, numStates );
+		final int[] fail = new int[ numStates ];
+		final int[] queue = new int[ numStates ];
+		int head = 0;
+		int tail = 0;
+		for( int code = 0; code < alphabetSize; code++ )
+		{
+			final int next = delta[ code ];
+			if( next < 0 )
+			{
+				delta[ code ] = 0;
+			}
+			else
+			{
+				fail[ next ] = 0;
+				queue[ tail++ ] = next;
+			}
+		}
+
+		while( head < tail )
+		{
+			final int state = queue[ head++ ];
+			final Match failOut = out[ fail[ state ] ];
+			if( failOut != null && ( out[ state ] == null || failOut.rank() < out[ state ].rank() ) )
+			{
+				out[ state ] = failOut;
+			}
+
+			for( int code = 0; code < alphabetSize; code++ )
+			{
+				final int edge = state * alphabetSize + code;
+				final int next = delta[ edge ];
+				if( next < 0 )
+				{
+					delta[ edge ] = delta[ fail[ state ] * alphabetSize + code ];
+				}
+				else
+				{
+					fail[ next ] = delta[ fail[ state ] * alphabetSize + code ];
+					queue[ tail++ ] = next;
+				}
+			}
+		}
+	}
+
+	private int[] newStates( final int numStates )
+	{
+		final int[] states = new int[ numStates * alphabetSize ];
+		Arrays.fill( states, -1 );
+		return states;
+	}
+
+	private int alphabetSize = 0;
+	private final int[] charCodes = new int[ 256 ];
+	private int[] delta = null;
+	private final TreeSet<Integer> lengths = new TreeSet<>();
+	private Match[] out = null;
+	private final Map<String, Match> patterns = new HashMap<>();
+
+	private static final char[] BASES = { 'A', 'C', 'G', 'T', 'N' };
+	private static final int NO_CODE = -1;
+}
@@ -0,0 +1,691 @@
+/**
+ * @UNCC Fodor Lab
+ * @author Michael Sioda
+ * @email msioda@uncc.edu
+ * @date Mar 13, 2019
+ * @disclaimer This code is free software; you can redistribute it and/or modify it under the terms of the GNU General
+ * Public License as published by the Free Software Foundation; either version 2 of the License, or (at your option) any
+ * later version, provided that any use properly credits the author. This program is distributed in the hope that it
+ * will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU General Public License for more details at http://www.gnu.org *
+ */
+package biolockj.util;
+
+import java.io.*;
+import java.util.*;
+import biolockj.Constants;
+
+/**
+ * Immutable sparse count matrix, with one row per sample and one column per OTU or taxa. Only non-zero counts are
+ * stored, in compressed sparse row (CSR) format, so memory use is proportional to the number of non-zero counts rather
+ * than the number of samples times the number of columns. A compressed sparse column (CSC) copy is built the 1st time
+ * column access is needed.<br>
+ * Row and column labels are kept in sorted order. Entries in a row are ordered by column index and entries in a column
+ * are ordered by row index. Entries are read by position, for example:
+ *
+ * <pre>
+ * for( int i = matrix.getRowStart( row ); i &lt; matrix.getRowEnd( row ); i++ )
+ * {
+ * 	final String col = matrix.getColLabel( matrix.getEntryCol( i ) );
+ * 	final long count = matrix.getEntryCount( i );
+ * }
+ * </pre>
+ */
+public class CountMatrix
+{
+	/**
+	 * Accumulates (row, column, count) entries and builds the {@link biolockj.util.CountMatrix}. Counts added more
+	 * than once for the same row and column are summed.
+	 */
+	public static class Builder
+	{
+		/**
+		 * Add a count to the given row and column.
+		 *
+		 * @param rowLabel Row label (sample ID)
+		 * @param colLabel Column label (OTU or taxa)
+		 * @param count Count
+		 */
+		public void add( final String rowLabel, final String colLabel, final long count )
+		{
+			if( count == 0L )
+			{
+				addRow( rowLabel );
+				return;
+			}
+
+			if( size == entryRows.length )
+			{
+				final int newSize = size * 2;
+				entryRows = Arrays.copyOf( entryRows, newSize );
+				entryCols = Arrays.copyOf( entryCols, newSize );
+				entryCounts = Arrays.copyOf( entryCounts, newSize );
+			}
+
+			entryRows[ size ] = addRow( rowLabel );
+			entryCols[ size ] = getIndex( colIds, colLabel );
+			entryCounts[ size++ ] = count;
+		}
+
+		/**
+		 * Add a row to the matrix, so that it is included even if it has no counts.
+		 *
+		 * @param rowLabel Row label (sample ID)
+		 * @return Row ID used by the builder
+		 */
+		public int addRow( final String rowLabel )
+		{
+			return getIndex( rowIds, rowLabel );
+		}
+
+		/**
+		 * Build the matrix from the entries added so far.
+		 *
+		 * @return CountMatrix
+		 */
+		public CountMatrix build()
+		{
+			final int[] rowOrder = sortLabels( rowIds );
+			final int[] colOrder = sortLabels( colIds );
+			final int numRows = rowIds.size();
+
+			// counting sort by row
+			final int[] rowPtr = new int[ numRows + 1 ];
+			for( int i = 0; i < size; i++ )
+			{
+				rowPtr[ rowOrder[ entryRows[ i ] ] + 1 ]++;
+			}
+			for( int r = 0; r < numRows; r++ )
+			{
+				rowPtr[ r + 1 ] += rowPtr[ r ];
+			}
+
+			final int[] next = Arrays.copyOf( rowPtr, numRows );
+			final int[] cols = new int[ size ];
+			final long[] counts = new long[ size ];
+			for( int i = 0; i < size; i++ )
+			{
+				final int pos = next[ rowOrder[ entryRows[ i ] ] ]++;
+				cols[ pos ] = colOrder[ entryCols[ i ] ];
+				counts[ pos ] = entryCounts[ i ];
+			}
+
+			// sort each row by column and sum duplicate entries
+			final int[] outPtr = new int[ numRows + 1 ];
+			int numEntries = 0;
+			for( int r = 0; r < numRows; r++ )
+			{
+				final int start = rowPtr[ r ];
+				final int end = rowPtr[ r + 1 ];
+				final long[] keys = new long[ end - start ];
+				for( int i = start; i < end; i++ )
+				{
+					keys[ i - start ] = (long) cols[ i ] << 32 | i - start;
+				}
+				Arrays.sort( keys );
+
+				final int[] rowCols = new int[ keys.length ];
+				final long[] rowCounts = new long[ keys.length ];
+				int n = 0;
+				for( final long key: keys )
+				{
+					final int col = (int) ( key >>> 32 );
+					final long count = counts[ start + (int) ( key & 0xffffffffL ) ];
+					if( n > 0 && rowCols[ n - 1 ] == col )
+					{
+						rowCounts[ n - 1 ] += count;
+					}
+					else
+					{
+						rowCols[ n ] = col;
+						rowCounts[ n++ ] = count;
+					}
+				}
+
+				System.arraycopy( rowCols, 0, cols, numEntries, n );
+				System.arraycopy( rowCounts, 0, counts, numEntries, n );
+				numEntries += n;
+				outPtr[ r + 1 ] = numEntries;
+			}
+
+			return new CountMatrix( sortedLabels( rowIds, rowOrder ), sortedLabels( colIds, colOrder ), outPtr,
+					Arrays.copyOf( cols, numEntries ), Arrays.copyOf( counts, numEntries ) );
+		}
+
+		private static int getIndex( final Map<String, Integer> ids, final String label )
+		{
+			Integer id = ids.get( label );
+			if( id == null )
+			{
+				id = ids.size();
+				ids.put( label, id );
+			}
+			return id;
+		}
+
+		/**
+		 * Return the sorted position of each label, indexed by builder ID.
+		 */
+		private static int[] sortLabels( final Map<String, Integer> ids )
+		{
+			final int[] order = new int[ ids.size() ];
+			int i = 0;
+			for( final Integer id: new TreeMap<>( ids ).values() )
+			{
+				order[ id ] = i++;
+			}
+			return order;
+		}
+
+		private static String[] sortedLabels( final Map<String, Integer> ids, final int[] order )
+		{
+			final String[] labels = new String[ ids.size() ];
+			for( final String label: ids.keySet() )
+			{
+				labels[ order[ ids.get( label ) ] ] = label;
+			}
+			return labels;
+		}
+
+		private final Map<String, Integer> colIds = new HashMap<>();
+		private long[] entryCounts = new long[ INIT_SIZE ];
+		private int[] entryCols = new int[ INIT_SIZE ];
+		private int[] entryRows = new int[ INIT_SIZE ];
+		private final Map<String, Integer> rowIds = new HashMap<>();
+		private int size = 0;
+	}
+
+	/**
+	 * Maps each column label to the label of the column it is aggregated into by
+	 * {@link CountMatrix#aggregateCols(ColMapper)}.
+	 */
+	public interface ColMapper
+	{
+		/**
+		 * Get the new column label.
+		 *
+		 * @param colLabel Column label
+		 * @return New column label, or null to drop the column
+		 * @throws Exception if errors occur
+		 */
+		public String map( String colLabel ) throws Exception;
+	}
+
+	/**
+	 * Decides which entries are kept by {@link CountMatrix#filter(EntryFilter)}.
+	 */
+	public interface EntryFilter
+	{
+		/**
+		 * Check if the entry should be kept.
+		 *
+		 * @param row Row index
+		 * @param col Column index
+		 * @param count Count
+		 * @return TRUE to keep the entry
+		 * @throws Exception if errors occur
+		 */
+		public boolean keep( int row, int col, long count ) throws Exception;
+	}
+
+	private CountMatrix( final String[] rowLabels, final String[] colLabels, final int[] rowPtr, final int[] cols,
+			final long[] counts )
+	{
+		this.rowLabels = rowLabels;
+		this.colLabels = colLabels;
+		this.rowPtr = rowPtr;
+		this.cols = cols;
+		this.counts = counts;
+	}
+
+	/**
+	 * Build a new matrix by mapping each column to a new column label and summing the counts of columns that map to
+	 * the same label in each row. For example, an OTU matrix is aggregated into a taxa matrix by mapping each OTU to
+	 * its taxa at one level. Rows and columns without counts are not included in the new matrix.
+	 *
+	 * @param mapper ColMapper
+	 * @return New CountMatrix
+	 * @throws Exception if errors occur
+	 */
+	public CountMatrix aggregateCols( final ColMapper mapper ) throws Exception
+	{
+		return aggregateCols( Collections.singletonList( mapper ) ).get( 0 );
+	}
+
+	/**
+	 * Build a new matrix for each mapper, as {@link #aggregateCols(ColMapper)} does, in a single pass over the
+	 * entries. For example, an OTU matrix is aggregated into a taxa matrix for every level at once by mapping each OTU
+	 * to its taxa at each level.
+	 *
+	 * @param mappers List of ColMapper
+	 * @return List of new CountMatrix, in the same order as the mappers
+	 * @throws Exception if errors occur
+	 */
+	public List<CountMatrix> aggregateCols( final List<ColMapper> mappers ) throws Exception
+	{
+		final int numMaps = mappers.size();
+		final int[][] newCols = new int[ numMaps ][ colLabels.length ];
+		final String[][] newLabels = new String[ numMaps ][];
+		for( int m = 0; m < numMaps; m++ )
+		{
+			final Map<String, Integer> newColIds = new HashMap<>();
+			for( int c = 0; c < colLabels.length; c++ )
+			{
+				final String label = mappers.get( m ).map( colLabels[ c ] );
+				newCols[ m ][ c ] = label == null ? -1: Builder.getIndex( newColIds, label );
+			}
+
+			newLabels[ m ] = new String[ newColIds.size() ];
+			for( final String label: newColIds.keySet() )
+			{
+				newLabels[ m ][ newColIds.get( label ) ] = label;
+			}
+		}
+
+		final Builder[] builders = new Builder[ numMaps ];
+		final long[][] rowCounts = new long[ numMaps ][];
+		final int[][] touched = new int[ numMaps ][];
+		for( int m = 0; m < numMaps; m++ )
+		{
+			builders[ m ] = new Builder();
+			rowCounts[ m ] = new long[ newLabels[ m ].length ];
+			touched[ m ] = new int[ newLabels[ m ].length ];
+		}
+
+		final int[] numTouched = new int[ numMaps ];
+		for( int r = 0; r < rowLabels.length; r++ )
+		{
+			for( int i = rowPtr[ r ]; i < rowPtr[ r + 1 ]; i++ )
+			{
+				for( int m = 0; m < numMaps; m++ )
+				{
+					final int col = newCols[ m ][ cols[ i ] ];
+					if( col > -1 )
+					{
+						if( rowCounts[ m ][ col ] == 0L )
+						{
+							touched[ m ][ numTouched[ m ]++ ] = col;
+						}
+						rowCounts[ m ][ col ] += counts[ i ];
+					}
+				}
+			}
+
+			for( int m = 0; m < numMaps; m++ )
+			{
+				for( int i = 0; i < numTouched[ m ]; i++ )
+				{
+					final int col = touched[ m ][ i ];
+					builders[ m ].add( rowLabels[ r ], newLabels[ m ][ col ], rowCounts[ m ][ col ] );
+					rowCounts[ m ][ col ] = 0L;
+				}
+				numTouched[ m ] = 0;
+			}
+		}
+
+		final List<CountMatrix> matrices = new ArrayList<>();
+		for( final Builder builder: builders )
+		{
+			matrices.add( builder.build() );
+		}
+		return matrices;
+	}
+
+	/**
+	 * Build a new matrix with only the entries accepted by the filter. Rows and columns without counts are not
+	 * included in the new matrix.
+	 *
+	 * @param filter EntryFilter
+	 * @return New CountMatrix
+	 * @throws Exception if errors occur
+	 */
+	public CountMatrix filter( final EntryFilter filter ) throws Exception
+	{
+		final Builder builder = new Builder();
+		for( int r = 0; r < rowLabels.length; r++ )
+		{
+			for( int i = rowPtr[ r ]; i < rowPtr[ r + 1 ]; i++ )
+			{
+				if( filter.keep( r, cols[ i ], counts[ i ] ) )
+				{
+					builder.add( rowLabels[ r ], colLabels[ cols[ i ] ], counts[ i ] );
+				}
+			}
+		}
+		return builder.build();
+	}
+
+	/**
+	 * Get the count at the given row and column.
+	 *
+	 * @param row Row index
+	 * @param col Column index
+	 * @return Count, or 0 if no count is stored
+	 */
+	public long get( final int row, final int col )
+	{
+		final int i = Arrays.binarySearch( cols, rowPtr[ row ], rowPtr[ row + 1 ], col );
+		return i < 0 ? 0L: counts[ i ];
+	}
+
+	/**
+	 * Get the end position (exclusive) of the column entries.
+	 *
+	 * @param col Column index
+	 * @return Position
+	 */
+	public int getColEnd( final int col )
+	{
+		return getColPtr()[ col + 1 ];
+	}
+
+	/**
+	 * Get the count of the column entry at the given position.
+	 *
+	 * @param pos Position between {@link #getColStart(int)} and {@link #getColEnd(int)}
+	 * @return Count
+	 */
+	public long getColEntryCount( final int pos )
+	{
+		getColPtr();
+		return colCounts[ pos ];
+	}
+
+	/**
+	 * Get the row index of the column entry at the given position.
+	 *
+	 * @param pos Position between {@link #getColStart(int)} and {@link #getColEnd(int)}
+	 * @return Row index
+	 */
+	public int getColEntryRow( final int pos )
+	{
+		getColPtr();
+		return colRows[ pos ];
+	}
+
+	/**
+	 * Get the column index for the label.
+	 *
+	 * @param colLabel Column label
+	 * @return Column index, or -1 if not found
+	 */
+	public int getColIndex( final String colLabel )
+	{
+		final int i = Arrays.binarySearch( colLabels, colLabel );
+		return i < 0 ? -1: i;
+	}
+
+	/**
+	 * Get the column label.
+	 *
+	 * @param col Column index
+	 * @return Column label
+	 */
+	public String getColLabel( final int col )
+	{
+		return colLabels[ col ];
+	}
+
+	/**
+	 * Get the sorted column labels.
+	 *
+	 * @return List of column labels
+	 */
+	public List<String> getColLabels()
+	{
+		return Collections.unmodifiableList( Arrays.asList( colLabels ) );
+	}
+
+	/**
+	 * Get the start position of the column entries.
+	 *
+	 * @param col Column index
+	 * @return Position
+	 */
+	public int getColStart( final int col )
+	{
+		return getColPtr()[ col ];
+	}
+
+	/**
+	 * Get the sum of the column counts.
+	 *
+	 * @param col Column index
+	 * @return Column total
+	 */
+	public long getColTotal( final int col )
+	{
+		long total = 0L;
+		for( int i = getColStart( col ); i < getColEnd( col ); i++ )
+		{
+			total += colCounts[ i ];
+		}
+		return total;
+	}
+
+	/**
+	 * Get the column index of the row entry at the given position.
+	 *
+	 * @param pos Position between {@link #getRowStart(int)} and {@link #getRowEnd(int)}
+	 * @return Column index
+	 */
+	public int getEntryCol( final int pos )
+	{
+		return cols[ pos ];
+	}
+
+	/**
+	 * Get the count of the row entry at the given position.
+	 *
+	 * @param pos Position between {@link #getRowStart(int)} and {@link #getRowEnd(int)}
+	 * @return Count
+	 */
+	public long getEntryCount( final int pos )
+	{
+		return counts[ pos ];
+	}
+
+	/**
+	 * Get the number of columns.
+	 *
+	 * @return Number of columns
+	 */
+	public int getNumCols()
+	{
+		return colLabels.length;
+	}
+
+	/**
+	 * Get the number of non-zero counts.
+	 *
+	 * @return Number of entries
+	 */
+	public int getNumEntries()
+	{
+		return cols.length;
+	}
+
+	/**
+	 * Get the number of rows.
+	 *
+	 * @return Number of rows
+	 */
+	public int getNumRows()
+	{
+		return rowLabels.length;
+	}
+
+	/**
+	 * Get the end position (exclusive) of the row entries.
+	 *
+	 * @param row Row index
+	 * @return Position
+	 */
+	public int getRowEnd( final int row )
+	{
+		return rowPtr[ row + 1 ];
+	}
+
+	/**
+	 * Get the row index for the label.
+	 *
+	 * @param rowLabel Row label
+	 * @return Row index, or -1 if not found
+	 */
+	public int getRowIndex( final String rowLabel )
+	{
+		final int i = Arrays.binarySearch( rowLabels, rowLabel );
+		return i < 0 ? -1: i;
+	}
+
+	/**
+	 * Get the row label.
+	 *
+	 * @param row Row index
+	 * @return Row label
+	 */
+	public String getRowLabel( final int row )
+	{
+		return rowLabels[ row ];
+	}
+
+	/**
+	 * Get the sorted row labels.
+	 *
+	 * @return List of row labels
+	 */
+	public List<String> getRowLabels()
+	{
+		return Collections.unmodifiableList( Arrays.asList( rowLabels ) );
+	}
+
+	/**
+	 * Get the start position of the row entries.
+	 *
+	 * @param row Row index
+	 * @return Position
+	 */
+	public int getRowStart( final int row )
+	{
+		return rowPtr[ row ];
+	}
+
+	/**
+	 * Get the sum of the row counts.
+	 *
+	 * @param row Row index
+	 * @return Row total
+	 */
+	public long getRowTotal( final int row )
+	{
+		long total = 0L;
+		for( int i = rowPtr[ row ]; i < rowPtr[ row + 1 ]; i++ )
+		{
+			total += counts[ i ];
+		}
+		return total;
+	}
+
+	/**
+	 * Write the matrix as a dense tab delimited table, with a header line of column labels and one line per row.
+	 * Rows without counts are skipped.
+	 *
+	 * @param file Output file
+	 * @param idLabel Label of the row ID column
+	 * @throws Exception if errors occur writing the file
+	 */
+	public void writeTable( final File file, final String idLabel ) throws Exception
+	{
+		final OutputStream out = new BufferedOutputStream( new FileOutputStream( file ), WRITE_BUFFER_SIZE );
+		try
+		{
+			final StringBuilder sb = new StringBuilder( idLabel );
+			for( final String label: colLabels )
+			{
+				sb.append( Constants.TAB_DELIM ).append( label );
+			}
+			out.write( sb.append( Constants.RETURN ).toString().getBytes() );
+
+			for( int r = 0; r < rowLabels.length; r++ )
+			{
+				if( rowPtr[ r ] == rowPtr[ r + 1 ] )
+				{
+					continue;
+				}
+
+				sb.setLength( 0 );
+				sb.append( rowLabels[ r ] );
+				int i = rowPtr[ r ];
+				for( int c = 0; c < colLabels.length; c++ )
+				{
+					sb.append( Constants.TAB_DELIM );
+					if( i < rowPtr[ r + 1 ] && cols[ i ] == c )
+					{
+						sb.append( counts[ i++ ] );
+					}
+					else
+					{
+						sb.append( '0' );
+					}
+				}
+				out.write( sb.append( Constants.RETURN ).toString().getBytes() );
+			}
+		}
+		finally
+		{
+			out.close();
+		}
+	}
+
+	private int[] getColPtr()
+	{
+		final int[] ptr = colPtr;
+		return ptr == null ? initCols(): ptr;
+	}
+
+	/**
+	 * Build the CSC copy of the matrix on first use.
+	 */
+	private synchronized int[] initCols()
+	{
+		if( colPtr == null )
+		{
+			final int[] ptr = new int[ colLabels.length + 1 ];
+			for( final int col: cols )
+			{
+				ptr[ col + 1 ]++;
+			}
+			for( int c = 0; c < colLabels.length; c++ )
+			{
+				ptr[ c + 1 ] += ptr[ c ];
+			}
+
+			final int[] next = Arrays.copyOf( ptr, colLabels.length );
+			colRows = new int[ cols.length ];
+			colCounts = new long[ cols.length ];
+			for( int r = 0; r < rowLabels.length; r++ )
+			{
+				for( int i = rowPtr[ r ]; i < rowPtr[ r + 1 ]; i++ )
+				{
+					final int pos = next[ cols[ i ] ]++;
+					colRows[ pos ] = r;
+					colCounts[ pos ] = counts[ i ];
+				}
+			}
+			colPtr = ptr;
+		}
+		return colPtr;
+	}
+
+	private long[] colCounts = null;
+	private final String[] colLabels;
+	private volatile int[] colPtr = null;
+	private int[] colRows = null;
+	private final int[] cols;
+	private final long[] counts;
+	private final String[] rowLabels;
+	private final int[] rowPtr;
+
+	private static final int INIT_SIZE = 1024;
+	private static final int WRITE_BUFFER_SIZE = 1024 * 1024;
+}
@@ -0,0 +1,286 @@
+/**
+ * @UNCC Fodor Lab
+ * @author Michael Sioda
+ * @email msioda@uncc.edu
+ * @date Mar 14, 2019
+ * @disclaimer This code is free software; you can redistribute it and/or modify it under the terms of the GNU General
+ * Public License as published by the Free Software Foundation; either version 2 of the License, or (at your option) any
+ * later version, provided that any use properly credits the author. This program is distributed in the hope that it
+ * will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU General Public License for more details at http://www.gnu.org *
+ */
+package biolockj.util;
+
+import java.io.*;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.util.*;
+import biolockj.Constants;
+
+/**
+ * Reads and writes a {@link biolockj.util.CountMatrix} in a compact binary format, so Java report modules can pass
+ * OTU counts and taxonomy tables to each other without formatting and parsing text.<br>
+ * File layout:
+ * <ol>
+ * <li>Header: magic number, format version, then the dictionary of column labels and row labels
+ * <li>Body: for each row, the number of entries followed by (column index delta, count) pairs, all varint encoded
+ * <li>Footer: the byte offset of each row, the byte offset of the footer, and the magic number
+ * </ol>
+ * The footer index allows a subset of rows to be read without reading the whole body.
+ */
+public class CountMatrixFile
+{
+	// Prevent instantiation
+	private CountMatrixFile()
+	{}
+
+	/**
+	 * Get the binary count file to save alongside the given TSV file.
+	 *
+	 * @param tsvFile OTU count or taxonomy table file
+	 * @return Binary count file
+	 */
+	public static File getBinaryFile( final File tsvFile )
+	{
+		String name = tsvFile.getName();
+		if( name.endsWith( Constants.TSV_EXT ) )
+		{
+			name = name.substring( 0, name.length() - Constants.TSV_EXT.length() );
+		}
+		return new File( tsvFile.getParentFile(), name + BINARY_EXT );
+	}
+
+	/**
+	 * Read the matrix from the file.
+	 *
+	 * @param file Binary count file
+	 * @return CountMatrix
+	 * @throws Exception if the file is not a valid binary count file
+	 */
+	public static CountMatrix read( final File file ) throws Exception
+	{
+		return read( file, null );
+	}
+
+	/**
+	 * Read the given rows of the matrix from the file. Rows are located with the footer index, so only the bytes of
+	 * the selected rows are read.
+	 *
+	 * @param file Binary count file
+	 * @param rowLabels Row labels to read, or null to read every row
+	 * @return CountMatrix
+	 * @throws Exception if the file is not a valid binary count file or any of the rows are not found
+	 */
+	public static CountMatrix read( final File file, final Collection<String> rowLabels ) throws Exception
+	{
+		final FileInputStream fis = new FileInputStream( file );
+		try
+		{
+			final FileChannel channel = fis.getChannel();
+			final long[] rowOffsets = readFooter( file, channel );
+
+			DataInputStream in = new DataInputStream( new BufferedInputStream( Channels.newInputStream( channel ) ) );
+			if( in.readInt() != MAGIC || in.readByte() != VERSION )
+			{
+				throw new Exception( "Invalid binary count file: " + file.getAbsolutePath() );
+			}
+
+			final String[] cols = readLabels( in );
+			final String[] rows = readLabels( in );
+			if( rows.length != rowOffsets.length )
+			{
+				throw new Exception( "Corrupt binary count file index: " + file.getAbsolutePath() );
+			}
+
+			final CountMatrix.Builder builder = new CountMatrix.Builder();
+			if( rowLabels == null )
+			{
+				channel.position( rowOffsets.length > 0 ? rowOffsets[ 0 ]: 0L );
+				in = new DataInputStream( new BufferedInputStream( Channels.newInputStream( channel ) ) );
+				for( final String row: rows )
+				{
+					readRow( in, builder, row, cols );
+				}
+				return builder.build();
+			}
+
+			final Map<String, Integer> rowIndex = new HashMap<>();
+			for( int i = 0; i < rows.length; i++ )
+			{
+				rowIndex.put( rows[ i ], i );
+			}
+
+			for( final String row: rowLabels )
+			{
+				final Integer i = rowIndex.get( row );
+				if( i == null )
+				{
+					throw new Exception(
+							"Row [ " + row + " ] not found in binary count file: " + file.getAbsolutePath() );
+				}
+				channel.position( rowOffsets[ i ] );
+				in = new DataInputStream(
+						new BufferedInputStream( Channels.newInputStream( channel ), ROW_BUFFER_SIZE ) );
+				readRow( in, builder, row, cols );
+			}
+
+			return builder.build();
+		}
+		finally
+		{
+			fis.close();
+		}
+	}
+
+	/**
+	 * Read the row labels from the file header.
+	 *
+	 * @param file Binary count file
+	 * @return List of row labels
+	 * @throws Exception if the file is not a valid binary count file
+	 */
+	public static List<String> readRowLabels( final File file ) throws Exception
+	{
+		final DataInputStream in = new DataInputStream( new BufferedInputStream( new FileInputStream( file ) ) );
+		try
+		{
+			if( in.readInt() != MAGIC || in.readByte() != VERSION )
+			{
+				throw new Exception( "Invalid binary count file: " + file.getAbsolutePath() );
+			}
+			readLabels( in );
+			return Arrays.asList( readLabels( in ) );
+		}
+		finally
+		{
+			in.close();
+		}
+	}
+
+	/**
+	 * Write the matrix to the file.
+	 *
+	 * @param matrix CountMatrix
+	 * @param file Output file
+	 * @throws Exception if errors occur writing the file
+	 */
+	public static void write( final CountMatrix matrix, final File file ) throws Exception
+	{
+		final DataOutputStream out = new DataOutputStream(
+				new BufferedOutputStream( new FileOutputStream( file ), WRITE_BUFFER_SIZE ) );
+		try
+		{
+			final ByteArrayOutputStream header = new ByteArrayOutputStream();
+			final DataOutputStream headerOut = new DataOutputStream( header );
+			headerOut.writeInt( MAGIC );
+			headerOut.writeByte( VERSION );
+			writeLabels( headerOut, matrix.getColLabels() );
+			writeLabels( headerOut, matrix.getRowLabels() );
+			headerOut.flush();
+			header.writeTo( out );
+
+			long offset = header.size();
+			final long[] rowOffsets = new long[ matrix.getNumRows() ];
+			final ByteArrayOutputStream rowBytes = new ByteArrayOutputStream();
+			final DataOutputStream rowOut = new DataOutputStream( rowBytes );
+			for( int row = 0; row < matrix.getNumRows(); row++ )
+			{
+				rowBytes.reset();
+				VarLongUtil.writeVarLong( rowOut, matrix.getRowEnd( row ) - matrix.getRowStart( row ) );
+				int prevCol = 0;
+				for( int i = matrix.getRowStart( row ); i < matrix.getRowEnd( row ); i++ )
+				{
+					VarLongUtil.writeVarLong( rowOut, matrix.getEntryCol( i ) - prevCol );
+					VarLongUtil.writeVarLong( rowOut, VarLongUtil.zigZag( matrix.getEntryCount( i ) ) );
+					prevCol = matrix.getEntryCol( i );
+				}
+				rowOut.flush();
+
+				rowOffsets[ row ] = offset;
+				rowBytes.writeTo( out );
+				offset += rowBytes.size();
+			}
+
+			for( final long rowOffset: rowOffsets )
+			{
+				out.writeLong( rowOffset );
+			}
+			out.writeLong( offset );
+			out.writeInt( MAGIC );
+		}
+		finally
+		{
+			out.close();
+		}
+	}
+
+	private static String[] readLabels( final DataInputStream in ) throws IOException
+	{
+		final String[] labels = new String[ (int) VarLongUtil.readVarLong( in ) ];
+		for( int i = 0; i < labels.length; i++ )
+		{
+			labels[ i ] = in.readUTF();
+		}
+		return labels;
+	}
+
+	private static long[] readFooter( final File file, final FileChannel channel ) throws Exception
+	{
+		final long size = channel.size();
+		if( size < FOOTER_TAIL_SIZE )
+		{
+			throw new Exception( "Invalid binary count file: " + file.getAbsolutePath() );
+		}
+
+		channel.position( size - FOOTER_TAIL_SIZE );
+		DataInputStream in = new DataInputStream( Channels.newInputStream( channel ) );
+		final long footerStart = in.readLong();
+		if( in.readInt() != MAGIC || footerStart < 0 || footerStart > size - FOOTER_TAIL_SIZE )
+		{
+			throw new Exception( "Invalid binary count file footer: " + file.getAbsolutePath() );
+		}
+
+		final long[] rowOffsets = new long[ (int) ( ( size - FOOTER_TAIL_SIZE - footerStart ) / 8 ) ];
+		channel.position( footerStart );
+		in = new DataInputStream( new BufferedInputStream( Channels.newInputStream( channel ) ) );
+		for( int i = 0; i < rowOffsets.length; i++ )
+		{
+			rowOffsets[ i ] = in.readLong();
+		}
+		channel.position( 0L );
+		return rowOffsets;
+	}
+
+	private static void readRow( final DataInputStream in, final CountMatrix.Builder builder, final String row,
+			final String[] cols ) throws IOException
+	{
+		builder.addRow( row );
+		final long numEntries = VarLongUtil.readVarLong( in );
+		int col = 0;
+		for( long i = 0; i < numEntries; i++ )
+		{
+			col += (int) VarLongUtil.readVarLong( in );
+			builder.add( row, cols[ col ], VarLongUtil.unZigZag( VarLongUtil.readVarLong( in ) ) );
+		}
+	}
+
+	private static void writeLabels( final DataOutputStream out, final List<String> labels ) throws IOException
+	{
+		VarLongUtil.writeVarLong( out, labels.size() );
+		for( final String label: labels )
+		{
+			out.writeUTF( label );
+		}
+	}
+
+	/**
+	 * File extension of binary count files: {@value #BINARY_EXT}
+	 */
+	public static final String BINARY_EXT = ".bcm";
+
+	private static final int FOOTER_TAIL_SIZE = 12;
+	private static final int MAGIC = 0x424C4A4D;
+	private static final int ROW_BUFFER_SIZE = 1024;
+	private static final byte VERSION = 1;
+	private static final int WRITE_BUFFER_SIZE = 1024 * 1024;
+}
@@ -15,6 +15,7 @@ import java.io.File;
 import java.util.*;
 import biolockj.Config;
 import biolockj.Log;
+import biolockj.exception.ConfigFormatException;
 import biolockj.exception.ConfigNotFoundException;
 import biolockj.exception.ConfigPathException;
 
@@ -24,6 +25,17 @@ import biolockj.exception.ConfigPathException;
 public class DemuxUtil
 {
 
+	/**
+	 * Return TRUE if Config allows a barcode to match with one mismatch, set by {@value #BARCODE_MISMATCH}.
+	 * 
+	 * @return boolean
+	 * @throws ConfigFormatException if {@value #BARCODE_MISMATCH} is not Y or N
+	 */
+	public static boolean allowBarcodeMismatch() throws ConfigFormatException
+	{
+		return Config.getBoolean( null, BARCODE_MISMATCH );
+	}
+
 	/**
 	 * Return TRUE if Config is setup to demultiplex the sequence data based on bar-codes in the sequence headers.
 	 * 
@@ -172,7 +184,7 @@ public class DemuxUtil
 	/**
 	 * Determine Sample Id by examining the sequence lines.<br>
 	 * If {@value #DEMUX_STRATEGY }={@value #OPTION_ID_IN_HEADER}, extract the Sample Id from the sequence header via
-	 * {@link biolockj.util.SeqUtil#getSampleId(String)}<br>
+	 * {@link biolockj.util.SeqUtil#getSampleIdFromHeader(String)}<br>
 	 * If {@value #DEMUX_STRATEGY }={@value #OPTION_BARCODE_IN_HEADER} and the sequence header contains a bar-code in
 	 * the idMap, return the corresponding SampleID from the idMap.<br>
 	 * If {@value #DEMUX_STRATEGY }={@value #OPTION_BARCODE_IN_MAPPING} and the sequence header maps to a bar-code in
@@ -186,27 +198,36 @@ public class DemuxUtil
 	 */
 	public static String getSampleId( final List<String> seqLines ) throws Exception
 	{
-		if( demuxWithBarcode() )
-		{
-			final Map<String, String> idMap = getIdMap();
-			if( idMap != null )
-			{
-				for( final String barCodeId: idMap.keySet() )
-				{
-					if( ( barcodeInHeader() || barcodeInMapping() ) && seqLines.get( 0 ).contains( barCodeId )
-							|| barcodeInSeq() && seqLines.get( 1 ).startsWith( barCodeId ) )
-					{
-						return idMap.get( barCodeId );
-					}
-
-				}
-			}
-
-			return null;
-		}
+		return getSampleId( seqLines.get( 0 ), seqLines.get( 1 ) );
+	}
 
-		return SeqUtil.getSampleId( seqLines.get( 0 ) );
+	/**
+	 * Determine Sample Id from the header and sequence of one read, as described in {@link #getSampleId(List)}.<br>
+	 * The Config is read on every call, so callers that look up many reads should use a {@link SampleIdFinder}.
+	 * 
+	 * @param header Sequence header
+	 * @param seq Sequence
+	 * @return Sample ID or null
+	 * @throws Exception if propagated from {@link biolockj.util.SeqUtil} or {@link biolockj.Config}
+	 */
+	public static String getSampleId( final CharSequence header, final CharSequence seq ) throws Exception
+	{
+		return getSampleIdFinder().getSampleId( header, seq );
+	}
 
+	/**
+	 * Get a {@link SampleIdFinder} for the current {@link biolockj.Config}. The demultiplexer strategy, the barcode
+	 * column check, and the barcode index are resolved once here instead of for every read, so the finder must be
+	 * replaced if {@value #DEMUX_STRATEGY} or the barcode column change.
+	 *
+	 * @return SampleIdFinder
+	 * @throws Exception if propagated from {@link biolockj.util.MetaUtil} or {@link biolockj.Config}
+	 */
+	public static SampleIdFinder getSampleIdFinder() throws Exception
+	{
+		final boolean useBarcodes = demuxWithBarcode();
+		return new SampleIdFinder( useBarcodes, useBarcodes ? getBarcodeIndex(): null,
+				barcodeInHeader() || barcodeInMapping(), barcodeInSeq() );
 	}
 
 	/**
@@ -262,6 +283,29 @@ public class DemuxUtil
 				&& Config.getString( null, DEMUX_STRATEGY ).equals( OPTION_ID_IN_HEADER );
 	}
 
+	/**
+	 * Return the index of the ID map bar-codes, built on first use.
+	 *
+	 * @return BarcodeIndex, or null if bar-codes are not used
+	 * @throws Exception if propagated from {@link biolockj.util.MetaUtil} or {@link biolockj.Config}
+	 */
+	protected static synchronized BarcodeIndex getBarcodeIndex() throws Exception
+	{
+		if( barcodeIndex == null )
+		{
+			final Map<String, String> ids = getIdMap();
+			if( ids == null )
+			{
+				return null;
+			}
+
+			barcodeIndex = new BarcodeIndex( ids, false, allowBarcodeMismatch() );
+			Log.info( DemuxUtil.class, "Built barcode index for " + ids.size() + " barcodes"
+					+ ( allowBarcodeMismatch() ? " allowing 1 mismatch": "" ) );
+		}
+		return barcodeIndex;
+	}
+
 	/**
 	 * Return the ID map (key=barcodeID, value=sampleId) Print the map to the log file.<br>
 	 * Barcodes, if used, are located in the metadata column defined by property:
@@ -336,12 +380,75 @@ public class DemuxUtil
 	// return new File( headerFileMap.get( barcode ) );
 	// }
 
+	/**
+	 * Finds the Sample ID of each read with the demultiplexer settings resolved by
+	 * {@link DemuxUtil#getSampleIdFinder()}.
+	 * Bar-codes are found with a {@link biolockj.util.BarcodeIndex} built once from the idMap, so the cost depends on
+	 * the header and sequence length, not the number of bar-codes or Config lookups.
+	 */
+	public static final class SampleIdFinder
+	{
+		private SampleIdFinder( final boolean useBarcodes, final BarcodeIndex index, final boolean matchHeader,
+				final boolean matchSeq )
+		{
+			this.useBarcodes = useBarcodes;
+			this.index = index;
+			this.matchHeader = matchHeader;
+			this.matchSeq = matchSeq;
+		}
+
+		/**
+		 * Determine Sample Id from the header and sequence of one read, as described in
+		 * {@link DemuxUtil#getSampleId(List)}.
+		 *
+		 * @param header Sequence header
+		 * @param seq Sequence
+		 * @return Sample ID or null
+		 * @throws Exception if propagated from {@link biolockj.util.SeqUtil}
+		 */
+		public String getSampleId( final CharSequence header, final CharSequence seq ) throws Exception
+		{
+			if( useBarcodes )
+			{
+				if( index != null )
+				{
+					BarcodeIndex.Match match = null;
+					if( matchHeader )
+					{
+						match = index.find( header );
+					}
+					if( match == null && matchSeq )
+					{
+						match = index.findPrefix( seq );
+					}
+					return match == null ? null: match.getId();
+				}
+
+				return null;
+			}
+
+			return SeqUtil.getSampleIdFromHeader( header.toString() );
+		}
+
+		private final BarcodeIndex index;
+		private final boolean matchHeader;
+		private final boolean matchSeq;
+		private final boolean useBarcodes;
+	}
+
 	/**
 	 * {@link biolockj.Config} boolean property {@value #BARCODE_CUTOFF} will look for barcodes in
 	 * {@value biolockj.util.MetaUtil#META_BARCODE_COLUMN} to exist in this percentage of multiplex file.
 	 */
 	public static final String BARCODE_CUTOFF = "demultiplexer.barcodeCutoff";
 
+	/**
+	 * {@link biolockj.Config} boolean property {@value #BARCODE_MISMATCH} will match
+	 * {@value biolockj.util.MetaUtil#META_BARCODE_COLUMN} barcodes with 1 mismatched base, if the read is not within 1
+	 * mismatch of any other barcode.
+	 */
+	public static final String BARCODE_MISMATCH = "demultiplexer.barcodeMismatch";
+
 	/**
 	 * {@link biolockj.Config} boolean property {@value #BARCODE_USE_REV_COMP} will use the reverse compliment of
 	 * {@value biolockj.util.MetaUtil#META_BARCODE_COLUMN} to match sample IDs to sequences.
@@ -388,6 +495,7 @@ public class DemuxUtil
 	 */
 	public static final String OPTION_ID_IN_HEADER = "id_in_header";
 
+	private static BarcodeIndex barcodeIndex = null;
 	// private static final Map<String, String> headerFileMap = new HashMap<>();
 	private static final Map<String, String> idMap = new HashMap<>();
 
@@ -0,0 +1,121 @@
+/**
+ * @UNCC Fodor Lab
+ * @author Michael Sioda
+ * @email msioda@uncc.edu
+ * @date Mar 21, 2019
+ * @disclaimer This code is free software; you can redistribute it and/or modify it under the terms of the GNU General
+ * Public License as published by the Free Software Foundation; either version 2 of the License, or (at your option) any
+ * later version, provided that any use properly credits the author. This program is distributed in the hope that it
+ * will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU General Public License for more details at http://www.gnu.org *
+ */
+package biolockj.util;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.concurrent.TimeUnit;
+import biolockj.Log;
+
+/**
+ * Waits for files to be created or modified in a directory, such as the script indicator files written by worker
+ * scripts, using a {@link java.nio.file.WatchService}.<br>
+ * Some file systems (such as NFS on a cluster) do not report changes made by other hosts, so callers should always
+ * pass a timeout to {@link #await(long)} and check the directory again when it returns. If the directory cannot be
+ * watched, {@link #await(long)} simply sleeps for the timeout.
+ */
+public class DirectoryWatcher implements Closeable
+{
+	/**
+	 * Construct a watcher for the directory.
+	 *
+	 * @param dir Directory to watch
+	 */
+	public DirectoryWatcher( final File dir )
+	{
+		WatchService service = null;
+		try
+		{
+			service = FileSystems.getDefault().newWatchService();
+			dir.toPath().register( service, StandardWatchEventKinds.ENTRY_CREATE,
+					StandardWatchEventKinds.ENTRY_MODIFY );
+		}
+		catch( final Exception ex )
+		{
+			Log.warn( getClass(), "Unable to watch directory [ " + dir.getAbsolutePath() + " ] --> " + ex.getMessage()
+					+ " --> Check for changes on a timer" );
+			closeQuietly( service );
+			service = null;
+		}
+		watchService = service;
+	}
+
+	/**
+	 * Wait until a file in the directory is created or modified, or until the timeout expires.
+	 *
+	 * @param millis Maximum number of milliseconds to wait
+	 * @return TRUE if a change was detected, FALSE if the timeout expired
+	 * @throws InterruptedException if interrupted while waiting
+	 */
+	public boolean await( final long millis ) throws InterruptedException
+	{
+		if( watchService == null )
+		{
+			Thread.sleep( millis );
+			return false;
+		}
+
+		WatchKey key = watchService.poll( millis, TimeUnit.MILLISECONDS );
+		if( key == null )
+		{
+			return false;
+		}
+
+		// Drain any other pending events so a burst of changes is handled once
+		while( key != null )
+		{
+			key.pollEvents();
+			key.reset();
+			key = watchService.poll();
+		}
+
+		return true;
+	}
+
+	@Override
+	public void close() throws IOException
+	{
+		if( watchService != null )
+		{
+			watchService.close();
+		}
+	}
+
+	/**
+	 * Return TRUE if the directory is watched for changes.
+	 *
+	 * @return boolean
+	 */
+	public boolean isWatching()
+	{
+		return watchService != null;
+	}
+
+	private static void closeQuietly( final WatchService service )
+	{
+		try
+		{
+			if( service != null )
+			{
+				service.close();
+			}
+		}
+		catch( final Exception ex )
+		{
+			// ignore
+		}
+	}
+
+	private final WatchService watchService;
+}
@@ -0,0 +1,195 @@
+/**
+ * @UNCC Fodor Lab
+ * @author Michael Sioda
+ * @email msioda@uncc.edu
+ * @date Mar 20, 2019
+ * @disclaimer This code is free software; you can redistribute it and/or modify it under the terms of the GNU General
+ * Public License as published by the Free Software Foundation; either version 2 of the License, or (at your option) any
+ * later version, provided that any use properly credits the author. This program is distributed in the hope that it
+ * will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU General Public License for more details at http://www.gnu.org *
+ */
+package biolockj.util;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.commons.io.FileUtils;
+import biolockj.Config;
+import biolockj.Constants;
+import biolockj.Log;
+import biolockj.module.ScriptModule;
+import biolockj.module.report.r.R_Module;
+
+/**
+ * Runs the worker scripts of a {@link biolockj.module.ScriptModule} in a bounded pool of local processes, instead of
+ * running the MAIN script which executes them one at a time. Used when the pipeline is not run on a cluster or in
+ * Docker and {@link biolockj.Config}.{@value biolockj.module.ScriptModule#SCRIPT_LOCAL_CORES} is defined.<br>
+ * Each worker script reserves {@link biolockj.Config}.{@value biolockj.module.ScriptModule#SCRIPT_NUM_THREADS} cores,
+ * so the pool runs {@value biolockj.module.ScriptModule#SCRIPT_LOCAL_CORES} /
+ * {@value biolockj.module.ScriptModule#SCRIPT_NUM_THREADS} worker scripts at a time.<br>
+ * The MAIN script indicator files are written just as the MAIN script would write them, and worker scripts write
+ * their own, so {@link biolockj.Pipeline} tracks progress in the usual way.
+ */
+public class LocalWorkerPool
+{
+	// Prevent instantiation
+	private LocalWorkerPool()
+	{}
+
+	/**
+	 * Return TRUE if the module worker scripts should be run by the local worker pool.
+	 *
+	 * @param module ScriptModule
+	 * @return boolean
+	 * @throws Exception if errors occur reading the Config
+	 */
+	public static boolean isEnabled( final ScriptModule module ) throws Exception
+	{
+		final File mainScript = module.getMainScript();
+		return Config.getPositiveInteger( module, ScriptModule.SCRIPT_LOCAL_CORES ) != null && !Config.isOnCluster()
+				&& !RuntimeParamUtil.isDockerMode() && !( module instanceof R_Module ) && mainScript != null
+				&& mainScript.getName().endsWith( Constants.SH_EXT );
+	}
+
+	/**
+	 * Start the module worker scripts in the pool and return without waiting for them to complete.<br>
+	 * If a worker script fails, no more worker scripts are started, and the failure is recorded in the worker and MAIN
+	 * script failure files.
+	 *
+	 * @param module ScriptModule
+	 * @throws Exception if errors occur starting the worker scripts
+	 */
+	public static void submit( final ScriptModule module ) throws Exception
+	{
+		final File mainScript = module.getMainScript();
+		final List<File> workers = getWorkerScripts( module );
+		final int numCores = Config.requirePositiveInteger( module, ScriptModule.SCRIPT_LOCAL_CORES );
+		final int numThreads = Config.requirePositiveInteger( module, ScriptModule.SCRIPT_NUM_THREADS );
+		final int poolSize = Math.max( 1, Math.min( workers.size(), numCores / numThreads ) );
+		if( numThreads > numCores )
+		{
+			Log.warn( LocalWorkerPool.class, ScriptModule.SCRIPT_NUM_THREADS + "=" + numThreads + " > "
+					+ ScriptModule.SCRIPT_LOCAL_CORES + "=" + numCores + " --> Run 1 worker script at a time" );
+		}
+
+		Log.info( LocalWorkerPool.class, "Run " + workers.size() + " worker scripts for "
+				+ module.getClass().getSimpleName() + " locally, " + poolSize + " at a time" );
+
+		FileUtils.touch( new File( mainScript.getAbsolutePath() + "_" + Constants.SCRIPT_STARTED ) );
+		final AtomicBoolean failed = new AtomicBoolean( false );
+		final AtomicInteger numRemaining = new AtomicInteger( workers.size() );
+		final ExecutorService pool = Executors.newFixedThreadPool( poolSize, runnable -> {
+			final Thread thread = new Thread( runnable );
+			thread.setDaemon( true );
+			return thread;
+		} );
+
+		for( final File worker: workers )
+		{
+			pool.submit( () -> {
+				if( !failed.get() && !runWorker( mainScript, worker ) )
+				{
+					failed.set( true );
+				}
+				if( numRemaining.decrementAndGet() == 0 && !failed.get() )
+				{
+					FileUtils.touch( new File( mainScript.getAbsolutePath() + "_" + Constants.SCRIPT_SUCCESS ) );
+				}
+				return null;
+			} );
+		}
+
+		pool.shutdown();
+	}
+
+	private static List<File> getWorkerScripts( final ScriptModule module ) throws Exception
+	{
+		final List<File> workers = new ArrayList<>();
+		final File mainScript = module.getMainScript();
+		for( final File file: module.getScriptDir().listFiles() )
+		{
+			if( file.getName().endsWith( Constants.SH_EXT ) && !file.equals( mainScript ) )
+			{
+				workers.add( file );
+			}
+		}
+
+		Collections.sort( workers );
+		return workers;
+	}
+
+	/**
+	 * Run the worker script and log its output. If it fails without writing its failure file, write the failure file so
+	 * {@link biolockj.Pipeline} detects the failure.
+	 */
+	private static boolean runWorker( final File mainScript, final File worker )
+	{
+		int statusCode = -1;
+		String failure = null;
+		try
+		{
+			final Process p = new ProcessBuilder( worker.getAbsolutePath() ).directory( worker.getParentFile() )
+					.redirectErrorStream( true ).start();
+			final BufferedReader br = new BufferedReader( new InputStreamReader( p.getInputStream() ) );
+			try
+			{
+				for( String s = br.readLine(); s != null; s = br.readLine() )
+				{
+					if( !s.trim().isEmpty() )
+					{
+						Log.info( LocalWorkerPool.class, "[" + worker.getName() + "] " + s );
+					}
+				}
+			}
+			finally
+			{
+				br.close();
+			}
+
+			statusCode = p.waitFor();
+			if( statusCode == 0 )
+			{
+				return true;
+			}
+			failure = "Failure code [ " + statusCode + " ] running worker script: " + worker.getAbsolutePath();
+		}
+		catch( final Exception ex )
+		{
+			failure = "Unable to run worker script: " + worker.getAbsolutePath() + " --> " + ex.getMessage();
+		}
+
+		Log.error( LocalWorkerPool.class, failure );
+		try
+		{
+			final File workerFailures = new File( worker.getAbsolutePath() + "_" + Constants.SCRIPT_FAILURES );
+			if( !workerFailures.exists() )
+			{
+				writeFailure( workerFailures, failure );
+			}
+			writeFailure( new File( mainScript.getAbsolutePath() + "_" + Constants.SCRIPT_FAILURES ), failure );
+		}
+		catch( final Exception ex )
+		{
+			Log.error( LocalWorkerPool.class, "Unable to write script failure file: " + ex.getMessage(), ex );
+		}
+
+		return false;
+	}
+
+	private static synchronized void writeFailure( final File file, final String failure ) throws Exception
+	{
+		final BufferedWriter writer = new BufferedWriter( new FileWriter( file, true ) );
+		try
+		{
+			writer.write( failure + Constants.RETURN );
+		}
+		finally
+		{
+			writer.close();
+		}
+	}
+}
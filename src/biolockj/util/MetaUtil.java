@@ -13,6 +13,7 @@ package biolockj.util;
 
 import java.io.*;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import biolockj.Config;
 import biolockj.Constants;
 import biolockj.Log;
@@ -21,7 +22,9 @@ import biolockj.module.BioModule;
 /**
  * This utility is used to read, modify, or create a metadata file for the sequence data. The 1st row must hold the
  * Sample ID and column names must be unique. Metadata information is cached in this class for quick access throughout
- * the application.
+ * the application.<br>
+ * Columns added or removed by BioModules are applied to the cache, and the metadata file is written once when it is
+ * read or when the module completes (see {@link #writeUpdates()}), rather than once per column.
  */
 public class MetaUtil
 {
@@ -30,8 +33,8 @@ public class MetaUtil
 	{}
 
 	/**
-	 * Adds a column to the metadata file. The updated metadata file is output to the fileDir. Once the new file is
-	 * created, the new file is cached in memory and used as the new metadata.
+	 * Adds a column to the metadata file. The updated metadata file is output to the fileDir. The new column is added
+	 * to the metadata cache, and the new file is written by {@link #writeUpdates()}.
 	 *
 	 * @param colName Name of new column
 	 * @param map Map relates Sample ID to a field value
@@ -47,44 +50,47 @@ public class MetaUtil
 		if( getFieldNames().contains( colName ) )
 		{
 			Log.warn( MetaUtil.class,
-					"Metadata column [" + colName + "] already exists in: " + getFile().getAbsolutePath() );
+					"Metadata column [" + colName + "] already exists in: " + metadataFile.getAbsolutePath() );
 			return;
 		}
 
-		final Set<String> sampleIds = map.keySet();
-		final BufferedReader reader = BioLockJUtil.getFileReader( getFile() );
-		setFile( newMeta );
-		final BufferedWriter writer = new BufferedWriter( new FileWriter( getFile() ) );
-		try
+		final boolean[] keep = new boolean[ sampleIds.size() ];
+		final String[] newColumn = new String[ sampleIds.size() ];
+		int numRows = 0;
+		for( int row = 0; row < sampleIds.size(); row++ )
 		{
-			writer.write( reader.readLine() + Constants.TAB_DELIM + colName + Constants.RETURN );
-			for( String line = reader.readLine(); line != null; line = reader.readLine() )
+			final String id = sampleIds.get( row );
+			if( map.containsKey( id ) )
 			{
-				final StringTokenizer st = new StringTokenizer( line, Constants.TAB_DELIM );
-
-				final String id = st.nextToken();
-				if( sampleIds.contains( id ) )
-				{
-					writer.write( line + Constants.TAB_DELIM + map.get( id ) + Constants.RETURN );
-				}
-				else if( !removeMissingIds )
-				{
-					writer.write( line + Constants.TAB_DELIM + Config.requireString( null, META_NULL_VALUE )
-							+ Constants.RETURN );
-				}
-				else
-				{
-					Log.warn( MetaUtil.class,
-							"REMOVE SAMPLE ID [" + id + "] due to no data in metadata column: " + colName );
-				}
+				newColumn[ row ] = removeComments( setNullValueIfEmpty( map.get( id ) ) );
+			}
+			else if( !removeMissingIds )
+			{
+				newColumn[ row ] = nullValue;
+			}
+			else
+			{
+				Log.warn( MetaUtil.class,
+						"REMOVE SAMPLE ID [" + id + "] due to no data in metadata column: " + colName );
+				continue;
 			}
+
+			keep[ row ] = true;
+			numRows++;
 		}
-		finally
+
+		final String[][] cols = new String[ columns.length + 1 ][];
+		for( int col = 0; col < columns.length; col++ )
 		{
-			reader.close();
-			writer.close();
-			refreshCache();
+			cols[ col ] = getRows( columns[ col ], keep, numRows );
 		}
+		cols[ columns.length ] = getRows( newColumn, keep, numRows );
+
+		final List<String> headers = new ArrayList<>( getFieldNames() );
+		headers.add( colName );
+		final String[] ids = getRows( sampleIds.toArray( new String[ sampleIds.size() ] ), keep, numRows );
+		cacheColumns( headers, Arrays.asList( ids ), cols );
+		setPendingFile( newMeta );
 	}
 
 	/**
@@ -94,7 +100,7 @@ public class MetaUtil
 	 */
 	public static boolean exists()
 	{
-		return getFile() != null && getFile().exists();
+		return metadataFile != null && ( pendingUpdates || metadataFile.exists() );
 	}
 
 	/**
@@ -123,19 +129,15 @@ public class MetaUtil
 	 */
 	public static String getField( final String sampleId, final String field ) throws Exception
 	{
-		if( !getFieldNames().contains( field ) )
-		{
-			throw new Exception(
-					"Invalid field [" + field + "] not found in Metadata = " + getFile().getAbsolutePath() );
-		}
-
-		if( getMetadataRecord( sampleId ) == null )
+		final int col = getFieldIndex( field );
+		final Integer row = sampleIndex.get( sampleId );
+		if( row == null )
 		{
 			throw new Exception(
 					"Invalid Sample ID [" + sampleId + "] not found in Metadata = " + getFile().getAbsolutePath() );
 		}
 
-		return getMetadataRecord( sampleId ).get( getFieldNames().indexOf( field ) );
+		return columns[ col ][ row ];
 	}
 
 	/**
@@ -146,12 +148,12 @@ public class MetaUtil
 	 */
 	public static List<String> getFieldNames() throws Exception
 	{
-		if( getFile() == null || !getFile().exists() )
+		if( !exists() )
 		{
 			throw new Exception( "Metadata file path is undefined.  Cannot get metadata field names." );
 		}
 
-		final List<String> headers = getMetadataRecord( metaId );
+		final List<String> headers = fieldNames;
 
 		if( headers == null )
 		{
@@ -177,36 +179,46 @@ public class MetaUtil
 	 */
 	public static List<String> getFieldValues( final String field, final boolean ignoreNulls ) throws Exception
 	{
-		if( !getFieldNames().contains( field ) )
-		{
-			throw new Exception( "Invalid field [" + field + "] in Metadata = " + getFile().getAbsolutePath() );
-		}
-
-		final List<String> vals = new ArrayList<>();
-
-		for( final String id: getSampleIds() )
+		final Map<String, List<String>> cache = ignoreNulls ? nonNullFieldValues: fieldValues;
+		List<String> vals = cache.get( field );
+		if( vals == null )
 		{
-			final String val = getField( id, field );
-			if( val != null && val.trim().length() > 0 )
+			final String[] column = columns[ getFieldIndex( field ) ];
+			final List<String> list = new ArrayList<>( column.length );
+			for( final String val: column )
 			{
-				final boolean isNullVal = val.equals( Config.requireString( null, META_NULL_VALUE ) );
-				if( !isNullVal || !ignoreNulls )
+				if( val != null && val.trim().length() > 0 && ( !ignoreNulls || !val.equals( nullValue ) ) )
 				{
-					vals.add( val );
+					list.add( val );
 				}
 			}
+			vals = Collections.unmodifiableList( list );
+			cache.put( field, vals );
 		}
 
 		return vals;
 	}
 
 	/**
-	 * Get the current metadata file. This path may change as updates are made by BioModules.
+	 * Get the current metadata file. This path may change as updates are made by BioModules. If columns have been
+	 * added or removed since the file was last written, the file is written before it is returned.
 	 *
 	 * @return Metadata file
 	 */
 	public static File getFile()
 	{
+		if( pendingUpdates )
+		{
+			try
+			{
+				writeUpdates();
+			}
+			catch( final Exception ex )
+			{
+				Log.error( MetaUtil.class, "Unable to write metadata file: " + metadataFile.getAbsolutePath(), ex );
+			}
+		}
+
 		return metadataFile;
 	}
 
@@ -326,14 +338,24 @@ public class MetaUtil
 	 */
 	public static List<String> getMetadataRecord( final String sampleId ) throws Exception
 	{
-		try
+		if( sampleId != null && sampleId.equals( metaId ) )
 		{
-			return metadataMap.get( sampleId );
+			return fieldNames;
 		}
-		catch( final Exception ex )
+
+		final Integer row = sampleIndex.get( sampleId );
+		if( row == null )
 		{
-			throw new Exception( "Invalid ID: " + sampleId );
+			return null;
 		}
+
+		final List<String> record = new ArrayList<>( columns.length );
+		for( final String[] column: columns )
+		{
+			record.add( column[ row ] );
+		}
+
+		return record;
 	}
 
 	/**
@@ -343,7 +365,7 @@ public class MetaUtil
 	 */
 	public static String getPath()
 	{
-		if( metadataFile == null )
+		if( getFile() == null )
 		{
 			return "";
 		}
@@ -351,25 +373,44 @@ public class MetaUtil
 	}
 
 	/**
-	 * Get the first column from the metadata file.
+	 * Get the Sample ID with the given value in a metadata column, such as the
+	 * {@link biolockj.Config}.{@value #META_FILENAME_COLUMN} or {@link biolockj.Config}.{@value #META_BARCODE_COLUMN}
+	 * column. The value to Sample ID index of each column is built on first use and cached until the metadata changes.
+	 * If multiple samples have the value, the 1st Sample ID (in sorted order) is returned.
 	 *
-	 * @return Sample IDs found in metadata file
+	 * @param field Column name
+	 * @param value Column value
+	 * @return Sample ID, or null if no sample has the value
+	 * @throws Exception if metadata file or column name not found
 	 */
-	public static List<String> getSampleIds()
+	public static String getSampleId( final String field, final String value ) throws Exception
 	{
-		final List<String> ids = new ArrayList<>();
-
-		for( final String key: metadataMap.keySet() )
+		Map<String, String> index = sampleIdIndexes.get( field );
+		if( index == null )
 		{
-			if( !key.equals( metaId ) )
+			final String[] column = columns[ getFieldIndex( field ) ];
+			index = new HashMap<>( column.length * 2 );
+			for( int row = 0; row < column.length; row++ )
 			{
-				ids.add( key );
+				if( column[ row ] != null && !index.containsKey( column[ row ] ) )
+				{
+					index.put( column[ row ], sampleIds.get( row ) );
+				}
 			}
+			sampleIdIndexes.put( field, index );
 		}
 
-		Collections.sort( ids );
+		return index.get( value );
+	}
 
-		return ids;
+	/**
+	 * Get the first column from the metadata file.
+	 *
+	 * @return Sample IDs found in metadata file
+	 */
+	public static List<String> getSampleIds()
+	{
+		return new ArrayList<>( sampleIds );
 	}
 
 	/**
@@ -384,9 +425,11 @@ public class MetaUtil
 	{
 		final File outputMeta = new File(
 				module.getOutputDir().getAbsolutePath() + File.separator + getMetadataFileName() );
-		if( ModuleUtil.isComplete( module ) || outputMeta.exists() )
+		final boolean isPending = pendingUpdates
+				&& outputMeta.getAbsolutePath().equals( metadataFile.getAbsolutePath() );
+		if( ModuleUtil.isComplete( module ) || outputMeta.exists() || isPending )
 		{
-			if( outputMeta.exists() )
+			if( outputMeta.exists() || isPending )
 			{
 				setFile( outputMeta );
 				refreshCache();
@@ -485,7 +528,6 @@ public class MetaUtil
 		if( isUpdated() )
 		{
 			Log.info( MetaUtil.class, "Update metadata cache: " + metadataFile.getAbsolutePath() );
-			metadataMap.clear();
 			cacheMetadata( parseMetadataFile() );
 
 			if( !RuntimeParamUtil.isDirectMode() )
@@ -503,7 +545,8 @@ public class MetaUtil
 	}
 
 	/**
-	 * Remove the metadata column from the metadata file
+	 * Remove the metadata column from the metadata file. The column is removed from the metadata cache, and the new
+	 * file is written by {@link #writeUpdates()}.
 	 * 
 	 * @param colName Name of column to remove
 	 * @param fileDir File representing output directory for new metadata file
@@ -520,7 +563,7 @@ public class MetaUtil
 			}
 		}
 
-		if( getFile() == null || !getFile().exists() )
+		if( !exists() )
 		{
 			Log.warn( MetaUtil.class, "Cannot remove column [" + colName + "] because no metadata file exists." );
 			return;
@@ -529,41 +572,27 @@ public class MetaUtil
 		if( !getFieldNames().contains( colName ) )
 		{
 			Log.warn( MetaUtil.class, "Metadata column [" + colName
-					+ "] cannot be removed, because it does not exists in: " + getFile().getAbsolutePath() );
+					+ "] cannot be removed, because it does not exists in: " + metadataFile.getAbsolutePath() );
 			return;
 		}
 
-		Log.info( MetaUtil.class, "Removing field [" + colName + "] from metadata: " + getFile().getAbsolutePath() );
-		final int index = MetaUtil.getFieldNames().indexOf( colName );
+		Log.info( MetaUtil.class,
+				"Removing field [" + colName + "] from metadata: " + metadataFile.getAbsolutePath() );
+		final int index = getFieldNames().indexOf( colName );
+		final List<String> headers = new ArrayList<>( getFieldNames() );
+		headers.remove( index );
 
-		final File newMeta = new File( fileDir.getAbsolutePath() + File.separator + getMetadataFileName() );
-		final BufferedReader reader = BioLockJUtil.getFileReader( getFile() );
-		setFile( newMeta );
-		final BufferedWriter writer = new BufferedWriter( new FileWriter( getFile() ) );
-		try
+		final String[][] cols = new String[ columns.length - 1 ][];
+		for( int col = 0, i = 0; col < columns.length; col++ )
 		{
-			for( String line = reader.readLine(); line != null; line = reader.readLine() )
+			if( col != index )
 			{
-				int i = 1;
-				final StringTokenizer st = new StringTokenizer( line, Constants.TAB_DELIM );
-				writer.write( st.nextToken() );
-				while( st.hasMoreTokens() )
-				{
-					final String token = st.nextToken();
-					if( i++ != index )
-					{
-						writer.write( Constants.TAB_DELIM + token );
-					}
-				}
-				writer.write( Constants.RETURN );
+				cols[ i++ ] = columns[ col ];
 			}
 		}
-		finally
-		{
-			reader.close();
-			writer.close();
-			refreshCache();
-		}
+
+		cacheColumns( headers, sampleIds, cols );
+		setPendingFile( new File( fileDir.getAbsolutePath() + File.separator + getMetadataFileName() ) );
 	}
 
 	/**
@@ -591,11 +620,103 @@ public class MetaUtil
 					+ ( file == null ? "": file.getAbsolutePath() ) );
 		}
 
+		if( pendingUpdates && !file.getAbsolutePath().equals( metadataFile.getAbsolutePath() ) )
+		{
+			writeUpdates();
+		}
+
 		metadataFile = file;
+		SeqUtil.clearSampleIdCache();
+	}
+
+	/**
+	 * Write the columns added or removed since the metadata file was last written to the current metadata file. Column
+	 * updates are applied to the metadata cache immediately, so a BioModule that updates several columns writes the
+	 * metadata file once, and the file is not parsed again.
+	 *
+	 * @throws Exception if unable to write the metadata file
+	 */
+	public static synchronized void writeUpdates() throws Exception
+	{
+		if( !pendingUpdates )
+		{
+			return;
+		}
+
+		Log.info( MetaUtil.class, "Write metadata cache: " + metadataFile.getAbsolutePath() );
+		final BufferedWriter writer = new BufferedWriter( new FileWriter( metadataFile ) );
+		try
+		{
+			writer.write( metaId );
+			for( final String field: fieldNames )
+			{
+				writer.write( Constants.TAB_DELIM + field );
+			}
+			writer.write( Constants.RETURN );
+
+			for( final String id: fileOrder )
+			{
+				final Integer row = sampleIndex.get( id );
+				if( row != null )
+				{
+					writer.write( id );
+					for( final String[] column: columns )
+					{
+						writer.write( Constants.TAB_DELIM + ( column[ row ] == null ? nullValue: column[ row ] ) );
+					}
+					writer.write( Constants.RETURN );
+				}
+			}
+		}
+		finally
+		{
+			writer.close();
+		}
+
+		pendingUpdates = false;
+	}
+
+	/**
+	 * Cache the metadata by column. Each column is an array of values indexed by the row number of the Sample ID in the
+	 * sorted list of Sample IDs, so a field value is found with 2 hash lookups.
+	 * 
+	 * @param headers Field names
+	 * @param ids Sorted Sample IDs
+	 * @param cols Column values for each field, in Sample ID order
+	 */
+	private static void cacheColumns( final List<String> headers, final List<String> ids, final String[][] cols )
+	{
+		fieldIndex.clear();
+		fieldValues.clear();
+		nonNullFieldValues.clear();
+		sampleIdIndexes.clear();
+		sampleIndex.clear();
+
+		fieldNames = headers == null ? null: Collections.unmodifiableList( new ArrayList<>( headers ) );
+		sampleIds = Collections.unmodifiableList( new ArrayList<>( ids ) );
+		for( int row = 0; row < sampleIds.size(); row++ )
+		{
+			sampleIndex.put( sampleIds.get( row ), row );
+		}
+
+		for( int col = 0; headers != null && col < headers.size(); col++ )
+		{
+			if( !fieldIndex.containsKey( headers.get( col ) ) )
+			{
+				fieldIndex.put( headers.get( col ), col );
+			}
+		}
+
+		columns = cols;
 	}
 
 	private static void cacheMetadata( final List<List<String>> data ) throws Exception
 	{
+		nullValue = Config.requireString( null, META_NULL_VALUE );
+		SeqUtil.clearSampleIdCache();
+		final Map<String, List<String>> records = new TreeMap<>();
+		final List<String> order = new ArrayList<>();
+		List<String> headers = null;
 		int rowNum = 0;
 		final Iterator<List<String>> rows = data.iterator();
 		while( rows.hasNext() )
@@ -617,17 +738,73 @@ public class MetaUtil
 				Log.debug( MetaUtil.class, "Metadata Record (1st Row): " + row );
 			}
 
-			if( id != null && !id.equals( Config.requireString( null, META_NULL_VALUE ) ) )
+			if( id != null && !id.equals( nullValue ) )
 			{
 				row.remove( 0 );
+				if( rowNum == 1 )
+				{
+					headers = row;
+					continue;
+				}
+
 				if( isUpdated() )
 				{
-					Log.debug( MetaUtil.class, "metadataMap add: " + id + " = " + row );
+					Log.debug( MetaUtil.class, "metadata cache add: " + id + " = " + row );
+				}
+
+				if( records.put( id, row ) == null )
+				{
+					order.add( id );
 				}
+			}
+		}
+
+		final int numFields = headers == null ? 0: headers.size();
+		final String[][] cols = new String[ numFields ][ records.size() ];
+		int row = 0;
+		for( final List<String> record: records.values() )
+		{
+			for( int col = 0; col < numFields && col < record.size(); col++ )
+			{
+				cols[ col ][ row ] = record.get( col );
+			}
+			row++;
+		}
+
+		cacheColumns( headers, new ArrayList<>( records.keySet() ), cols );
+		fileOrder = order;
+		pendingUpdates = false;
+	}
+
+	private static int getFieldIndex( final String field ) throws Exception
+	{
+		final Integer col = fieldIndex.get( field );
+		if( col == null )
+		{
+			getFieldNames();
+			throw new Exception(
+					"Invalid field [" + field + "] not found in Metadata = " + getFile().getAbsolutePath() );
+		}
+
+		return col;
+	}
 
-				metadataMap.put( id, row );
+	private static String[] getRows( final String[] column, final boolean[] keep, final int numRows )
+	{
+		if( numRows == column.length )
+		{
+			return column;
+		}
+
+		final String[] rows = new String[ numRows ];
+		for( int row = 0, i = 0; row < column.length; row++ )
+		{
+			if( keep[ row ] )
+			{
+				rows[ i++ ] = column[ row ];
 			}
 		}
+		return rows;
 	}
 
 	private static boolean isUpdated()
@@ -695,6 +872,19 @@ public class MetaUtil
 		Log.info( MetaUtil.class, META_SPACER );
 	}
 
+	/**
+	 * Set the file to write the updated metadata cache to. The cache already holds the updates, so the file is marked
+	 * as the reported metadata to skip parsing it again in {@link #refreshCache()}.
+	 * 
+	 * @param file New metadata file
+	 */
+	private static void setPendingFile( final File file )
+	{
+		metadataFile = file;
+		reportedMetadata = file;
+		pendingUpdates = true;
+	}
+
 	private static String setNullValueIfEmpty( final String val ) throws Exception
 	{
 		if( val == null || val.trim().isEmpty() )
@@ -767,10 +957,20 @@ public class MetaUtil
 	 */
 	protected static final String DEFAULT_NULL_VALUE = "NA";
 
+	private static String[][] columns = new String[ 0 ][ 0 ];
 	private static boolean debug = false;
+	private static final Map<String, Integer> fieldIndex = new HashMap<>();
+	private static List<String> fieldNames = null;
+	private static final Map<String, List<String>> fieldValues = new ConcurrentHashMap<>();
+	private static List<String> fileOrder = new ArrayList<>();
 	private static String META_SPACER = "************************************************************************";
 	private static File metadataFile = null;
-	private static final Map<String, List<String>> metadataMap = new HashMap<>();
 	private static String metaId = "SAMPLE_ID";
+	private static final Map<String, List<String>> nonNullFieldValues = new ConcurrentHashMap<>();
+	private static String nullValue = DEFAULT_NULL_VALUE;
+	private static boolean pendingUpdates = false;
 	private static File reportedMetadata = null;
+	private static final Map<String, Map<String, String>> sampleIdIndexes = new ConcurrentHashMap<>();
+	private static final Map<String, Integer> sampleIndex = new HashMap<>();
+	private static List<String> sampleIds = Collections.emptyList();
 }
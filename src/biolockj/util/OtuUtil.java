@@ -127,7 +127,7 @@ public class OtuUtil
 	 * @return Ordered TreeSet of unique OTUs
 	 * @throws Exception if errors occur
 	 */
-	public static TreeSet<String> findUniqueOtus( final TreeMap<String, TreeMap<String, Long>> sampleOtuCounts )
+	public static TreeSet<String> findUniqueOtus( final Map<String, TreeMap<String, Long>> sampleOtuCounts )
 			throws Exception
 	{
 		final TreeSet<String> otus = new TreeSet<>();
@@ -136,7 +136,7 @@ public class OtuUtil
 			final TreeMap<String, Long> taxaCounts = sampleOtuCounts.get( id );
 			if( taxaCounts != null && !taxaCounts.isEmpty() )
 			{
-				otus.addAll( sampleOtuCounts.get( id ).keySet() );
+				otus.addAll( taxaCounts.keySet() );
 			}
 		}
 
@@ -200,6 +200,65 @@ public class OtuUtil
 				otuCountFile.getName().length() - Constants.TSV_EXT.length() );
 	}
 
+	/**
+	 * Load the OTU counts for each sample file formatted and named as in
+	 * {@link biolockj.module.implicit.parser.ParserModule} output into a sparse {@link biolockj.util.CountMatrix} with
+	 * one row per sample and one column per OTU.
+	 * 
+	 * @param files Collection of OTU count files
+	 * @return CountMatrix of OTU counts by sample
+	 * @throws Exception if any of the input file names are missing "_{@value biolockj.Constants#OTU_COUNT}_"
+	 */
+	public static CountMatrix getSampleOtuMatrix( final Collection<File> files ) throws Exception
+	{
+		final File binaryFile = findBinaryOtuFile( files );
+		if( binaryFile != null )
+		{
+			final List<String> sampleIds = new ArrayList<>();
+			for( final File file: files )
+			{
+				sampleIds.add( getSampleId( file ) );
+			}
+
+			if( CountMatrixFile.readRowLabels( binaryFile ).containsAll( sampleIds ) )
+			{
+				Log.info( OtuUtil.class, "Read OTU counts from binary count file: " + binaryFile.getAbsolutePath() );
+				return CountMatrixFile.read( binaryFile, sampleIds );
+			}
+		}
+
+		final CountMatrix.Builder builder = new CountMatrix.Builder();
+		for( final File file: files )
+		{
+			if( !file.getName().contains( "_" + Constants.OTU_COUNT + "_" ) )
+			{
+				throw new Exception( "Module input files must contain sample OTU counts with \"_" + Constants.OTU_COUNT
+						+ "_\" as part of the file name.  Found file: " + file.getAbsolutePath() );
+			}
+
+			final String sampleId = getSampleId( file );
+			builder.addRow( sampleId );
+			final BufferedReader reader = BioLockJUtil.getFileReader( file );
+			try
+			{
+				for( String line = reader.readLine(); line != null; line = reader.readLine() )
+				{
+					final OtuCountLine ocl = new OtuCountLine( line );
+					builder.add( sampleId, ocl.getOtu(), ocl.getCount() );
+				}
+			}
+			finally
+			{
+				if( reader != null )
+				{
+					reader.close();
+				}
+			}
+		}
+
+		return builder.build();
+	}
+
 	/**
 	 * TreeMap OTU counts for each sample file formatted and named as in
 	 * {@link biolockj.module.implicit.parser.ParserModule} output.
@@ -226,6 +285,41 @@ public class OtuUtil
 		return otuCountsBySample;
 	}
 
+	/**
+	 * OTU counts for each sample file formatted and named as in {@link biolockj.module.implicit.parser.ParserModule}
+	 * output. If a spill file is given, the counts of each sample are parsed one file at a time and appended to the
+	 * spill file, so only the {@link biolockj.util.SpilledOtuCounts} index is kept in memory.
+	 * 
+	 * @param files Collection of OTU count files
+	 * @param spillFile Spill file, or null to keep the OTU counts in memory
+	 * @return Map(SampleID, TreeMap(OTU, count)) OTU counts by sample, iterated in Sample ID order
+	 * @throws Exception if any of the input file names are missing "_{@value biolockj.Constants#OTU_COUNT}_"
+	 */
+	public static Map<String, TreeMap<String, Long>> getSampleOtuCounts( final Collection<File> files,
+			final File spillFile ) throws Exception
+	{
+		if( spillFile == null )
+		{
+			return getSampleOtuCounts( files );
+		}
+
+		Log.info( OtuUtil.class, "Spill OTU counts to: " + spillFile.getAbsolutePath() );
+		final SpilledOtuCounts otuCountsBySample = new SpilledOtuCounts( spillFile );
+		for( final File file: files )
+		{
+			if( !file.getName().contains( "_" + Constants.OTU_COUNT + "_" ) )
+			{
+				otuCountsBySample.close();
+				throw new Exception( "Module input files must contain sample OTU counts with \"_" + Constants.OTU_COUNT
+						+ "_\" as part of the file name.  Found file: " + file.getAbsolutePath() );
+			}
+
+			otuCountsBySample.put( getSampleId( file ), compileSampleOtuCounts( file ) );
+		}
+
+		return otuCountsBySample;
+	}
+
 	/**
 	 * Check the file name and contents to determine if file is an OTU count file.
 	 * 
@@ -265,4 +359,61 @@ public class OtuUtil
 		return false;
 	}
 
+	/**
+	 * Write the OTU count matrix to a binary count file named for the OTU count files in the given directory, if
+	 * {@link biolockj.Config}.{@value biolockj.Constants#REPORT_BINARY_COUNTS}={@value biolockj.Constants#TRUE}.
+	 * 
+	 * @param matrix CountMatrix of OTU counts by sample
+	 * @param dir File directory
+	 * @param prefix File prefix (after pipeline name)
+	 * @throws Exception if errors occur
+	 */
+	public static void writeBinaryOtuFile( final CountMatrix matrix, final File dir, final String prefix )
+			throws Exception
+	{
+		if( Config.getBoolean( null, Constants.REPORT_BINARY_COUNTS ) )
+		{
+			final File file = CountMatrixFile.getBinaryFile( getOtuCountFile( dir, null, prefix ) );
+			Log.info( OtuUtil.class, "Write binary OTU count file: " + file.getAbsolutePath() );
+			CountMatrixFile.write( matrix, file );
+		}
+	}
+
+	/**
+	 * Find the binary OTU count file saved with the OTU count files, only if
+	 * {@link biolockj.Config}.{@value biolockj.Constants#REPORT_BINARY_COUNTS}={@value biolockj.Constants#TRUE} and all
+	 * files are in the same directory.
+	 */
+	private static File findBinaryOtuFile( final Collection<File> files ) throws Exception
+	{
+		if( files.isEmpty() || !Config.getBoolean( null, Constants.REPORT_BINARY_COUNTS ) )
+		{
+			return null;
+		}
+
+		final File dir = files.iterator().next().getParentFile();
+		for( final File file: files )
+		{
+			if( !dir.equals( file.getParentFile() ) )
+			{
+				return null;
+			}
+		}
+
+		File binaryFile = null;
+		for( final File file: dir.listFiles() )
+		{
+			if( file.getName().endsWith( Constants.OTU_COUNT + CountMatrixFile.BINARY_EXT ) )
+			{
+				if( binaryFile != null )
+				{
+					return null;
+				}
+				binaryFile = file;
+			}
+		}
+
+		return binaryFile;
+	}
+
 }
@@ -0,0 +1,187 @@
+/**
+ * @UNCC Fodor Lab
+ * @author Michael Sioda
+ * @email msioda@uncc.edu
+ * @date Mar 6, 2019
+ * @disclaimer This code is free software; you can redistribute it and/or modify it under the terms of the GNU General
+ * Public License as published by the Free Software Foundation; either version 2 of the License, or (at your option) any
+ * later version, provided that any use properly credits the author. This program is distributed in the hope that it
+ * will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU General Public License for more details at http://www.gnu.org *
+ */
+package biolockj.util;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Matches one anchored primer against sequence bytes. The primer is given as the regular expression built by
+ * {@link biolockj.module.seq.TrimPrimers} from the primer file, which is a "^" or "$" anchor plus literal bases and
+ * IUPAC character classes from {@link biolockj.util.SeqUtil#getIupacBase(String)}.<br>
+ * Primers in this form (up to {@value #MAX_MASK_LEN} bases) are compiled into a bit-parallel table with one mask per
+ * byte value (bit i is set if the byte is allowed at primer position i), so each read is tested in a single pass with
+ * no allocation. Any other regular expression is compiled once into a {@link java.util.regex.Pattern}.
+ */
+public class PrimerMatcher
+{
+	/**
+	 * Compile the primer.
+	 *
+	 * @param primer Primer regular expression, starting with "^" or ending with "$"
+	 * @throws Exception if the primer is not anchored
+	 */
+	public PrimerMatcher( final String primer ) throws Exception
+	{
+		this.primer = primer;
+		if( primer.startsWith( "^" ) )
+		{
+			isForward = true;
+		}
+		else if( primer.endsWith( "$" ) )
+		{
+			isForward = false;
+		}
+		else
+		{
+			throw new Exception( "INVALID PRIMER!  Primers must start with \"^\" or end with \"$\": " + primer );
+		}
+
+		final String body = isForward ? primer.substring( 1 ): primer.substring( 0, primer.length() - 1 );
+		masks = buildMasks( body );
+		pattern = masks == null ? Pattern.compile( primer ): null;
+	}
+
+	/**
+	 * Get the primer regular expression.
+	 *
+	 * @return Primer
+	 */
+	public String getPrimer()
+	{
+		return primer;
+	}
+
+	/**
+	 * Return TRUE for a forward primer (anchored to the start of the read with "^"), FALSE for a reverse primer
+	 * (anchored to the end of the read with "$").
+	 *
+	 * @return boolean
+	 */
+	public boolean isForward()
+	{
+		return isForward;
+	}
+
+	/**
+	 * Match the primer at the start (forward) or end (reverse) of seq[start, end).
+	 *
+	 * @param seq Sequence
+	 * @param start Start index (inclusive)
+	 * @param end End index (exclusive)
+	 * @return Number of bases matched, or 0 if the primer is not found
+	 */
+	public int match( final SeqRecordReader.Slice seq, final int start, final int end )
+	{
+		if( masks == null )
+		{
+			final Matcher matcher = pattern.matcher( seq ).region( start, end );
+			if( matcher.find() )
+			{
+				return matcher.end() - matcher.start();
+			}
+			return 0;
+		}
+
+		if( end - start < length )
+		{
+			return 0;
+		}
+
+		final int offset = isForward ? start: end - length;
+		for( int i = 0; i < length; i++ )
+		{
+			if( ( masks[ seq.byteAt( offset + i ) & 0xff ] & 1L << i ) == 0L )
+			{
+				return 0;
+			}
+		}
+
+		return length;
+	}
+
+	@Override
+	public String toString()
+	{
+		return primer;
+	}
+
+	/**
+	 * Build one bit mask per byte value, or return null if the primer uses regular expression syntax other than
+	 * literal bases and character classes.
+	 */
+	private long[] buildMasks( final String body )
+	{
+		final long[] table = new long[ 256 ];
+		int pos = 0;
+		int i = 0;
+		while( i < body.length() )
+		{
+			if( pos == MAX_MASK_LEN )
+			{
+				return null;
+			}
+
+			final char c = body.charAt( i++ );
+			if( c == '[' )
+			{
+				final int close = body.indexOf( ']', i );
+				if( close < 0 || close == i )
+				{
+					return null;
+				}
+				for( int j = i; j < close; j++ )
+				{
+					if( !isBase( body.charAt( j ) ) )
+					{
+						return null;
+					}
+					table[ body.charAt( j ) ] |= 1L << pos;
+				}
+				i = close + 1;
+			}
+			else if( isBase( c ) )
+			{
+				table[ c ] |= 1L << pos;
+			}
+			else
+			{
+				return null;
+			}
+			pos++;
+		}
+
+		if( pos == 0 )
+		{
+			return null;
+		}
+
+		length = pos;
+		return table;
+	}
+
+	private static boolean isBase( final char c )
+	{
+		return c >= 'A' && c <= 'Z' || c >= 'a' && c <= 'z';
+	}
+
+	private final boolean isForward;
+	private int length = 0;
+	private final long[] masks;
+	private final Pattern pattern;
+	private final String primer;
+
+	/**
+	 * Primers longer than {@value #MAX_MASK_LEN} bases are matched with a regular expression.
+	 */
+	protected static final int MAX_MASK_LEN = 64;
+}
@@ -0,0 +1,471 @@
+/**
+ * @UNCC Fodor Lab
+ * @author Michael Sioda
+ * @email msioda@uncc.edu
+ * @date Mar 4, 2019
+ * @disclaimer This code is free software; you can redistribute it and/or modify it under the terms of the GNU General
+ * Public License as published by the Free Software Foundation; either version 2 of the License, or (at your option) any
+ * later version, provided that any use properly credits the author. This program is distributed in the hope that it
+ * will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU General Public License for more details at http://www.gnu.org *
+ */
+package biolockj.util;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+import biolockj.Log;
+
+/**
+ * Streaming FastA/FastQ record reader that parses reads directly from a byte window.<br>
+ * The window is filled with large reads from the file, gzipped files are inflated through a large buffer. Each call to
+ * {@link #next()} exposes the lines of the next read as reusable {@link Slice} views over the window, so no String is
+ * created unless the caller asks for one.
+ */
+public class SeqRecordReader implements Closeable
+{
+	/**
+	 * Construct a reader for the given sequence file using {@link biolockj.util.SeqUtil#getNumLinesPerRead()} lines
+	 * per read.
+	 *
+	 * @param file Sequence file (may be gzipped)
+	 * @throws Exception if unable to open the file or determine the sequence format
+	 */
+	public SeqRecordReader( final File file ) throws Exception
+	{
+		this( file, SeqUtil.getNumLinesPerRead() );
+	}
+
+	/**
+	 * Construct a reader for the given sequence file.
+	 *
+	 * @param file Sequence file (may be gzipped)
+	 * @param linesPerRead Number of lines per read (fasta=2, fastq=4)
+	 * @throws IOException if unable to open the file
+	 */
+	public SeqRecordReader( final File file, final int linesPerRead ) throws IOException
+	{
+		this.file = file;
+		this.linesPerRead = linesPerRead;
+		lines = new Slice[ linesPerRead ];
+		for( int i = 0; i < linesPerRead; i++ )
+		{
+			lines[ i ] = new Slice();
+		}
+
+		stream = SeqUtil.isGzipped( file.getName() )
+				? new GZIPInputStream( new FileInputStream( file ), INFLATE_BUFFER_SIZE )
+				: new FileInputStream( file );
+	}
+
+	@Override
+	public void close() throws IOException
+	{
+		stream.close();
+	}
+
+	/**
+	 * Get the sequence file being read.
+	 *
+	 * @return Sequence file
+	 */
+	public File getFile()
+	{
+		return file;
+	}
+
+	/**
+	 * Get the header line (line 1) of the current read.
+	 *
+	 * @return Header slice
+	 */
+	public Slice getHeader()
+	{
+		return lines[ 0 ];
+	}
+
+	/**
+	 * Get a line of the current read.
+	 *
+	 * @param i Line index within the read (0 = header)
+	 * @return Line slice
+	 */
+	public Slice getLine( final int i )
+	{
+		return lines[ i ];
+	}
+
+	/**
+	 * Get the number of lines per read.
+	 *
+	 * @return 2 for fasta, 4 for fastq
+	 */
+	public int getLinesPerRead()
+	{
+		return linesPerRead;
+	}
+
+	/**
+	 * Get the quality score line (line 4) of the current read, or null for fasta.
+	 *
+	 * @return Quality slice or null
+	 */
+	public Slice getQuality()
+	{
+		return linesPerRead > 3 ? lines[ 3 ]: null;
+	}
+
+	/**
+	 * Get the number of complete reads returned by {@link #next()} so far.
+	 *
+	 * @return Number of reads
+	 */
+	public long getReadCount()
+	{
+		return readCount;
+	}
+
+	/**
+	 * Get the sequence line (line 2) of the current read.
+	 *
+	 * @return Sequence slice
+	 */
+	public Slice getSeq()
+	{
+		return lines[ 1 ];
+	}
+
+	/**
+	 * Advance to the next read. Empty lines before the 1st read are skipped. A trailing partial read is logged and
+	 * discarded, but trailing empty lines are ignored.
+	 *
+	 * @return TRUE if a complete read is available
+	 * @throws IOException if errors occur reading the file
+	 */
+	public boolean next() throws IOException
+	{
+		recStart = pos;
+		int lineNum = 0;
+		boolean isBlank = true;
+		while( lineNum < linesPerRead )
+		{
+			final int end = findLineEnd();
+			if( end < 0 )
+			{
+				if( !isBlank )
+				{
+					Log.warn( getClass(), "Ignore incomplete read at end of file: " + file.getAbsolutePath() );
+				}
+				return false;
+			}
+
+			int len = end - pos;
+			if( len > 0 && buf[ pos + len - 1 ] == '\r' )
+			{
+				len--;
+			}
+
+			if( len == 0 && lineNum == 0 && readCount == 0 )
+			{
+				numSkippedLines++;
+				pos = end + 1;
+				recStart = pos;
+				continue;
+			}
+
+			isBlank = isBlank && len == 0;
+			lines[ lineNum++ ].set( buf, pos, len );
+			pos = end + 1;
+		}
+
+		if( numSkippedLines > 0 && readCount == 0 )
+		{
+			Log.warn( getClass(), "Skipped [ " + numSkippedLines + " ] empty lines at the top of ---> "
+					+ file.getAbsolutePath() );
+		}
+
+		readCount++;
+		return true;
+	}
+
+	private void ensureCapacity()
+	{
+		if( limit == buf.length )
+		{
+			final byte[] bigger = new byte[ buf.length + 1 ];
+			System.arraycopy( buf, 0, bigger, 0, limit );
+			buf = bigger;
+			for( final Slice line: lines )
+			{
+				line.buf = buf;
+			}
+		}
+	}
+
+	private boolean fill() throws IOException
+	{
+		if( eof )
+		{
+			return false;
+		}
+
+		if( limit == buf.length )
+		{
+			final int start = recStart;
+			if( start > 0 )
+			{
+				System.arraycopy( buf, start, buf, 0, limit - start );
+				for( final Slice line: lines )
+				{
+					line.shift( start );
+				}
+				limit -= start;
+				pos -= start;
+				recStart = 0;
+			}
+			else
+			{
+				final byte[] bigger = new byte[ buf.length * 2 ];
+				System.arraycopy( buf, 0, bigger, 0, limit );
+				buf = bigger;
+				for( final Slice line: lines )
+				{
+					line.buf = buf;
+				}
+			}
+		}
+
+		final int numRead = stream.read( buf, limit, buf.length - limit );
+		if( numRead < 0 )
+		{
+			eof = true;
+			return false;
+		}
+
+		limit += numRead;
+		return true;
+	}
+
+	private int findLineEnd() throws IOException
+	{
+		int i = pos;
+		while( true )
+		{
+			while( i < limit )
+			{
+				if( buf[ i ] == '\n' )
+				{
+					return i;
+				}
+				i++;
+			}
+
+			final int offset = i - pos;
+			if( !fill() )
+			{
+				if( pos < limit )
+				{
+					// last line without a line terminator
+					ensureCapacity();
+					buf[ limit ] = '\n';
+					return limit++;
+				}
+				return -1;
+			}
+			i = pos + offset;
+		}
+	}
+
+	/**
+	 * Reusable view of one line within the reader window. A slice is only valid until the next call to
+	 * {@link SeqRecordReader#next()}.
+	 */
+	public static final class Slice implements CharSequence
+	{
+		/**
+		 * Get the byte at the given position.
+		 *
+		 * @param i Index
+		 * @return byte
+		 */
+		public byte byteAt( final int i )
+		{
+			return buf[ offset + i ];
+		}
+
+		@Override
+		public char charAt( final int i )
+		{
+			return (char) ( buf[ offset + i ] & 0xff );
+		}
+
+		/**
+		 * Check if the slice contains the given bytes.
+		 *
+		 * @param target bytes to find
+		 * @return TRUE if found
+		 */
+		public boolean contains( final byte[] target )
+		{
+			return indexOf( target, 0 ) > -1;
+		}
+
+		/**
+		 * Get the backing array. Valid data is found from {@link #getOffset()} for {@link #length()} bytes.
+		 *
+		 * @return backing array
+		 */
+		public byte[] getBuffer()
+		{
+			return buf;
+		}
+
+		/**
+		 * Get the offset of the 1st byte in the backing array.
+		 *
+		 * @return offset
+		 */
+		public int getOffset()
+		{
+			return offset;
+		}
+
+		/**
+		 * Find the first index of target in this slice at or after fromIndex.
+		 *
+		 * @param target bytes to find
+		 * @param fromIndex start index
+		 * @return index or -1 if not found
+		 */
+		public int indexOf( final byte[] target, final int fromIndex )
+		{
+			final int max = len - target.length;
+			for( int i = Math.max( fromIndex, 0 ); i <= max; i++ )
+			{
+				int j = 0;
+				while( j < target.length && buf[ offset + i + j ] == target[ j ] )
+				{
+					j++;
+				}
+				if( j == target.length )
+				{
+					return i;
+				}
+			}
+			return -1;
+		}
+
+		@Override
+		public int length()
+		{
+			return len;
+		}
+
+		/**
+		 * Check if the slice starts with the given bytes.
+		 *
+		 * @param prefix bytes
+		 * @return TRUE if this slice starts with prefix
+		 */
+		public boolean startsWith( final byte[] prefix )
+		{
+			if( prefix.length > len )
+			{
+				return false;
+			}
+			for( int i = 0; i < prefix.length; i++ )
+			{
+				if( buf[ offset + i ] != prefix[ i ] )
+				{
+					return false;
+				}
+			}
+			return true;
+		}
+
+		@Override
+		public CharSequence subSequence( final int start, final int end )
+		{
+			final Slice sub = new Slice();
+			sub.set( buf, offset + start, end - start );
+			return sub;
+		}
+
+		@Override
+		public String toString()
+		{
+			return new String( buf, offset, len, StandardCharsets.ISO_8859_1 );
+		}
+
+		/**
+		 * Remove leading and trailing whitespace from this view (the underlying bytes are not modified).
+		 *
+		 * @return this slice
+		 */
+		public Slice trim()
+		{
+			while( len > 0 && buf[ offset ] <= ' ' )
+			{
+				offset++;
+				len--;
+			}
+			while( len > 0 && buf[ offset + len - 1 ] <= ' ' )
+			{
+				len--;
+			}
+			return this;
+		}
+
+		/**
+		 * Shorten this view to the given range (the underlying bytes are not modified).
+		 *
+		 * @param start Start index (inclusive)
+		 * @param end End index (exclusive)
+		 * @return this slice
+		 */
+		public Slice truncate( final int start, final int end )
+		{
+			offset += start;
+			len = end - start;
+			return this;
+		}
+
+		void set( final byte[] buf, final int offset, final int len )
+		{
+			this.buf = buf;
+			this.offset = offset;
+			this.len = len;
+		}
+
+		void shift( final int numBytes )
+		{
+			offset -= numBytes;
+		}
+
+		private byte[] buf = null;
+		private int len = 0;
+		private int offset = 0;
+	}
+
+	private byte[] buf = new byte[ WINDOW_SIZE ];
+	private boolean eof = false;
+	private final File file;
+	private int limit = 0;
+	private final Slice[] lines;
+	private final int linesPerRead;
+	private int numSkippedLines = 0;
+	private int pos = 0;
+	private long readCount = 0L;
+	private int recStart = 0;
+	private final InputStream stream;
+
+	/**
+	 * Gzipped input is inflated using this buffer size: {@value #INFLATE_BUFFER_SIZE}
+	 */
+	protected static final int INFLATE_BUFFER_SIZE = 1024 * 1024;
+
+	/**
+	 * Initial size of the byte window: {@value #WINDOW_SIZE}
+	 */
+	protected static final int WINDOW_SIZE = 4 * 1024 * 1024;
+}
@@ -0,0 +1,185 @@
+/**
+ * @UNCC Fodor Lab
+ * @author Michael Sioda
+ * @email msioda@uncc.edu
+ * @date Mar 4, 2019
+ * @disclaimer This code is free software; you can redistribute it and/or modify it under the terms of the GNU General
+ * Public License as published by the Free Software Foundation; either version 2 of the License, or (at your option) any
+ * later version, provided that any use properly credits the author. This program is distributed in the hope that it
+ * will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU General Public License for more details at http://www.gnu.org *
+ */
+package biolockj.util;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Buffered byte-level writer for FastA/FastQ records, the output side of {@link biolockj.util.SeqRecordReader}.<br>
+ * Lines are written straight from {@link biolockj.util.SeqRecordReader.Slice} views so reads pass from input to output
+ * without creating Strings. Files ending in {@value biolockj.Constants#GZIP_EXT} are gzipped.
+ */
+public class SeqRecordWriter implements Closeable, Flushable
+{
+	/**
+	 * Construct a writer that overwrites the given file.
+	 *
+	 * @param file Output file
+	 * @throws IOException if unable to open the file
+	 */
+	public SeqRecordWriter( final File file ) throws IOException
+	{
+		this( file, false );
+	}
+
+	/**
+	 * Construct a writer for the given file.
+	 *
+	 * @param file Output file
+	 * @param append Set TRUE to append to an existing file
+	 * @throws IOException if unable to open the file
+	 */
+	public SeqRecordWriter( final File file, final boolean append ) throws IOException
+	{
+		this( file, append, BUFFER_SIZE );
+	}
+
+	/**
+	 * Construct a writer for the given file with the given output buffer size. Use a small buffer when many writers
+	 * are open at the same time.
+	 *
+	 * @param file Output file
+	 * @param append Set TRUE to append to an existing file
+	 * @param bufferSize Output buffer size in bytes
+	 * @throws IOException if unable to open the file
+	 */
+	public SeqRecordWriter( final File file, final boolean append, final int bufferSize ) throws IOException
+	{
+		this.file = file;
+		buf = new byte[ bufferSize ];
+		final OutputStream fos = new FileOutputStream( file, append );
+		out = SeqUtil.isGzipped( file.getName() ) ? new GZIPOutputStream( fos, bufferSize ): fos;
+	}
+
+	@Override
+	public void close() throws IOException
+	{
+		flushBuffer();
+		out.close();
+	}
+
+	@Override
+	public void flush() throws IOException
+	{
+		flushBuffer();
+		out.flush();
+	}
+
+	/**
+	 * Get the output file.
+	 *
+	 * @return Output file
+	 */
+	public File getFile()
+	{
+		return file;
+	}
+
+	/**
+	 * Get the number of lines written.
+	 *
+	 * @return Number of lines
+	 */
+	public long getNumLines()
+	{
+		return numLines;
+	}
+
+	/**
+	 * Write the given bytes followed by a line terminator.
+	 *
+	 * @param bytes Source array
+	 * @param offset Start offset
+	 * @param len Number of bytes
+	 * @throws IOException if errors occur writing the file
+	 */
+	public void writeLine( final byte[] bytes, final int offset, final int len ) throws IOException
+	{
+		if( len + 1 > buf.length - count )
+		{
+			flushBuffer();
+			if( len + 1 > buf.length )
+			{
+				out.write( bytes, offset, len );
+				out.write( NEW_LINE );
+				numLines++;
+				return;
+			}
+		}
+
+		System.arraycopy( bytes, offset, buf, count, len );
+		count += len;
+		buf[ count++ ] = NEW_LINE;
+		numLines++;
+	}
+
+	/**
+	 * Write the slice followed by a line terminator.
+	 *
+	 * @param line Line slice
+	 * @throws IOException if errors occur writing the file
+	 */
+	public void writeLine( final SeqRecordReader.Slice line ) throws IOException
+	{
+		writeLine( line.getBuffer(), line.getOffset(), line.length() );
+	}
+
+	/**
+	 * Write the String followed by a line terminator.
+	 *
+	 * @param line Line
+	 * @throws IOException if errors occur writing the file
+	 */
+	public void writeLine( final String line ) throws IOException
+	{
+		final byte[] bytes = line.getBytes( StandardCharsets.ISO_8859_1 );
+		writeLine( bytes, 0, bytes.length );
+	}
+
+	/**
+	 * Write every line of the current read in the reader.
+	 *
+	 * @param reader Sequence reader positioned on a read
+	 * @throws IOException if errors occur writing the file
+	 */
+	public void writeRecord( final SeqRecordReader reader ) throws IOException
+	{
+		for( int i = 0; i < reader.getLinesPerRead(); i++ )
+		{
+			writeLine( reader.getLine( i ) );
+		}
+	}
+
+	private void flushBuffer() throws IOException
+	{
+		if( count > 0 )
+		{
+			out.write( buf, 0, count );
+			count = 0;
+		}
+	}
+
+	private final byte[] buf;
+	private int count = 0;
+	private final File file;
+	private long numLines = 0L;
+	private final OutputStream out;
+
+	/**
+	 * Default output buffer size: {@value #BUFFER_SIZE}
+	 */
+	protected static final int BUFFER_SIZE = 1024 * 1024;
+
+	private static final byte NEW_LINE = '\n';
+}
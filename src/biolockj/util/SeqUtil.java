@@ -14,9 +14,11 @@ package biolockj.util;
 import java.io.BufferedReader;
 import java.io.File;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.filefilter.HiddenFileFilter;
 import biolockj.Config;
+import biolockj.ConfigSnapshot;
 import biolockj.Constants;
 import biolockj.Log;
 import biolockj.exception.ConfigFormatException;
@@ -33,6 +35,18 @@ public class SeqUtil
 	private SeqUtil()
 	{}
 
+	/**
+	 * Discard the Sample IDs cached by {@link #getSampleId(String)} and the {@link biolockj.Config} properties read to
+	 * extract them. Called when the {@link biolockj.Config} properties or the metadata used to extract Sample IDs
+	 * change.
+	 */
+	public static void clearSampleIdCache()
+	{
+		sampleIdConfig = null;
+		sampleIdFromMeta = null;
+		sampleIdCache.clear();
+	}
+
 	/**
 	 * Method counts number of reads in the given sequence file by counting the number of lines and dividing by the
 	 * number of lines/sample (fasta=2, fastq=4)
@@ -173,7 +187,8 @@ public class SeqUtil
 
 	/**
 	 * Paired reads must have a unique file suffix to identify forward and reverse reads. Parameter files read and a map
-	 * with forward read file names as keys and matching reverse reads as the map return value
+	 * with forward read file names as keys and matching reverse reads as the map return value.<br>
+	 * Reverse reads are indexed by Sample ID, so each forward read is matched with a single lookup.
 	 *
 	 * @param files List of paired read files
 	 * @return Map with key=fwRead and val=rvRead
@@ -187,51 +202,47 @@ public class SeqUtil
 		final Map<File, File> map = new HashMap<>();
 		final Set<String> rvReads = new HashSet<>();
 		final Set<File> unpairedFwReads = new HashSet<>();
+		final Map<String, File> rvReadsById = new HashMap<>();
+		for( final File file: files )
+		{
+			final String name = file.getName();
+			if( !isForwardRead( name ) )
+			{
+				rvReads.add( name );
+				final String sampleID = getSampleId( name );
+				if( !rvReadsById.containsKey( sampleID ) )
+				{
+					rvReadsById.put( sampleID, file );
+				}
+			}
+		}
+
 		for( final File fwRead: files )
 		{
 			final String name = fwRead.getName();
-
 			if( !isForwardRead( name ) )
 			{
-				rvReads.add( name );
 				continue;
 			}
 
-			File rvRead = null;
 			final String sampleID = getSampleId( name );
 			Log.debug( SeqUtil.class,
 					"Search for paired read to match forward read ( " + name + " ) with sample ID: " + sampleID );
-			for( final File searchFile: files )
-			{
-				if( sampleID.equals( getSampleId( searchFile.getName() ) ) && !isForwardRead( searchFile.getName() ) )
-				{
-					Log.debug( SeqUtil.class, "Matching reverse read: " + searchFile.getName() );
-					rvRead = searchFile;
-					break;
-				}
-			}
-
+			final File rvRead = rvReadsById.get( sampleID );
 			if( rvRead != null )
 			{
+				Log.debug( SeqUtil.class, "Matching reverse read: " + rvRead.getName() );
 				map.put( fwRead, rvRead );
 			}
 			else
 			{
 				unpairedFwReads.add( fwRead );
 			}
-
 		}
 
 		for( final File f: map.values() )
 		{
-			for( final String rv: rvReads )
-			{
-				if( rv.equals( f.getName() ) )
-				{
-					rvReads.remove( rv );
-					break;
-				}
-			}
+			rvReads.remove( f.getName() );
 		}
 
 		String msg = "";
@@ -296,109 +307,42 @@ public class SeqUtil
 	}
 
 	/**
-	 * Method extracts Sample ID from the name param. Possibly input is a file name so remove file extensions. If
-	 * demultiplexing (RDP/Kraken support this option), input is a sequence header. If
+	 * Method extracts Sample ID from the file name param, removing file extensions. If
 	 * {@link biolockj.Config}.{@value biolockj.util.MetaUtil#META_FILENAME_COLUMN} is supplied, then possible return
-	 * values are limited to the given samples ids, or "" if the file is not in the filename column.
+	 * values are limited to the given samples ids, or "" if the file is not in the filename column.<br>
+	 * Sample IDs are cached by file name until {@link #clearSampleIdCache()} is called. Sequence headers must be passed
+	 * to {@link #getSampleIdFromHeader(String)} instead, so they are not cached.
 	 *
-	 * @param value File name or sequence header
+	 * @param value File name
 	 * @return Sample ID
 	 * @throws Exception if unable to determine Sample ID
 	 */
 	public static String getSampleId( final String value ) throws Exception
 	{
-		String id;
-		String revValue = "";
-		try
+		String id = sampleIdCache.get( value );
+		if( id == null )
 		{
-			final String fileNameCol = Config.getString( null, MetaUtil.META_FILENAME_COLUMN );
-			if( MetaUtil.hasColumn( fileNameCol ) )
-			{
-				int ind;
-				if( isForwardRead( value ) )
-				{
-					ind = MetaUtil.getFieldValues( fileNameCol, false ).indexOf( value );
-				}
-
-				else
-				{
-					// if this file name is a reverse file, look up the corresponding forward file name.
-					final String fwReadSuffix = Config.getString( null, Constants.INPUT_FORWARD_READ_SUFFIX );
-					final String rvReadSuffix = Config.getString( null, Constants.INPUT_REVERSE_READ_SUFFIX );
-					revValue = value.substring( 0, value.lastIndexOf( rvReadSuffix ) ) + fwReadSuffix
-							+ value.substring( value.lastIndexOf( rvReadSuffix ) + rvReadSuffix.length() );
-					Log.debug( SeqUtil.class, value + " is a reverse read. Seeking sample id for file: " + revValue );
-					ind = MetaUtil.getFieldValues( fileNameCol, false ).indexOf( revValue );
-				}
-				if( ind == -1 )
-				{
-					Log.info( SeqUtil.class, "Filename [" + ( isForwardRead( value ) ? value: revValue )
-							+ "] does not appear in column [" + fileNameCol + "]. This file will be ignored." );
-					id = "";
-				}
-				else
-				{
-					id = MetaUtil.getSampleIds().get( ind );
-				}
-			}
-			else
-			{
-				id = value;
-				// trim .gz extension
-				if( isGzipped( id ) )
-				{
-					id = id.substring( 0, id.length() - 3 ); // 9_R2.fastq
-				}
-
-				// trim .fasta or .fastq extension
-				if( id.toLowerCase().endsWith( "." + Constants.FASTA )
-						|| id.toLowerCase().endsWith( "." + Constants.FASTQ ) )
-				{
-					id = id.substring( 0, id.length() - 6 );
-				}
-			}
-			// trim directional suffix
-			if( !Config.getBoolean( null, Constants.INTERNAL_MULTIPLEXED ) ) // must be a file name
-			{
-				final String fwReadSuffix = Config.getString( null, Constants.INPUT_FORWARD_READ_SUFFIX );
-				final String rvReadSuffix = Config.getString( null, Constants.INPUT_REVERSE_READ_SUFFIX );
-				if( fwReadSuffix != null && isForwardRead( id ) && id.lastIndexOf( fwReadSuffix ) > 0 )
-				{
-					id = id.substring( 0, id.lastIndexOf( fwReadSuffix ) );
-				}
-				else if( rvReadSuffix != null && id.lastIndexOf( rvReadSuffix ) > 0 )
-				{
-					id = id.substring( 0, id.lastIndexOf( rvReadSuffix ) );
-				}
-			}
-
-			// trim user defined file prefix and/or suffix patterns
-			final String trimPrefix = Config.getString( null, Constants.INPUT_TRIM_PREFIX );
-			final String trimSuffix = Config.getString( null, Constants.INPUT_TRIM_SUFFIX );
-			if( trimPrefix != null && !trimPrefix.isEmpty() && id.indexOf( trimPrefix ) > -1 )
-			{
-				id = id.substring( trimPrefix.length() + id.indexOf( trimPrefix ) );
-			}
-
-			if( trimSuffix != null && !trimSuffix.isEmpty() && id.indexOf( trimSuffix ) > 0 )
-			{
-				id = id.substring( 0, id.indexOf( trimSuffix ) );
-			}
-		}
-		catch( final Exception ex )
-		{
-			Log.error( SeqUtil.class, "Unable to extract Sample ID from: " + value, ex );
-			throw ex;
-		}
-
-		if( id == null || id.isEmpty() )
-		{
-			throw new Exception( "Unable to extract a valid Sample ID from: " + value );
+			id = parseSampleId( value );
+			sampleIdCache.put( value, id );
 		}
 
 		return id;
 	}
 
+	/**
+	 * Extract the Sample ID from a sequence header if demultiplexing (RDP/Kraken support this option), as described in
+	 * {@link #getSampleId(String)}. Headers are unique per read, so the Sample ID is not cached, but the
+	 * {@link biolockj.Config} properties used to extract it are only read once.
+	 *
+	 * @param header Sequence header
+	 * @return Sample ID
+	 * @throws Exception if unable to determine Sample ID
+	 */
+	public static String getSampleIdFromHeader( final String header ) throws Exception
+	{
+		return parseSampleId( header );
+	}
+
 	/**
 	 * Return only sequence files for sample IDs found in the metadata file.<br>
 	 * If {@link biolockj.Config}.{@value biolockj.util.MetaUtil#META_REQUIRED} = {@value biolockj.Constants#TRUE}, an
@@ -944,12 +888,136 @@ public class SeqUtil
 		Config.setConfigProperty( Constants.INTERNAL_PAIRED_READS, foundPairedReads ? Constants.TRUE: Constants.FALSE );
 	}
 
+	/**
+	 * Get the {@link biolockj.Config} properties used by {@link #parseSampleId(String)}, read once until
+	 * {@link #clearSampleIdCache()} is called.
+	 */
+	private static ConfigSnapshot getSampleIdConfig() throws Exception
+	{
+		ConfigSnapshot config = sampleIdConfig;
+		if( config == null )
+		{
+			config = new ConfigSnapshot.Builder( null ).addString( MetaUtil.META_FILENAME_COLUMN )
+					.addString( Constants.INPUT_FORWARD_READ_SUFFIX ).addString( Constants.INPUT_REVERSE_READ_SUFFIX )
+					.addBoolean( Constants.INTERNAL_MULTIPLEXED ).addString( Constants.INPUT_TRIM_PREFIX )
+					.addString( Constants.INPUT_TRIM_SUFFIX ).build();
+			sampleIdConfig = config;
+		}
+
+		return config;
+	}
+
 	private static boolean mapSampleIdWithMetaFileNameCol() throws Exception
 	{
 		final String metaCol = Config.getString( null, MetaUtil.META_FILENAME_COLUMN );
 		return metaCol != null && MetaUtil.hasColumn( metaCol ) && !MetaUtil.getFieldValues( metaCol, true ).isEmpty();
 	}
 
+	/**
+	 * Extract the Sample ID from a file name or sequence header, as described in {@link #getSampleId(String)}.
+	 */
+	private static String parseSampleId( final String value ) throws Exception
+	{
+		String id;
+		String revValue = "";
+		try
+		{
+			final ConfigSnapshot config = getSampleIdConfig();
+			final String fileNameCol = config.getString( MetaUtil.META_FILENAME_COLUMN );
+			final String fwReadSuffix = config.getString( Constants.INPUT_FORWARD_READ_SUFFIX );
+			final String rvReadSuffix = config.getString( Constants.INPUT_REVERSE_READ_SUFFIX );
+			Boolean fromMeta = sampleIdFromMeta;
+			if( fromMeta == null )
+			{
+				fromMeta = MetaUtil.hasColumn( fileNameCol );
+				sampleIdFromMeta = fromMeta;
+			}
+
+			if( fromMeta )
+			{
+				final boolean isForward = rvReadSuffix == null || !value.contains( rvReadSuffix );
+				String metaId;
+				if( isForward )
+				{
+					metaId = MetaUtil.getSampleId( fileNameCol, value );
+				}
+
+				else
+				{
+					// if this file name is a reverse file, look up the corresponding forward file name.
+					revValue = value.substring( 0, value.lastIndexOf( rvReadSuffix ) ) + fwReadSuffix
+							+ value.substring( value.lastIndexOf( rvReadSuffix ) + rvReadSuffix.length() );
+					Log.debug( SeqUtil.class, value + " is a reverse read. Seeking sample id for file: " + revValue );
+					metaId = MetaUtil.getSampleId( fileNameCol, revValue );
+				}
+				if( metaId == null )
+				{
+					Log.info( SeqUtil.class, "Filename [" + ( isForward ? value: revValue )
+							+ "] does not appear in column [" + fileNameCol + "]. This file will be ignored." );
+					id = "";
+				}
+				else
+				{
+					id = metaId;
+				}
+			}
+			else
+			{
+				id = value;
+				// trim .gz extension
+				if( isGzipped( id ) )
+				{
+					id = id.substring( 0, id.length() - 3 ); // 9_R2.fastq
+				}
+
+				// trim .fasta or .fastq extension
+				if( id.toLowerCase().endsWith( "." + Constants.FASTA )
+						|| id.toLowerCase().endsWith( "." + Constants.FASTQ ) )
+				{
+					id = id.substring( 0, id.length() - 6 );
+				}
+			}
+			// trim directional suffix
+			if( !config.getBoolean( Constants.INTERNAL_MULTIPLEXED ) ) // must be a file name
+			{
+				if( fwReadSuffix != null && ( rvReadSuffix == null || !id.contains( rvReadSuffix ) )
+						&& id.lastIndexOf( fwReadSuffix ) > 0 )
+				{
+					id = id.substring( 0, id.lastIndexOf( fwReadSuffix ) );
+				}
+				else if( rvReadSuffix != null && id.lastIndexOf( rvReadSuffix ) > 0 )
+				{
+					id = id.substring( 0, id.lastIndexOf( rvReadSuffix ) );
+				}
+			}
+
+			// trim user defined file prefix and/or suffix patterns
+			final String trimPrefix = config.getString( Constants.INPUT_TRIM_PREFIX );
+			final String trimSuffix = config.getString( Constants.INPUT_TRIM_SUFFIX );
+			if( trimPrefix != null && !trimPrefix.isEmpty() && id.indexOf( trimPrefix ) > -1 )
+			{
+				id = id.substring( trimPrefix.length() + id.indexOf( trimPrefix ) );
+			}
+
+			if( trimSuffix != null && !trimSuffix.isEmpty() && id.indexOf( trimSuffix ) > 0 )
+			{
+				id = id.substring( 0, id.indexOf( trimSuffix ) );
+			}
+		}
+		catch( final Exception ex )
+		{
+			Log.error( SeqUtil.class, "Unable to extract Sample ID from: " + value, ex );
+			throw ex;
+		}
+
+		if( id == null || id.isEmpty() )
+		{
+			throw new Exception( "Unable to extract a valid Sample ID from: " + value );
+		}
+
+		return id;
+	}
+
 	/**
 	 * Unpaired reads must be multiplexed into a single file. Multiplexed paired reads must be contained in either 1
 	 * file, or 2 (1 file with forward reads and 1 file with reverse reads). Based on the number of files and file
@@ -1048,6 +1116,9 @@ public class SeqUtil
 	private static final String FASTQ_HEADER_DELIM = "@";
 
 	private static Integer numMultiSeqLines = 0;
+	private static final Map<String, String> sampleIdCache = new ConcurrentHashMap<>();
+	private static volatile ConfigSnapshot sampleIdConfig = null;
+	private static volatile Boolean sampleIdFromMeta = null;
 
 	static
 	{
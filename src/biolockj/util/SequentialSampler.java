@@ -0,0 +1,196 @@
+/**
+ * @UNCC Fodor Lab
+ * @author Michael Sioda
+ * @email msioda@uncc.edu
+ * @date Mar 8, 2019
+ * @disclaimer This code is free software; you can redistribute it and/or modify it under the terms of the GNU General
+ * Public License as published by the Free Software Foundation; either version 2 of the License, or (at your option) any
+ * later version, provided that any use properly credits the author. This program is distributed in the hope that it
+ * will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU General Public License for more details at http://www.gnu.org *
+ */
+package biolockj.util;
+
+import java.util.Random;
+
+/**
+ * Selects a uniform random sample of n indexes from [0, N) without replacement, returned in ascending order by
+ * {@link #next()}. This is Vitter's Method D ("An Efficient Algorithm for Sequential Random Sampling", 1987). It
+ * generates the number of indexes to skip between selections directly, so the cost is O(n) random draws with constant
+ * memory, independent of N. Once n becomes large relative to the remaining population, it switches to Method A.
+ */
+public class SequentialSampler
+{
+	/**
+	 * Construct a sampler to select sampleSize indexes from [0, populationSize).
+	 *
+	 * @param populationSize Population size (N)
+	 * @param sampleSize Sample size (n), must be less than or equal to populationSize
+	 * @param random Random number generator
+	 * @throws Exception if sampleSize is negative or larger than populationSize
+	 */
+	public SequentialSampler( final long populationSize, final long sampleSize, final Random random )
+			throws Exception
+	{
+		if( sampleSize < 0 || sampleSize > populationSize )
+		{
+			throw new Exception(
+					"Invalid sample size [ " + sampleSize + " ] for population size [ " + populationSize + " ]" );
+		}
+
+		this.random = random;
+		n = sampleSize;
+		N = populationSize;
+		nReal = n;
+		NReal = N;
+		nInv = 1.0 / nReal;
+		vPrime = Math.exp( Math.log( uniform() ) * nInv );
+		qu1 = N - n + 1;
+		qu1Real = NReal - nReal + 1.0;
+		threshold = ALPHA_INV * n;
+	}
+
+	/**
+	 * Get the next selected index.
+	 *
+	 * @return Next index in ascending order, or -1 if all indexes have been selected
+	 */
+	public long next()
+	{
+		if( n == 0 )
+		{
+			return -1L;
+		}
+
+		final long skip;
+		if( n > 1 && threshold < N )
+		{
+			skip = skipMethodD();
+		}
+		else if( n > 1 )
+		{
+			skip = skipMethodA();
+		}
+		else
+		{
+			skip = useMethodA ? (long) ( N * uniform() ): (long) ( N * vPrime );
+			n = 0;
+		}
+
+		pos += skip;
+		return pos++;
+	}
+
+	private long skipMethodA()
+	{
+		useMethodA = true;
+		double top = N - n;
+		double popReal = N;
+		final double v = uniform();
+		long s = 0L;
+		double quot = top / popReal;
+		while( quot > v )
+		{
+			s++;
+			top--;
+			popReal--;
+			quot = quot * top / popReal;
+		}
+
+		N = N - s - 1;
+		n--;
+		return s;
+	}
+
+	private long skipMethodD()
+	{
+		final double nMin1Inv = 1.0 / ( nReal - 1.0 );
+		long s;
+		while( true )
+		{
+			double x;
+			while( true )
+			{
+				x = NReal * ( 1.0 - vPrime );
+				s = (long) x;
+				if( s < qu1 )
+				{
+					break;
+				}
+				vPrime = Math.exp( Math.log( uniform() ) * nInv );
+			}
+
+			final double y1 = Math.exp( Math.log( uniform() * NReal / qu1Real ) * nMin1Inv );
+			vPrime = y1 * ( 1.0 - x / NReal ) * ( qu1Real / ( qu1Real - s ) );
+			if( vPrime <= 1.0 )
+			{
+				break;
+			}
+
+			double y2 = 1.0;
+			double top = NReal - 1.0;
+			double bottom;
+			long limit;
+			if( n - 1 > s )
+			{
+				bottom = NReal - nReal;
+				limit = N - s;
+			}
+			else
+			{
+				bottom = NReal - s - 1.0;
+				limit = qu1;
+			}
+
+			for( long t = N - 1; t >= limit; t-- )
+			{
+				y2 = y2 * top / bottom;
+				top--;
+				bottom--;
+			}
+
+			if( NReal / ( NReal - x ) >= y1 * Math.exp( Math.log( y2 ) * nMin1Inv ) )
+			{
+				vPrime = Math.exp( Math.log( uniform() ) * nMin1Inv );
+				break;
+			}
+			vPrime = Math.exp( Math.log( uniform() ) * nInv );
+		}
+
+		N = N - s - 1;
+		NReal = NReal - s - 1.0;
+		n--;
+		nReal--;
+		nInv = nMin1Inv;
+		qu1 = qu1 - s;
+		qu1Real = qu1Real - s;
+		threshold -= ALPHA_INV;
+		return s;
+	}
+
+	/**
+	 * Uniform random number in (0, 1].
+	 */
+	private double uniform()
+	{
+		return 1.0 - random.nextDouble();
+	}
+
+	private long N;
+	private long n;
+	private double nInv;
+	private double NReal;
+	private double nReal;
+	private long pos = 0L;
+	private long qu1;
+	private double qu1Real;
+	private final Random random;
+	private long threshold;
+	private boolean useMethodA = false;
+	private double vPrime;
+
+	/**
+	 * Method D switches to Method A once n &gt; N / {@value #ALPHA_INV}
+	 */
+	protected static final long ALPHA_INV = 13L;
+}
@@ -0,0 +1,225 @@
+/**
+ * @UNCC Fodor Lab
+ * @author Michael Sioda
+ * @email msioda@uncc.edu
+ * @date Mar 25, 2019
+ * @disclaimer This code is free software; you can redistribute it and/or modify it under the terms of the GNU General
+ * Public License as published by the Free Software Foundation; either version 2 of the License, or (at your option) any
+ * later version, provided that any use properly credits the author. This program is distributed in the hope that it
+ * will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU General Public License for more details at http://www.gnu.org *
+ */
+package biolockj.util;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+/**
+ * Disk-backed map of OTU counts by sample, returned by
+ * {@link biolockj.util.OtuUtil#getSampleOtuCounts(Collection, File)} if
+ * {@link biolockj.Config}.{@value biolockj.Constants#REPORT_SPILL_OTU_COUNTS}={@value biolockj.Constants#TRUE}, so
+ * cohorts with more OTU counts than fit in the heap can be processed.<br>
+ * The OTU counts of each sample are appended to a spill file as a single run of (OTU ID, count) pairs, sorted by OTU,
+ * and only the Sample ID index of run offsets and the OTU dictionary are kept in memory. Each {@link #get(Object)}
+ * reads the run back into a new TreeMap, so callers that update the counts of a sample must {@link #put} them back.
+ * Samples are iterated in Sample ID order, and reading every sample in order reads the spill file sequentially.
+ */
+public class SpilledOtuCounts extends AbstractMap<String, TreeMap<String, Long>> implements Closeable
+{
+	/**
+	 * Create an empty map that spills OTU counts to the given file. Any existing file is replaced.
+	 *
+	 * @param file Spill file
+	 * @throws IOException if the spill file cannot be created
+	 */
+	public SpilledOtuCounts( final File file ) throws IOException
+	{
+		this.file = file;
+		channel = FileChannel.open( file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+				StandardOpenOption.READ, StandardOpenOption.WRITE );
+	}
+
+	/**
+	 * Close and delete the spill file.
+	 */
+	@Override
+	public synchronized void close() throws IOException
+	{
+		index.clear();
+		channel.close();
+		if( !file.delete() )
+		{
+			file.deleteOnExit();
+		}
+	}
+
+	@Override
+	public synchronized boolean containsKey( final Object sampleId )
+	{
+		return index.containsKey( sampleId );
+	}
+
+	@Override
+	public Set<Entry<String, TreeMap<String, Long>>> entrySet()
+	{
+		return new AbstractSet<Entry<String, TreeMap<String, Long>>>()
+		{
+			@Override
+			public Iterator<Entry<String, TreeMap<String, Long>>> iterator()
+			{
+				final Iterator<String> ids = keySet().iterator();
+				return new Iterator<Entry<String, TreeMap<String, Long>>>()
+				{
+					@Override
+					public boolean hasNext()
+					{
+						return ids.hasNext();
+					}
+
+					@Override
+					public Entry<String, TreeMap<String, Long>> next()
+					{
+						final String id = ids.next();
+						return new SimpleImmutableEntry<>( id, get( id ) );
+					}
+				};
+			}
+
+			@Override
+			public int size()
+			{
+				return SpilledOtuCounts.this.size();
+			}
+		};
+	}
+
+	/**
+	 * Read the OTU counts of the sample from the spill file.
+	 *
+	 * @param sampleId Sample ID
+	 * @return New TreeMap(OTU, count), or null if the sample is not found
+	 * @throws IllegalStateException if the spill file cannot be read
+	 */
+	@Override
+	public synchronized TreeMap<String, Long> get( final Object sampleId )
+	{
+		final long[] run = index.get( sampleId );
+		if( run == null )
+		{
+			return null;
+		}
+
+		try
+		{
+			final byte[] bytes = new byte[ (int) run[ 1 ] ];
+			final ByteBuffer buffer = ByteBuffer.wrap( bytes );
+			while( buffer.hasRemaining() )
+			{
+				if( channel.read( buffer, run[ 0 ] + buffer.position() ) < 0 )
+				{
+					throw new EOFException( "Unexpected end of OTU count spill file: " + file.getAbsolutePath() );
+				}
+			}
+
+			final InputStream in = new ByteArrayInputStream( bytes );
+			final TreeMap<String, Long> otuCounts = new TreeMap<>();
+			final long numOtus = VarLongUtil.readVarLong( in );
+			for( long i = 0; i < numOtus; i++ )
+			{
+				otuCounts.put( otus.get( (int) VarLongUtil.readVarLong( in ) ),
+						VarLongUtil.unZigZag( VarLongUtil.readVarLong( in ) ) );
+			}
+			return otuCounts;
+		}
+		catch( final IOException ex )
+		{
+			throw new IllegalStateException( "Unable to read OTU counts for [ " + sampleId + " ] from spill file: "
+					+ file.getAbsolutePath() + " --> " + ex.getMessage(), ex );
+		}
+	}
+
+	/**
+	 * Get the spill file.
+	 *
+	 * @return Spill file
+	 */
+	public File getFile()
+	{
+		return file;
+	}
+
+	@Override
+	public synchronized Set<String> keySet()
+	{
+		return Collections.unmodifiableSet( new TreeSet<>( index.keySet() ) );
+	}
+
+	/**
+	 * Append the OTU counts of the sample to the spill file. If the sample was already in the map, its previous run is
+	 * no longer referenced. The previous counts are not read back, so this method always returns null.
+	 *
+	 * @param sampleId Sample ID
+	 * @param otuCounts TreeMap(OTU, count)
+	 * @return null
+	 * @throws IllegalStateException if the spill file cannot be written
+	 */
+	@Override
+	public synchronized TreeMap<String, Long> put( final String sampleId, final TreeMap<String, Long> otuCounts )
+	{
+		try
+		{
+			final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			VarLongUtil.writeVarLong( bytes, otuCounts.size() );
+			for( final String otu: otuCounts.keySet() )
+			{
+				Integer otuId = otuIds.get( otu );
+				if( otuId == null )
+				{
+					otuId = otus.size();
+					otus.add( otu );
+					otuIds.put( otu, otuId );
+				}
+				VarLongUtil.writeVarLong( bytes, otuId );
+				VarLongUtil.writeVarLong( bytes, VarLongUtil.zigZag( otuCounts.get( otu ) ) );
+			}
+
+			final ByteBuffer buffer = ByteBuffer.wrap( bytes.toByteArray() );
+			final long offset = size;
+			while( buffer.hasRemaining() )
+			{
+				size += channel.write( buffer, size );
+			}
+			index.put( sampleId, new long[] { offset, size - offset } );
+			return null;
+		}
+		catch( final IOException ex )
+		{
+			throw new IllegalStateException( "Unable to write OTU counts for [ " + sampleId + " ] to spill file: "
+					+ file.getAbsolutePath() + " --> " + ex.getMessage(), ex );
+		}
+	}
+
+	@Override
+	public synchronized TreeMap<String, Long> remove( final Object sampleId )
+	{
+		final TreeMap<String, Long> otuCounts = get( sampleId );
+		index.remove( sampleId );
+		return otuCounts;
+	}
+
+	@Override
+	public synchronized int size()
+	{
+		return index.size();
+	}
+
+	private final FileChannel channel;
+	private final File file;
+	private final TreeMap<String, long[]> index = new TreeMap<>();
+	private final Map<String, Integer> otuIds = new HashMap<>();
+	private final List<String> otus = new ArrayList<>();
+	private long size = 0L;
+}
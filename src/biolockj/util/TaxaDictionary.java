@@ -0,0 +1,202 @@
+/**
+ * @UNCC Fodor Lab
+ * @author Michael Sioda
+ * @email msioda@uncc.edu
+ * @date Mar 12, 2019
+ * @disclaimer This code is free software; you can redistribute it and/or modify it under the terms of the GNU General
+ * Public License as published by the Free Software Foundation; either version 2 of the License, or (at your option) any
+ * later version, provided that any use properly credits the author. This program is distributed in the hope that it
+ * will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU General Public License for more details at http://www.gnu.org *
+ */
+package biolockj.util;
+
+import java.util.*;
+
+/**
+ * Dictionary of the OTUs found in {@link biolockj.module.implicit.parser.ParserModule} format OTU count files, built by
+ * a module for the OTUs it processes. Each unique OTU path is assigned an int OTU ID, in the order given, and is parsed
+ * only once to find the taxa ID of its ancestor at each {@link biolockj.util.TaxaUtil#getTaxaLevels()} level.<br>
+ * Taxa IDs are assigned separately for each level, starting at 0, so level aggregation can use the taxa ID as an
+ * array index. Levels are given by level index, the position of the level in
+ * {@link biolockj.util.TaxaUtil#getTaxaLevels()}.<br>
+ * The dictionary is not changed once built, so it can be read from several threads without locking.
+ */
+public class TaxaDictionary
+{
+	/**
+	 * Build the dictionary for the given OTUs.
+	 *
+	 * @param otus OTU paths in {@link biolockj.module.implicit.parser.ParserModule} format
+	 * @throws Exception if errors occur parsing the OTUs
+	 */
+	public TaxaDictionary( final Collection<String> otus ) throws Exception
+	{
+		final List<String> levels = TaxaUtil.getTaxaLevels();
+		final List<List<String>> taxaNames = new ArrayList<>();
+		final List<Map<String, Integer>> taxaIds = new ArrayList<>();
+		for( int i = 0; i < levels.size(); i++ )
+		{
+			taxaNames.add( new ArrayList<>() );
+			taxaIds.add( new HashMap<>() );
+		}
+
+		final Map<String, Integer> ids = new HashMap<>();
+		final List<String> names = new ArrayList<>();
+		final List<int[]> ancestors = new ArrayList<>();
+		for( final String otu: otus )
+		{
+			if( ids.containsKey( otu ) )
+			{
+				continue;
+			}
+
+			final int[] otuTaxaIds = new int[ levels.size() ];
+			for( int i = 0; i < levels.size(); i++ )
+			{
+				final String taxa = TaxaUtil.getTaxaName( otu, levels.get( i ) );
+				otuTaxaIds[ i ] = taxa == null ? NONE: internTaxa( taxaNames.get( i ), taxaIds.get( i ), taxa );
+			}
+
+			ids.put( otu, names.size() );
+			names.add( otu );
+			ancestors.add( otuTaxaIds );
+		}
+
+		levelTaxa = new String[ levels.size() ][];
+		sortedTaxaIds = new int[ levels.size() ][];
+		for( int i = 0; i < levels.size(); i++ )
+		{
+			levelTaxa[ i ] = taxaNames.get( i ).toArray( new String[ 0 ] );
+			sortedTaxaIds[ i ] = new int[ levelTaxa[ i ].length ];
+			int j = 0;
+			for( final Integer id: new TreeMap<>( taxaIds.get( i ) ).values() )
+			{
+				sortedTaxaIds[ i ][ j++ ] = id;
+			}
+		}
+
+		otuIds = ids;
+		this.otus = names.toArray( new String[ 0 ] );
+		otuTaxaIds = ancestors.toArray( new int[ 0 ][] );
+	}
+
+	/**
+	 * Get the number of unique OTUs in the dictionary. OTU IDs run from 0 to this number - 1.
+	 *
+	 * @return Number of OTUs
+	 */
+	public int getNumOtus()
+	{
+		return otus.length;
+	}
+
+	/**
+	 * Get the number of unique taxa found at the given level.
+	 *
+	 * @param levelIndex Level index
+	 * @return Number of taxa
+	 */
+	public int getNumTaxa( final int levelIndex )
+	{
+		return levelTaxa[ levelIndex ].length;
+	}
+
+	/**
+	 * Get the OTU path for the OTU ID.
+	 *
+	 * @param otuId OTU ID
+	 * @return OTU path
+	 */
+	public String getOtu( final int otuId )
+	{
+		return otus[ otuId ];
+	}
+
+	/**
+	 * Get the OTU ID for the OTU path.
+	 *
+	 * @param otu OTU path in {@link biolockj.module.implicit.parser.ParserModule} format
+	 * @return OTU ID, or {@value #NONE} if the OTU is not in the dictionary
+	 */
+	public int getOtuId( final String otu )
+	{
+		final Integer id = otuIds.get( otu );
+		return id == null ? NONE: id;
+	}
+
+	/**
+	 * Get the taxa IDs at the given level ordered by taxa name.
+	 *
+	 * @param levelIndex Level index
+	 * @return Array of taxa IDs
+	 */
+	public int[] getSortedTaxaIds( final int levelIndex )
+	{
+		return sortedTaxaIds[ levelIndex ].clone();
+	}
+
+	/**
+	 * Get the taxa name for the taxa ID at the given level.
+	 *
+	 * @param levelIndex Level index
+	 * @param taxaId Taxa ID
+	 * @return Taxa name
+	 */
+	public String getTaxa( final int levelIndex, final int taxaId )
+	{
+		return levelTaxa[ levelIndex ][ taxaId ];
+	}
+
+	/**
+	 * Get the ID of the OTU ancestor taxa at the given level.
+	 *
+	 * @param otuId OTU ID
+	 * @param levelIndex Level index
+	 * @return Taxa ID, or {@value #NONE} if the OTU has no taxa at the level
+	 */
+	public int getTaxaId( final int otuId, final int levelIndex )
+	{
+		return otuTaxaIds[ otuId ][ levelIndex ];
+	}
+
+	/**
+	 * Get the ancestor taxa name of the OTU at the given level.
+	 *
+	 * @param otuId OTU ID
+	 * @param levelIndex Level index
+	 * @return Taxa name, or null if the OTU has no taxa at the level
+	 */
+	public String getTaxaName( final int otuId, final int levelIndex )
+	{
+		final int taxaId = getTaxaId( otuId, levelIndex );
+		return taxaId == NONE ? null: getTaxa( levelIndex, taxaId );
+	}
+
+	private static int internTaxa( final List<String> taxaNames, final Map<String, Integer> taxaIds,
+			final String taxa )
+	{
+		final Integer id = taxaIds.get( taxa );
+		if( id != null )
+		{
+			return id;
+		}
+
+		final int taxaId = taxaNames.size();
+		taxaNames.add( taxa );
+		taxaIds.put( taxa, taxaId );
+		return taxaId;
+	}
+
+	private final String[][] levelTaxa;
+	private final Map<String, Integer> otuIds;
+	private final String[] otus;
+	private final int[][] otuTaxaIds;
+	private final int[][] sortedTaxaIds;
+
+	/**
+	 * Taxa ID returned if an OTU does not include a taxa at the level, or OTU ID returned if an OTU is not in the
+	 * dictionary: {@value #NONE}
+	 */
+	public static final int NONE = -1;
+}
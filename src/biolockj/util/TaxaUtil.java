@@ -107,6 +107,7 @@ public class TaxaUtil
 	 * <ol>
 	 * <li>TreeMap(sample42, TreeMap( Actinobacteria=1000, Bacteroidetes=577 ) )
 	 * </ol>
+	 * Each OTU is parsed once, and its taxa is reused for every sample that lists it.
 	 * 
 	 * @param sampleOtuCounts TreeMap(sampleId, TreeMap(OTU, count)) OTU counts for every sample
 	 * @param level {@link biolockj.Config}.{@value biolockj.Constants#REPORT_TAXONOMY_LEVELS}
@@ -117,13 +118,18 @@ public class TaxaUtil
 			final TreeMap<String, TreeMap<String, Long>> sampleOtuCounts, final String level ) throws Exception
 	{
 		final TreeMap<String, TreeMap<String, Long>> taxaCounts = new TreeMap<>();
+		final Map<String, String> otuTaxa = new HashMap<>();
 
 		for( final String sampleId: sampleOtuCounts.keySet() )
 		{
 			final TreeMap<String, Long> otuCounts = sampleOtuCounts.get( sampleId );
 			for( final String otu: otuCounts.keySet() )
 			{
-				final String taxa = getTaxaName( otu, level );
+				if( !otuTaxa.containsKey( otu ) )
+				{
+					otuTaxa.put( otu, getTaxaName( otu, level ) );
+				}
+				final String taxa = otuTaxa.get( otu );
 				if( taxa != null )
 				{
 					if( taxaCounts.get( sampleId ) == null )
@@ -158,7 +164,7 @@ public class TaxaUtil
 			final String name = getTaxaName( otu, level );
 			if( name != null )
 			{
-				map.put( level, getTaxaName( otu, level ) );
+				map.put( level, name );
 			}
 		}
 		return map;
@@ -188,12 +194,12 @@ public class TaxaUtil
 			return levelSpan;
 		}
 
-		levelSpan = new ArrayList<>();
+		final List<String> span = new ArrayList<>();
 		for( final String level: allTaxonomyLevels() )
 		{
-			if( !levelSpan.isEmpty() || level.equals( topTaxaLevel() ) )
+			if( !span.isEmpty() || level.equals( topTaxaLevel() ) )
 			{
-				levelSpan.add( level );
+				span.add( level );
 			}
 
 			if( level.equals( bottomTaxaLevel() ) )
@@ -201,6 +207,7 @@ public class TaxaUtil
 				break;
 			}
 		}
+		levelSpan = span;
 		return levelSpan;
 	}
 
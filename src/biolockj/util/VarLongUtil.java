@@ -0,0 +1,96 @@
+/**
+ * @UNCC Fodor Lab
+ * @author Michael Sioda
+ * @email msioda@uncc.edu
+ * @date Mar 25, 2019
+ * @disclaimer This code is free software; you can redistribute it and/or modify it under the terms of the GNU General
+ * Public License as published by the Free Software Foundation; either version 2 of the License, or (at your option) any
+ * later version, provided that any use properly credits the author. This program is distributed in the hope that it
+ * will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU General Public License for more details at http://www.gnu.org *
+ */
+package biolockj.util;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Variable length encoding of long values shared by the binary OTU count formats,
+ * {@link biolockj.util.CountMatrixFile} and {@link biolockj.util.SpilledOtuCounts}.<br>
+ * Values are written 7 bits per byte, low bits first, with the high bit set on every byte but the last, so small
+ * values take a single byte. Signed values are zig-zag encoded first so small negative values stay small.
+ */
+final class VarLongUtil
+{
+	// Prevent instantiation
+	private VarLongUtil()
+	{}
+
+	/**
+	 * Read a variable length long value.
+	 *
+	 * @param in InputStream
+	 * @return Value
+	 * @throws IOException if the stream ends before the value is complete
+	 */
+	static long readVarLong( final InputStream in ) throws IOException
+	{
+		long val = 0L;
+		int shift = 0;
+		while( true )
+		{
+			final int b = in.read();
+			if( b < 0 )
+			{
+				throw new EOFException();
+			}
+			val |= (long) ( b & 0x7f ) << shift;
+			if( ( b & 0x80 ) == 0 )
+			{
+				return val;
+			}
+			shift += 7;
+		}
+	}
+
+	/**
+	 * Decode a zig-zag encoded value.
+	 *
+	 * @param val Value returned by {@link #zigZag(long)}
+	 * @return Signed value
+	 */
+	static long unZigZag( final long val )
+	{
+		return val >>> 1 ^ -( val & 1L );
+	}
+
+	/**
+	 * Write a variable length long value.
+	 *
+	 * @param out OutputStream
+	 * @param val Value
+	 * @throws IOException if unable to write the value
+	 */
+	static void writeVarLong( final OutputStream out, long val ) throws IOException
+	{
+		while( ( val & ~0x7fL ) != 0L )
+		{
+			out.write( (int) ( val & 0x7f | 0x80 ) );
+			val >>>= 7;
+		}
+		out.write( (int) val );
+	}
+
+	/**
+	 * Zig-zag encode a signed value, so it can be written with {@link #writeVarLong(OutputStream, long)}.
+	 *
+	 * @param val Signed value
+	 * @return Encoded value
+	 */
+	static long zigZag( final long val )
+	{
+		return val << 1 ^ val >> 63;
+	}
+}